@@ -2,11 +2,12 @@ package inkball;
 
 import processing.core.PApplet;
 import processing.core.PImage;
-import processing.data.JSONArray;
 import processing.data.JSONObject;
 import processing.event.KeyEvent;
 import processing.event.MouseEvent;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * The main application class.
@@ -17,12 +18,13 @@ public class App extends PApplet {
 
     public static final int CELLSIZE = 32; // Size of each tile
     public static final int TOPBAR = 64; // 64
-    public static int WIDTH = 576; // Window width (576 = 18 * 32)
+    public static int WIDTH = 576; // Window width (576 = 18 * 32), larger boards scroll
     public static int HEIGHT = 640; // Window height (576 + 64 for top bar)
     public static final int FPS = 30; // 30 default
+    private static final int INPUT_CAPACITY = 4096; // Input commands that can wait for one simulation step
 
-    private int score = 0;
-    private int remainingTime;
+    private final ScoreLedger ledger = new ScoreLedger(); // Total score with per-level and per-color breakdowns
+    private int remainingTime; // Frozen level clock; only read while clockTask is not running
     private boolean isTimeUp = false;
     boolean isLevelFailed = false;
     private boolean isTimeDraining;
@@ -31,29 +33,40 @@ public class App extends PApplet {
     boolean victoryInProgress = false;
     private boolean isTimeDrained = false;
     private boolean isVictoryAnimationComplete = false;
-    private int victoryframeCounter = 0;
     private int topLeftStep = 0; // Tracks movement of the first victory tile
     private int bottomRightStep = 0; // Tracks movement of the second victory tile
+    private static final int DRAIN_PERIOD = 4; // Frames per second of time drained (0.133 seconds)
+    private static final int VICTORY_TILE_PERIOD = 2; // Frames per victory tile step (0.067 seconds)
+    private final Scheduler scheduler = new Scheduler(); // Game-thread timed tasks
+    private Scheduler.Task clockTask; // Fails the level when the time runs out
+    private Scheduler.Task spawnTask; // Spawns the next ball from the queue
 
     private int currentLevel = 1;
 
-    private double scoreIncreaseModifier;
-    private double scoreDecreaseModifier;
-
     public String configPath;
-    private JSONObject config;
+    private boolean headless = false; // Simulation only, no window or sprites
+    private GameConfig config; // Shared, parsed once per config path
+    private LevelConfig levelConfig; // Settings of the current level
+    private LevelConfig tuning; // Replaces the config's settings of tunedLevel, for parameter sweeps
+    private int tunedLevel;
+    private EndlessLevels endless; // Makes the levels after the config's last, in endless mode
+    private PreparedLevel preparedLevel; // The level being played, if it was built in the background
+    private CompletableFuture<PreparedLevel> nextLevel; // Built during the victory sequence
     boolean isPaused = false;
-    private int scoreAtLevelStart = 0;
+    private ScoreLedger.Snapshot scoreAtLevelStart = ledger.snapshot(); // Restored when the level is restarted
     private PausedMessage pausedMessage;
     private EndMessage endMessage;
     private TimeUpMessage timeUpMessage;
+    private HUD hud;
 
     // Sprites
-    private HashMap<String, PImage> sprites = new HashMap<>(); // Name : PImage
+    private SpriteRegistry sprites; // Shared by every level and restart
     public List<TimedTile> timedTiles;
 
     // Gameboard
-    public char[][] board;
+    public char[][] board; // Shared with every game of the level through its LevelTemplate, never modified
+    private WallField walls; // Distance field of the board's walls, for ball collisions
+    private final Camera camera = new Camera(WIDTH, HEIGHT - TOPBAR); // Visible part of the board
 
     public List<Hole> holes;
     public List<Ball> balls;
@@ -63,7 +76,6 @@ public class App extends PApplet {
     // Spawn-related fields
     public List<String> ballSpawnQueue;
     public int SPAWNINTERVAL;
-    public int SPAWNTIMER;
 
     // For ballSpawnQueue UI:
     private int offsetX = 0; // variable for animating the gradual shift in the ball Queue
@@ -72,8 +84,15 @@ public class App extends PApplet {
     float oldX, oldY;
     private List<Squiggle> squiggles;
     Squiggle currentSquiggle = null;
-    private int drawLimitCounter = 0;
-    int squigglesPerFrameCap = 5;
+    private final Contact contact = new Contact(); // Reused for every ball-squiggle test
+    private final Pool<Ball> ballPool = new Pool<>(() -> new Ball(this)); // Captured balls are respawned from here
+    private final Pool<Squiggle> squigglePool = new Pool<>(Squiggle::new); // Removed lines are redrawn from here
+    private InkBudget ink = new InkBudget(InkBudget.DEFAULT_CAPACITY); // Shared by every squiggle of the level
+    private final InputQueue inputQueue = new InputQueue(INPUT_CAPACITY); // Filled by input events, drained by update()
+    private Consumer<InputCommand> inputRecorder;
+    private final Consumer<InputCommand> applyInput = this::applyInput; // Bound once, not on every frame
+    private final Random random = new Random(); // Picks spawners and starting directions; seeded for batch runs
+    private final RunStats stats = new RunStats(); // Captures and requeues on the current level
 
     /**
      * Default constructor that sets the configuration path.
@@ -82,12 +101,135 @@ public class App extends PApplet {
         this.configPath = "config.json";
     }
 
+    /**
+     * Creates a game that is never shown in a window. Sprites are not loaded and the game
+     * only advances when {@link #update()} or {@link #fastForward(int)} is called.
+     *
+     * @param configPath the path of the config file
+     * @return the initialized headless game, on its first level
+     */
+    public static App createHeadless(String configPath) {
+        App app = new App();
+        app.configPath = configPath;
+        app.headless = true;
+        app.setup();
+        return app;
+    }
+
+    /**
+     * Creates a headless game on a given level whose random choices (spawners and starting
+     * directions) come from a seed, so that the same seed always plays out the same way.
+     *
+     * @param configPath the path of the config file
+     * @param level the level to start on, 1-based
+     * @param seed the seed for the game's random choices
+     * @return the initialized headless game
+     */
+    public static App createHeadless(String configPath, int level, long seed) {
+        return createHeadless(configPath, level, null, seed);
+    }
+
+    /**
+     * Creates a seeded headless game on a given level, played with other settings than the
+     * config's, e.g. a different time limit or spawn interval.
+     *
+     * @param configPath the path of the config file
+     * @param level the level to start on, 1-based
+     * @param settings the settings to play the level with, or null for the config's
+     * @param seed the seed for the game's random choices
+     * @return the initialized headless game
+     */
+    public static App createHeadless(String configPath, int level, LevelConfig settings, long seed) {
+        App app = new App();
+        app.configPath = configPath;
+        app.headless = true;
+        app.currentLevel = level;
+        app.tuning = settings;
+        app.tunedLevel = level;
+        app.random.setSeed(seed);
+        app.setup();
+        return app;
+    }
+
+    /**
+     * Copies a headless game part way through a level, so that many rollouts can carry on from
+     * the same moment without loading the level again. The copy shares the level's
+     * {@link LevelTemplate} and a copy-on-write fork of the walls, and has its own balls,
+     * squiggles, timed tiles, clocks, score and ink. A squiggle still being drawn is finished
+     * in the copy. Must not be called while this game is being updated on another thread.
+     *
+     * @param seed the seed for the copy's random choices
+     * @return the copy, on the same frame of the level
+     * @throws IllegalStateException if this game has a window, or its level is already won
+     */
+    public App fork(long seed) {
+        if (!headless || victoryInProgress || isGameEnded) {
+            throw new IllegalStateException("Only a headless game in the middle of a level can be forked");
+        }
+        App copy = new App();
+        copy.configPath = configPath;
+        copy.headless = true;
+        copy.random.setSeed(seed);
+        copy.config = config;
+        copy.levelConfig = levelConfig;
+        copy.tuning = tuning;
+        copy.tunedLevel = tunedLevel;
+        copy.preparedLevel = preparedLevel;
+        copy.currentLevel = currentLevel;
+        copy.ledger.restore(ledger.snapshot());
+        copy.scoreAtLevelStart = scoreAtLevelStart;
+        copy.stats.copyFrom(stats);
+        copy.isPaused = isPaused;
+        copy.isTimeUp = isTimeUp;
+        copy.isLevelFailed = isLevelFailed;
+        copy.remainingTime = remainingTime;
+
+        copy.board = board;
+        copy.walls = walls.forkBoth(); // This game keeps playing on its walls too
+        copy.camera.setBoardSize(getBoardColumns(), getBoardRows());
+        copy.camera.scrollBy(camera.getX(), camera.getY());
+        copy.holes = new ArrayList<>(holes);
+        copy.spawners = new ArrayList<>(spawners);
+        copy.ballSpawnQueue = new ArrayList<>(ballSpawnQueue);
+        copy.SPAWNINTERVAL = SPAWNINTERVAL;
+        copy.offsetX = offsetX;
+        copy.isShifting = isShifting;
+        if (isShifting) {
+            copy.scheduler.scheduleRepeating(1, copy::updateBallQueue);
+        }
+
+        copy.balls = new ArrayList<>(balls.size());
+        for (Ball ball : balls) {
+            copy.balls.add(copy.ballPool.acquire().copyFrom(ball));
+        }
+        copy.ink = ink.copy(); // Already holds the ink of the copied squiggles
+        copy.squiggles = new ArrayList<>(squiggles.size());
+        for (Squiggle squiggle : squiggles) {
+            copy.squiggles.add(copy.squigglePool.acquire().reset(levelConfig.getStrokeTolerance(), copy.ink)
+                    .copyFrom(squiggle));
+        }
+        copy.timedTiles = new ArrayList<>(timedTiles.size());
+        WallField copyWalls = copy.walls;
+        for (TimedTile tile : timedTiles) {
+            TimedTile copyTile = tile.fork(copy.scheduler);
+            copyTile.setOnExpire(() -> copyWalls.removeWall((int) copyTile.getX(), (int) copyTile.getY()));
+            copy.timedTiles.add(copyTile);
+        }
+
+        if (clockTask != null && !clockTask.isCancelled()) {
+            copy.clockTask = copy.scheduler.schedule(clockTask.getRemainingFrames(), copy::onTimeUp);
+        }
+        copy.setSpawnTimer(getSpawnTimer());
+        return copy;
+    }
+
     /**
      * Sets up the size of the game window.
      */
     @Override
     public void settings() {
         size(WIDTH, HEIGHT);
+        SpriteRegistry.preload(this); // Decode sprites in the background while the window opens
     }
 
     /**
@@ -95,8 +237,15 @@ public class App extends PApplet {
      */
     @Override
     public void setup() {
-        frameRate(FPS);
-        loadSprites(); // Load the sprites
+        if (!headless) {
+            frameRate(FPS);
+            sprites = SpriteRegistry.get(this); // Reuses the already decoded sprites on restarts
+        }
+        scheduler.clear(); // Cancel anything left over from the previous level
+        nextLevel = null; // A prefetch left over from a victory that was restarted
+        clockTask = null;
+        spawnTask = null;
+        releaseAll();
         holes = new ArrayList<>();
         balls = new ArrayList<>();
         ballSpawnQueue = new ArrayList<>();
@@ -118,40 +267,32 @@ public class App extends PApplet {
         pausedMessage = new PausedMessage(WIDTH / 2 - 100, TOPBAR / 2 - 20, 200, 40);
         endMessage = new EndMessage(WIDTH / 2 - 100, TOPBAR / 2 - 20, 200, 40);
         timeUpMessage = new TimeUpMessage(WIDTH / 2 - 100, TOPBAR / 2 - 20, 200, 40);
-        scoreAtLevelStart = score;
+        if (hud == null) {
+            hud = new HUD(this);
+        }
+        hud.invalidate();
+        scoreAtLevelStart = ledger.snapshot();
+        stats.reset();
         offsetX = 0;
         isShifting = false;
 
-        // Load the config and the level corresponding to currentLevel
-        config = loadJSONObject(configPath); // parse level 1 data from config.
+        // Load the config (cached after the first setup) and the level corresponding to currentLevel
+        config = GameConfig.load(configPath);
+        if (config.isEndless() && endless == null && currentLevel >= config.getLevelCount()) {
+            // Start making the generated levels while the last level of the config is played
+            endless = new EndlessLevels(random.nextLong(), config.getLevel(config.getLevelCount()), sprites);
+        }
+        if (preparedLevel != null) {
+            applyLevelConfig(preparedLevel.getSettings());
+            loadLevel(preparedLevel.getTemplate());
+            return;
+        }
         loadConfigForLevel(currentLevel);
         String levelFile = getLevelFilePath(currentLevel);
         loadLevel(levelFile);
     }
 
 
-    /**
-     * Loads the sprites required for the game from the resources folder.
-     */
-    private void loadSprites() {
-        // Load wall sprites using relative paths
-        for (int i = 0; i <= 4; i++) {
-            sprites.put("wall" + i, loadImage("src/main/resources/inkball/wall" + i + ".png"));
-        }
-
-        // Load spawner sprite
-        sprites.put("entrypoint", loadImage("src/main/resources/inkball/entrypoint.png"));
-
-        // Load ball and hole sprites
-        for (int i = 0; i <= 4; i++) {
-            sprites.put("ball" + i, loadImage("src/main/resources/inkball/ball" + i + ".png"));
-            sprites.put("hole" + i, loadImage("src/main/resources/inkball/hole" + i + ".png"));
-        }
-
-        // Load tile sprite
-        sprites.put("tile", loadImage("src/main/resources/inkball/tile.png"));
-    }
-
     /**
      * Loads the configuration data for the specified level. Then 
      * loads the ball colors from the configuration and adds them to the spawn queue.
@@ -159,27 +300,32 @@ public class App extends PApplet {
      * @param level level the level for which the configuration will be loaded
      */
     public void loadConfigForLevel(int level) {
-        JSONArray levels = config.getJSONArray("levels");
+        LevelConfig levelConfig = tuning != null && level == tunedLevel ? tuning : config.getLevel(level);
 
-        if (level <= levels.size()) {
-            JSONObject levelConfig = levels.getJSONObject(level - 1); // Level config
+        if (levelConfig != null) {
+            applyLevelConfig(levelConfig);
+            log("Level " + level + " loaded with " + remainingTime / FPS + " seconds.");
+        } else {
+            log("No more levels available.");
+        }
+    }
 
-            // Extract ball colors for the current level
-            JSONArray ballColors = levelConfig.getJSONArray("balls");
-            for (int i = 0; i < ballColors.size(); i++) {
-                ballSpawnQueue.add(ballColors.getString(i));
-            }
+    /**
+     * Starts a level with the given settings: queues its balls, and starts its clock, ink
+     * budget and spawn timer.
+     *
+     * @param levelConfig the settings of the level
+     */
+    private void applyLevelConfig(LevelConfig levelConfig) {
+        this.levelConfig = levelConfig;
 
-            remainingTime = levelConfig.getInt("time") * FPS;
-            SPAWNINTERVAL = levelConfig.getInt("spawn_interval");
-            SPAWNTIMER = SPAWNINTERVAL * FPS;
-            scoreIncreaseModifier = levelConfig.getDouble("score_increase_from_hole_capture_modifier");
-            scoreDecreaseModifier = levelConfig.getDouble("score_decrease_from_wrong_hole_modifier");
+        // Extract ball colors for the current level
+        ballSpawnQueue.addAll(levelConfig.getBalls());
 
-            System.out.println("Level " + level + " loaded with " + remainingTime / FPS + " seconds.");
-        } else {
-            System.out.println("No more levels available.");
-        }
+        startLevelClock(levelConfig.getTime() * FPS);
+        ink = new InkBudget(levelConfig.getInkBudget());
+        SPAWNINTERVAL = levelConfig.getSpawnInterval();
+        resetSpawnTimer();
     }
 
     /**
@@ -189,18 +335,21 @@ public class App extends PApplet {
      * @return the path of the level file
      */
     String getLevelFilePath(int level) {
-        JSONArray levels = config.getJSONArray("levels");
+        LevelConfig levelConfig = config.getLevel(level);
 
-        if (level <= levels.size()) {
-            return levels.getJSONObject(level - 1).getString("layout");
+        if (levelConfig != null) {
+            return levelConfig.getLayout();
         } else {
-            System.out.println("No more levels to load.");
+            log("No more levels to load.");
             return null; // Handle end of game
         }
     }
 
     /** 
      * Loads the specified level file and initializes the board.
+     * The board, holes, spawners and wall field come from the level's shared
+     * {@link LevelTemplate}, so restarts and other games of the same level only build the
+     * entities that change during play.
      *
      * @param levelFilePath the path to the level file
      */
@@ -209,61 +358,77 @@ public class App extends PApplet {
         if (levelFilePath == null) {
             return;
         }
+        loadLevel(LevelTemplate.get(levelFilePath, sprites));
+    }
 
-        String[] lines = loadStrings(levelFilePath); // loadStrings (PApplet method) returns String[] of all the lines
-                                                     // in level1.txt
-        board = new char[18][18];
+    /**
+     * Initializes the board from a level's template, e.g. one generated in endless mode.
+     *
+     * @param template the level's template
+     */
+    private void loadLevel(LevelTemplate template) {
+        LevelData level = template.getLevel();
+        board = template.getTiles(); // Shared, read-only
+        WallField walls = template.newWallField();
+        this.walls = walls;
+        camera.setBoardSize(level.getWidth(), level.getHeight());
+
+        PImage timedSprite = getSprite("wall0"); // Use grey wall sprite for all timed tiles
+        for (int i = 0; i < level.getTimedTileCount(); i++) {
+            TimedTile tile = new TimedTile(level.getTimedTileX(i), level.getTimedTileY(i), timedSprite);
+            tile.setOnExpire(() -> walls.removeWall((int) tile.getX(), (int) tile.getY()));
+            tile.startFading(scheduler);
+            timedTiles.add(tile);
+        }
 
-        for (int row = 0; row < lines.length; row++) {
-            for (int col = 0; col < lines[row].length(); col++) {
-                char tileChar = lines[row].charAt(col);
-                board[row][col] = tileChar;
+        holes.addAll(template.getHoles());
+        spawners.addAll(template.getSpawners());
 
-                if (tileChar == 'T') {
-                    PImage sprite = getSprite("wall0"); // Use grey wall sprite for all timed tiles
-                    timedTiles.add(new TimedTile(col, row, sprite)); // Add to timed tiles list
-                }
+        for (int i = 0; i < level.getBallCount(); i++) {
+            int colorIndex = level.getBallColor(i); // e.g., B2 means ball2
 
-                else if (tileChar == 'H') {
-                    char holeColor = lines[row].charAt(col + 1); // e.g., H1 means hole1
-                    PImage holeSprite = getSprite("hole" + holeColor);
-                    // Create a new Hole object and add it to the list
-                    holes.add(new Hole(col, row, Character.getNumericValue(holeColor), holeSprite));
-                    col++; // Skip the color number character
-                } else if (tileChar == 'B') {
-                    char ballColor = lines[row].charAt(col + 1); // e.g., B2 means ball2
-                    int colorIndex = Character.getNumericValue(ballColor);
-                    PImage ballSprite = getSprite("ball" + ballColor);
-
-                    // Place the ball directly at the given coordinates
-                    float ballX = col * CELLSIZE + CELLSIZE / 2;
-                    float ballY = row * CELLSIZE + CELLSIZE / 2 + TOPBAR;
-
-                    // Generate random initial velocities (-2 or 2)
-                    float randomDx = Math.random() < 0.5 ? -2 : 2;
-                    float randomDy = Math.random() < 0.5 ? -2 : 2;
-                    balls.add(new Ball(ballX, ballY, randomDx, randomDy, ballSprite, colorIndex, this));
-                    col++; // Skip the color number character
-                } else if (tileChar == 'S') {
-                    // Create a new Spawner object and add it to its corresponding object list:
-                    Spawner spawner = new Spawner(this, col, row, getSprite("entrypoint"));
-                    spawners.add(spawner);
-                }
-            }
+            // Place the ball directly at the given coordinates
+            float ballX = level.getBallX(i) * CELLSIZE + CELLSIZE / 2;
+            float ballY = level.getBallY(i) * CELLSIZE + CELLSIZE / 2 + TOPBAR;
+
+            // Generate random initial velocities (-2 or 2)
+            float randomDx = random.nextBoolean() ? -2 : 2;
+            float randomDy = random.nextBoolean() ? -2 : 2;
+            spawnBall(ballX, ballY, randomDx, randomDy, colorIndex);
         }
     }
 
-    // simple getter off our HashMap
+    // simple getter off the shared sprite registry
     public PImage getSprite(String string) {
-        return sprites.get(string);
+        return sprites == null ? null : sprites.get(string);
     }
 
     public char[][] getBoard() {
         return board;
     }
 
+    public WallField getWalls() {
+        return walls;
+    }
+
+    public int getBoardColumns() {
+        return board[0].length;
+    }
+
+    public int getBoardRows() {
+        return board.length;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
     public int getScore() {
-        return score;
+        return ledger.getTotal();
+    }
+
+    public ScoreLedger getScoreLedger() {
+        return ledger;
     }
 
     public boolean getVictoryInProgress() {
@@ -278,14 +443,89 @@ public class App extends PApplet {
         return isGameEnded;
     }
 
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
     public boolean isPaused() {
         return isPaused;
     }
 
+    public void setPaused(boolean paused) {
+        isPaused = paused;
+    }
+
     public boolean isTimeDrained() {
         return isTimeDrained;
     }
 
+    public boolean isLevelFailed() {
+        return isLevelFailed;
+    }
+
+    public RunStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the time left on the level clock. While the clock is running this is derived
+     * from the frames left until the time-up task fires, so it is never decremented per frame.
+     *
+     * @return the remaining time in frames
+     */
+    public int getRemainingTime() {
+        if (clockTask != null && !clockTask.isCancelled()) {
+            return FPS - 1 + clockTask.getRemainingFrames(); // The level fails once less than a second is left
+        }
+        return remainingTime;
+    }
+
+    /**
+     * Returns the number of frames until the next ball is spawned.
+     *
+     * @return the frames left, or 0 if a spawn is due but waiting for the queue
+     */
+    public int getSpawnTimer() {
+        return spawnTask == null ? 0 : spawnTask.getRemainingFrames();
+    }
+
+    /**
+     * Sets the number of frames until the next ball is spawned.
+     *
+     * @param frames the frames to wait; 0 or less marks a spawn as due immediately
+     */
+    public void setSpawnTimer(int frames) {
+        if (spawnTask != null) {
+            spawnTask.cancel();
+            spawnTask = null;
+        }
+        if (frames > 0) {
+            spawnTask = scheduler.schedule(frames, () -> {
+                spawnTask = null;
+                handleSpawning();
+            });
+        }
+    }
+
+    /**
+     * Restarts the spawn timer at the full spawn interval of the level.
+     */
+    void resetSpawnTimer() {
+        setSpawnTimer(SPAWNINTERVAL * FPS);
+    }
+
+    int getQueueOffset() {
+        return offsetX;
+    }
+
+    boolean isQueueShifting() {
+        return isShifting;
+    }
+
     public int getCurrentLevel() {
         return currentLevel;
     }
@@ -298,47 +538,28 @@ public class App extends PApplet {
         return squiggles;
     }
 
+    public InkBudget getInk() {
+        return ink;
+    }
+
     public boolean isLevelComplete() {
         return ballSpawnQueue.isEmpty() && balls.isEmpty();
     }
 
     public int getScoreIncrease(int colorIndex) {
-        String colorName = getColorName(colorIndex);
-        int baseScoreChange = config.getJSONObject("score_increase_from_hole_capture").getInt(colorName);
-        return (int) (baseScoreChange * scoreIncreaseModifier);
+        return levelConfig.getScoreIncrease(colorIndex);
     }
 
     public int getScoreDecrease(int colorIndex) {
-        String colorName = getColorName(colorIndex);
-        int baseScoreChange = config.getJSONObject("score_decrease_from_wrong_hole").getInt(colorName);
-        return (int) (baseScoreChange * scoreDecreaseModifier);
+        return levelConfig.getScoreDecrease(colorIndex);
     }
 
     public JSONObject getConfig() {
-        return config;
+        return config.toJSON();
     }
 
-    /**
-     * Retrieves the color name corresponding to the given color index.
-     *
-     * @param colorIndex the index of the color
-     * @return the name of the color, or null if the index is invalid
-     */
-    private String getColorName(int colorIndex) {
-        switch (colorIndex) {
-            case 0:
-                return "grey";
-            case 1:
-                return "orange";
-            case 2:
-                return "blue";
-            case 3:
-                return "green";
-            case 4:
-                return "yellow";
-            default:
-                return null;
-        }
+    public GameConfig getGameConfig() {
+        return config;
     }
 
     /**
@@ -348,23 +569,33 @@ public class App extends PApplet {
      * @param colorIndex the color index of the ball to requeue
      */
     public void requeueBall(int colorIndex) {
-        String colorName = getColorName(colorIndex);
+        stats.recordRequeue();
+        String colorName = GameConfig.getColorName(colorIndex);
         boolean wasEmpty = ballSpawnQueue.isEmpty();
         ballSpawnQueue.add(colorName);
         if (wasEmpty) {
             // If the queue was empty, reset the spawn timer to avoid instant spawn
-            SPAWNTIMER = SPAWNINTERVAL * FPS;
+            resetSpawnTimer();
         }
     }
 
     /**
-     * Increases the player's score by a given amount and prints the new score.
+     * Increases the player's score by a given amount, credited to the current level.
      *
      * @param amount the amount to increase the score by
      */
     public void addScore(int amount) {
-        score += amount;
-        System.out.println("Score increased by " + amount + ". Total score: " + score);
+        addScore(ScoreLedger.NO_COLOR, amount);
+    }
+
+    /**
+     * Increases the player's score for capturing a ball of the given color.
+     *
+     * @param colorIndex the color index of the captured ball
+     * @param amount the amount to increase the score by
+     */
+    public void addScore(int colorIndex, int amount) {
+        ledger.add(currentLevel, colorIndex, amount);
     }
 
     /**
@@ -373,106 +604,213 @@ public class App extends PApplet {
      * @param amount the amount to decrease the score by
      */
     public void subtractScore(int amount) {
-        score -= amount;
-        if (score < 0) {
-            score = 0; // Ensure the score never goes negative
-        }
-        System.out.println("Score decreased by " + amount + ". Total score: " + score);
+        subtractScore(ScoreLedger.NO_COLOR, amount);
     }
 
     /**
-     * Handles mouse press events. Initiates drawing or removes squiggles on right-click.
+     * Decreases the player's score for a ball of the given color entering the wrong hole,
+     * ensuring it does not go negative.
+     *
+     * @param colorIndex the color index of the ball
+     * @param amount the amount to decrease the score by
+     */
+    public void subtractScore(int colorIndex, int amount) {
+        ledger.subtract(currentLevel, colorIndex, amount);
+    }
+
+    /**
+     * Queues a mouse press, to initiate drawing or remove a squiggle on the next simulation step.
      *
      * @param e the mouse event
      */
     @Override
     public void mousePressed(MouseEvent e) {
+        submitInput(mouseCommand(InputCommand.Type.MOUSE_PRESSED, e));
+    }
+
+    /**
+     * Queues a mouse drag, to add a point to the current squiggle on the next simulation step.
+     *
+     * @param e the mouse event
+     */
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        submitInput(mouseCommand(InputCommand.Type.MOUSE_DRAGGED, e));
+    }
+
+    /**
+     * Queues a mouse release, to end the current draw event on the next simulation step.
+     *
+     * @param e the mouse event
+     */
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        submitInput(mouseCommand(InputCommand.Type.MOUSE_RELEASED, e));
+    }
+
+    /**
+     * Queues a key press for restarting the game, toggling pause state or scrolling the board.
+     *
+     * @param event the key event
+     */
+    @Override
+    public void keyPressed(KeyEvent event) {
+        submitInput(InputCommand.key(System.nanoTime(), event.getKey(), event.getKeyCode()));
+    }
+
+    private InputCommand mouseCommand(InputCommand.Type type, MouseEvent e) {
+        if (e == null) { // Fall back to the mouse state of the sketch
+            return InputCommand.mouse(type, System.nanoTime(), mouseX, mouseY, mouseButton);
+        }
+        return InputCommand.mouse(type, System.nanoTime(), e.getX(), e.getY(), e.getButton());
+    }
+
+    /**
+     * Queues an input command to be applied at the start of the next simulation step.
+     * Commands must all be submitted from the same thread, normally the one delivering
+     * input events; headless games can use this to replay recorded input.
+     *
+     * @param command the command to queue
+     */
+    public void submitInput(InputCommand command) {
+        if (!inputQueue.offer(command)) {
+            log("Input queue full, dropped " + command);
+        }
+    }
+
+    /**
+     * Sets a listener that receives every input command as it is applied, e.g. to record a game.
+     *
+     * @param recorder the listener, or null to stop recording
+     */
+    public void setInputRecorder(Consumer<InputCommand> recorder) {
+        inputRecorder = recorder;
+    }
+
+    /**
+     * Applies every queued input command, in the order it arrived. Called at the start of
+     * each simulation step, so input only ever changes the game between steps.
+     */
+    void processInput() {
+        inputQueue.drain(applyInput);
+    }
+
+    private void applyInput(InputCommand command) {
+        if (inputRecorder != null) {
+            inputRecorder.accept(command);
+        }
+        switch (command.getType()) {
+            case MOUSE_PRESSED:
+                applyMousePressed(command);
+                break;
+            case MOUSE_DRAGGED:
+                applyMouseDragged(command);
+                break;
+            case MOUSE_RELEASED:
+                drawEventOngoing = false;
+                if (currentSquiggle != null) {
+                    currentSquiggle.compact(); // Trims only an unusually long line, so the pool keeps its buffers
+                }
+                currentSquiggle = null; // Clear the current squiggle reference
+                break;
+            case KEY_PRESSED:
+                applyKeyPressed(command);
+                break;
+        }
+    }
+
+    /**
+     * Initiates drawing, or removes squiggles on right-click.
+     *
+     * @param command the mouse press
+     */
+    private void applyMousePressed(InputCommand command) {
         if (isLevelFailed)
             return;
-        if (mouseButton == RIGHT) {
-            removeSquiggleAt(mouseX, mouseY);
+        float worldX = camera.toWorldX(command.getX());
+        float worldY = camera.toWorldY(command.getY());
+        if (command.getButton() == RIGHT) {
+            removeSquiggleAt(worldX, worldY);
             return; // Exit to prevent left-click logic from running
         }
 
         if (victoryInProgress)
             return;
 
-        boolean clickedLeft = (mouseButton == LEFT);
-        if (!clickedLeft)
-            return; // Only respond to left-clicks
+        boolean clickedLeft = (command.getButton() == LEFT);
+        if (!clickedLeft || ink.isExhausted())
+            return; // Only respond to left-clicks, and only while there is ink left
         drawEventOngoing = true; // initiate a draw event
-        oldX = mouseX;
-        oldY = mouseY;
+        oldX = worldX;
+        oldY = worldY;
 
         // Create a new squiggle and add the initial point where the mouse is pressed
-        currentSquiggle = new Squiggle();
-        currentSquiggle.addPoint(mouseX, mouseY);
+        currentSquiggle = squigglePool.acquire().reset(levelConfig.getStrokeTolerance(), ink);
+        currentSquiggle.addPoint(oldX, oldY);
         squiggles.add(currentSquiggle);
     }
 
     /**
-     * Handles mouse dragging events to add points to the current squiggle.
+     * Adds a point to the current squiggle. Every drag queued since the last step is applied,
+     * so fast strokes are no longer cut short by a per-frame limit.
      *
-     * @param e the mouse event
+     * @param command the mouse drag
      */
-    @Override
-    public void mouseDragged(MouseEvent e) {
+    private void applyMouseDragged(InputCommand command) {
         if (victoryInProgress || isLevelFailed)
             return;
-        boolean clickedLeft = (mouseButton == LEFT);
+        boolean clickedLeft = (command.getButton() == LEFT);
         if (clickedLeft && drawEventOngoing && currentSquiggle != null) {
-            if (drawLimitCounter < squigglesPerFrameCap) {
-                // Only add a new point if the mouse has moved a significant distance
-                if (PApplet.dist(oldX, oldY, mouseX, mouseY) > 5) { // Threshold to reduce points
-                    currentSquiggle.addPoint(mouseX, mouseY);
-                    oldX = mouseX;
-                    oldY = mouseY;
-                    drawLimitCounter++; // Increment counter for each new segment
-
-                }
+            // Only add a new point if the mouse has moved a significant distance
+            float worldX = camera.toWorldX(command.getX());
+            float worldY = camera.toWorldY(command.getY());
+            if (PApplet.dist(oldX, oldY, worldX, worldY) > 5) { // Threshold to reduce points
+                currentSquiggle.addPoint(worldX, worldY);
+                oldX = worldX;
+                oldY = worldY;
             }
         }
     }
 
     /**
-     * Ends the current draw event when the mouse is released.
-     *
-     * @param e the mouse event
-     */
-    @Override
-    public void mouseReleased(MouseEvent e) {
-        drawEventOngoing = false;
-        currentSquiggle = null; // Clear the current squiggle reference
-    }
-
-    /**
-     * Handles key press events for restarting the game or toggling pause state.
+     * Restarts the game, toggles the pause state or scrolls boards that are larger than
+     * the window with the arrow keys.
      *
-     * @param event the key event
+     * @param command the key press
      */
-    @Override
-    public void keyPressed(KeyEvent event) {
-        if (event.getKey() == 'r') {
-            if (!victoryInProgress && currentLevel > config.getJSONArray("levels").size()) {
+    private void applyKeyPressed(InputCommand command) {
+        if (command.getKey() == 'r') {
+            if (!victoryInProgress && isGameEnded) {
                 // Game has ended, reset everything to start from level 1
-                score = 0; // Reset the score
+                ledger.reset(); // Reset the score
                 currentLevel = 1; // Start from level 1
+                preparedLevel = null;
                 victoryInProgress = false; // Ensure victory mode is off
                 setup(); // Re-initialize the game
             } else {
                 // Reset the current level if the game is still in progress
-                score = scoreAtLevelStart; // Reset score to the level start score
+                ledger.restore(scoreAtLevelStart); // Reset score to the level start score
                 setup(); // Reload the current level
             }
-        } else if (event.getKey() == ' ') {
+        } else if (command.getKey() == CODED) {
+            switch (command.getKeyCode()) {
+                case LEFT:
+                    camera.scrollBy(-CELLSIZE, 0);
+                    break;
+                case RIGHT:
+                    camera.scrollBy(CELLSIZE, 0);
+                    break;
+                case UP:
+                    camera.scrollBy(0, -CELLSIZE);
+                    break;
+                case DOWN:
+                    camera.scrollBy(0, CELLSIZE);
+                    break;
+            }
+        } else if (command.getKey() == ' ') {
             if (!isGameEnded || !isLevelFailed) {
                 isPaused = !isPaused;
-            } // Toggle pause state
-            synchronized (this) {
-                if (!isPaused) {
-                    notify(); // Resume the drainTimeIntoScore thread
-                }
-            }
+            } // Toggle pause state, which also pauses the scheduler
         }
     }
 
@@ -486,79 +824,144 @@ public class App extends PApplet {
         for (int i = squiggles.size() - 1; i >= 0; i--) {
             Squiggle squiggle = squiggles.get(i);
             if (squiggle.containsPoint(x, y)) {
-                squiggles.remove(i);
+                removeSquiggle(i);
                 break; // Remove only the first squiggle found
             }
         }
     }
 
     /**
-     * Updates the game timer, handling time-based level failure conditions.
+     * Removes a squiggle from the board and returns its ink to the budget. Removing the line
+     * being drawn ends the drag, so no more points are added to it once it is back in the pool.
+     *
+     * @param index the index of the squiggle in the list of squiggles
      */
-    void updateTimer() {
-        System.out.println("updateTimer() running. Time: " + remainingTime);
-        if (isPaused || isTimeDraining || isLevelFailed)
-            return;
-        if (remainingTime > 0) {
-            remainingTime--;
+    private void removeSquiggle(int index) {
+        Squiggle squiggle = squiggles.remove(index);
+        if (squiggle == currentSquiggle) {
+            currentSquiggle = null;
+            drawEventOngoing = false;
         }
+        ink.release(squiggle.getLength());
+        squigglePool.release(squiggle);
+    }
+
+    /**
+     * Puts a ball from the pool into play.
+     *
+     * @param x the initial x-coordinate of the ball
+     * @param y the initial y-coordinate of the ball
+     * @param dx the initial x-velocity of the ball
+     * @param dy the initial y-velocity of the ball
+     * @param colorIndex the color index of the ball
+     */
+    private void spawnBall(float x, float y, float dx, float dy, int colorIndex) {
+        balls.add(ballPool.acquire().reset(x, y, dx, dy, getSprite("ball" + colorIndex), colorIndex));
+    }
 
-        if (remainingTime < FPS) {
-            isTimeUp = true;
-            isLevelFailed = true;
-            // System.out.println("Time's up flag triggered.");
+    /**
+     * Takes a ball out of play, e.g. when it is captured, and returns it to the pool.
+     *
+     * @param ball the ball to remove
+     */
+    void removeBall(Ball ball) {
+        if (balls.remove(ball)) {
+            ballPool.release(ball);
         }
     }
 
     /**
-     * The main game loop that draws the board, updates entities, handles the UI, 
-     * then initiates the victory sequence when the level is complete.
+     * Returns the balls and squiggles of the previous level to their pools. In debug mode,
+     * also checks that nothing else was dropped without being returned.
      */
-    @Override
-    public void draw() {
-        background(200, 200, 200); // Set background color
-        drawLimitCounter = 0;
+    private void releaseAll() {
+        if (balls != null) {
+            ballPool.checkLeaks(balls);
+            for (Ball ball : balls) {
+                ballPool.release(ball);
+            }
+        }
+        if (squiggles != null) {
+            squigglePool.checkLeaks(squiggles);
+            for (Squiggle squiggle : squiggles) {
+                squigglePool.release(squiggle);
+            }
+        }
+    }
 
-        drawBoard(); // Draw the game board --> 1x1 tiles
+    /**
+     * Starts the level clock. Rather than counting down every frame, a single task is
+     * scheduled for the frame on which less than one second remains, failing the level.
+     *
+     * @param frames the time limit of the level in frames
+     */
+    private void startLevelClock(int frames) {
+        stopLevelClock();
+        remainingTime = frames;
+        clockTask = scheduler.schedule(frames - FPS + 1, this::onTimeUp);
+    }
 
-        // Draw & update all spawners
-        for (Spawner spawner : spawners) {
-            spawner.draw(this, CELLSIZE, TOPBAR);
+    /**
+     * Stops the level clock, keeping the time that was left.
+     */
+    private void stopLevelClock() {
+        if (clockTask != null) {
+            remainingTime = getRemainingTime();
+            clockTask.cancel();
+            clockTask = null;
         }
+    }
 
-        // Draw all holes
-        for (Hole hole : holes) {
-            hole.draw(this, CELLSIZE, TOPBAR);
+    /**
+     * Fails the level once its time has run out, freezing spawning and the timed tiles.
+     */
+    private void onTimeUp() {
+        clockTask = null;
+        remainingTime = FPS - 1;
+        isTimeUp = true;
+        isLevelFailed = true;
+        setSpawnTimer(0);
+        stopFadingTiles();
+    }
+
+    private void stopFadingTiles() {
+        for (TimedTile tile : timedTiles) {
+            tile.stopFading();
+        }
+    }
 
-            // Attract balls towards each hole
+    /**
+     * The main game loop: advances the simulation by one frame, then draws the board,
+     * entities and UI.
+     */
+    @Override
+    public void draw() {
+        update();
+        render();
+    }
+
+    /**
+     * Advances the game by one frame: applies queued input, runs the scheduled tasks that are due,
+     * updates entities, then initiates the victory sequence when the level is complete.
+     * Does not draw anything, so headless games can call it directly.
+     */
+    public void update() {
+        processInput();
+
+        // Attract balls towards each hole (indexed loops here, so a frame allocates no iterators)
+        for (int h = 0; h < holes.size(); h++) {
+            Hole hole = holes.get(h);
             for (int i = balls.size() - 1; i >= 0; i--) {
                 Ball ball = balls.get(i);
                 ball.attractToHole(hole); // Apply attraction logic
             }
         }
-        // Draw and update timed tiles
-        for (TimedTile tile : timedTiles) {
-            if (!isPaused && !isLevelComplete() && !isLevelFailed) {
-                tile.updateAlpha();
-            } // Update alpha value}
-            tile.draw(this, CELLSIZE, TOPBAR); // Draw the tile
-        }
 
-        drawTopBar();
-        if (isPaused && !isLevelFailed && !isGameEnded) {
-            pausedMessage.draw(this);
-        } else {
-            // Draw the top bar including the spawn queue and timer
-            handleSpawning();
-            if (!isLevelComplete()) {
-                updateTimer();
-            }
+        if (isLevelComplete()) {
+            stopLevelClock(); // No time passes once the last ball is captured
         }
-
-        if (victoryInProgress && !isVictoryAnimationComplete) {
-            // **Update and draw victory tiles**
-            updateVictoryTiles();
-            drawVictoryTiles();
+        if (!isPaused) {
+            scheduler.tick(); // Spawns, queue animation, tile fading, time-up and the victory sequence
         }
 
         if (!isLevelComplete()) {
@@ -567,57 +970,111 @@ public class App extends PApplet {
                 for (int i = squiggles.size() - 1; i >= 0; i--) {
                     Squiggle squiggle = squiggles.get(i);
                     if (squiggle.isRemoved()) {
-                        if (squiggle == currentSquiggle) {
-                            currentSquiggle = null; // Clear the reference if the current line was removed
-                        }
-                        squiggles.remove(i);
-                    } else {
-                        squiggle.draw(this);
+                        removeSquiggle(i);
+                        continue;
                     }
                     squiggle.resetCollisionFlag();
                 }
             }
 
-            for (Ball ball : balls) {
+            for (int b = 0; b < balls.size(); b++) {
+                Ball ball = balls.get(b);
                 if (!isPaused && !isLevelFailed) {
                     ball.tick();
                 }
 
                 for (int i = squiggles.size() - 1; i >= 0; i--) {
                     Squiggle squiggle = squiggles.get(i);
-                    if (!squiggle.isRemoved() && squiggle.isCollidingWithBall(ball)) {
-                        squiggle.handleCollision(ball);
+                    if (!squiggle.isRemoved() && squiggle.findContact(ball, contact)) {
+                        squiggle.resolve(ball, contact);
                         squiggle.pendingRemoval(); // Mark the squiggle as removed after collision
                     }
                 }
-                ball.draw(this, CELLSIZE, TOPBAR);
-                // System.out.println("Squiggle " + squiggles.size());
             }
         } else if (!isTimeUp) {
             isTimeUp = true; // Mark the level as finished
             startVictorySequence();
         }
+    }
 
-        if (isLevelFailed) {
-            timeUpMessage.draw(this);
+    /**
+     * Advances the game by several frames without drawing, e.g. to skip through
+     * the victory sequence of a headless game.
+     *
+     * @param frames the number of frames to simulate
+     */
+    public void fastForward(int frames) {
+        for (int i = 0; i < frames; i++) {
+            update();
+        }
+    }
+
+    /**
+     * Draws the board, entities and UI for the current frame.
+     */
+    private void render() {
+        background(200, 200, 200); // Set background color
+
+        pushMatrix();
+        translate(-camera.getX(), -camera.getY()); // Everything up to the top bar is drawn in board coordinates
+        drawBoard(); // Draw the game board --> 1x1 tiles
+
+        // Draw all spawners
+        for (Spawner spawner : spawners) {
+            if (isTileVisible(spawner, 1)) {
+                spawner.draw(this, CELLSIZE, TOPBAR);
+            }
+        }
+
+        // Draw all holes
+        for (Hole hole : holes) {
+            if (isTileVisible(hole, 2)) {
+                hole.draw(this, CELLSIZE, TOPBAR);
+            }
         }
 
-        if (isVictoryAnimationComplete) {
-            checkVictoryAndLoadNextLevel(); // Load the next level
+        // Draw timed tiles
+        for (TimedTile tile : timedTiles) {
+            if (isTileVisible(tile, 1)) {
+                tile.draw(this, CELLSIZE, TOPBAR); // Draw the tile
+            }
         }
 
-        drawTopBar(); // Ensure the top bar is drawn
+        if (victoryInProgress && !isVictoryAnimationComplete) {
+            drawVictoryTiles();
+        }
 
-        if (isVictoryAnimationComplete && isTimeDrained) {
-            if (currentLevel >= config.getJSONArray("levels").size()) {
-                drawEndMessage();  
-                isGameEnded = true;
+        if (!isLevelComplete()) {
+            if (!isLevelFailed) {
+                for (Squiggle squiggle : squiggles) {
+                    squiggle.draw(this);
+                }
             }
+
+            for (Ball ball : balls) {
+                float diameter = ball.getRadius() * 2;
+                if (camera.isVisible(ball.getX() - ball.getRadius(), ball.getY() - ball.getRadius(), diameter, diameter)) {
+                    ball.draw(this, CELLSIZE, TOPBAR);
+                }
+            }
+        }
+        popMatrix();
+
+        hud.draw(this); // Draw the top bar including the spawn queue and timer
+        if (isPaused && !isLevelFailed && !isGameEnded) {
+            pausedMessage.draw(this);
+        }
+        if (isLevelFailed) {
+            timeUpMessage.draw(this);
+        }
+        if (isGameEnded) {
+            drawEndMessage();
         }
     }
 
     /**
-     * Starts the victory sequence when a level is completed.
+     * Starts the victory sequence when a level is completed: the remaining time is
+     * drained into the score while two tiles circle the board, then the next level is loaded.
      */
     void startVictorySequence() {
         if (victoryInProgress)
@@ -625,72 +1082,76 @@ public class App extends PApplet {
 
         victoryInProgress = true;
         isTimeDraining = true;
+        stopLevelClock();
+        setSpawnTimer(0);
+        stopFadingTiles();
         topLeftStep = 0;
         bottomRightStep = getPerimeterLength() / 2; // Opposite corner for the second tile
-        scoreAtLevelStart = score; // Store current score before adding time bonus
-        thread("drainTimeIntoScore"); // Start the time draining process
-        // thread("runVictoryAnimation"); // Start the victory animation
-
+        scoreAtLevelStart = ledger.snapshot(); // Store current score before adding time bonus
+        prefetchNextLevel();
+        scheduler.scheduleRepeating(DRAIN_PERIOD, this::drainTimeIntoScore);
+        scheduler.scheduleRepeating(VICTORY_TILE_PERIOD, () -> {
+            updateVictoryTiles();
+            return !isVictoryAnimationComplete;
+        });
     }
 
     /**
-     * Gradually drains remaining time into the score during the victory sequence.
+     * Starts reading the next level's config entry and building its {@link LevelTemplate} on a
+     * background thread, while the time is drained, so that loading it does not hitch the game
+     * thread. Generated levels of endless mode are already built in the background.
      */
-    public void drainTimeIntoScore() {
-        int frameCounter = 0;
-        while (remainingTime > 0 && isTimeDraining) {
-            synchronized (this) {
-                if (isPaused) {
-                    try {
-                        wait(); // Pause the draining process
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-
-            try {
-                Thread.sleep(67); // 0.067 seconds
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-
-            frameCounter++;
-
-            if (frameCounter % 2 == 0) {
-                remainingTime -= 30;
-                score++;
-            }
+    private void prefetchNextLevel() {
+        int next = currentLevel + 1;
+        if (next <= config.getLevelCount()) {
+            GameConfig config = this.config;
+            SpriteRegistry sprites = this.sprites;
+            LevelConfig tuned = tuning != null && next == tunedLevel ? tuning : null;
+            nextLevel = CompletableFuture.supplyAsync(() -> tuned != null ? tuned : config.getLevel(next),
+                    LevelTemplate.BUILDERS).thenCompose(settings -> LevelTemplate.prefetch(settings.getLayout(), sprites)
+                    .thenApply(template -> new PreparedLevel(template, settings)));
+        }
+    }
 
+    /**
+     * Drains one second of the remaining time into one point of score.
+     * Run by the scheduler during the victory sequence.
+     *
+     * @return true while there is time left to drain
+     */
+    boolean drainTimeIntoScore() {
+        if (remainingTime > 0 && isTimeDraining) {
+            remainingTime = Math.max(0, remainingTime - FPS);
+            ledger.addTimeBonus(currentLevel, 1);
+        }
+        if (remainingTime > 0 && isTimeDraining) {
+            return true;
         }
         isTimeDraining = false;
         isTimeDrained = true;
-        System.out.println("Time drained. Final Score: " + score);
-        checkVictoryAndLoadNextLevel();
-
+        log("Time drained. Final Score: " + ledger.getTotal());
+        return false;
     }
 
     /**
-     * Updates the positions of the victory tiles during the victory animation.
+     * Moves the victory tiles one step along the edge of the board.
+     * Once the time has been drained, the animation completes and the next level is scheduled.
      */
     void updateVictoryTiles() {
-        if (isPaused)
+        if (isPaused || isVictoryAnimationComplete)
             return;
-        victoryframeCounter++; // Track frames to control tile movement
-
-        if (victoryframeCounter % 2 == 0) { // Move tiles every 2 frames (0.067 seconds)
-            int perimeterLength = getPerimeterLength();
-
-            // Increment the steps for both tiles
-            topLeftStep = (topLeftStep + 1) % perimeterLength;
-            bottomRightStep = (bottomRightStep + 1) % perimeterLength;
-
-            // Check if both tiles have returned to their original positions
-            if (isTimeDrained) {
-                isVictoryAnimationComplete = true;
-                victoryInProgress = false;
-                System.out.println("Victory animation complete!");
-            }
+        int perimeterLength = getPerimeterLength();
+
+        // Increment the steps for both tiles
+        topLeftStep = (topLeftStep + 1) % perimeterLength;
+        bottomRightStep = (bottomRightStep + 1) % perimeterLength;
+
+        // Check if both tiles have returned to their original positions
+        if (isTimeDrained) {
+            isVictoryAnimationComplete = true;
+            victoryInProgress = false;
+            log("Victory animation complete!");
+            scheduler.schedule(1, this::checkVictoryAndLoadNextLevel);
         }
     }
 
@@ -733,8 +1194,8 @@ public class App extends PApplet {
      * @return the perimeter length
      */
     private int getPerimeterLength() {
-        int horizontalTiles = WIDTH / CELLSIZE;
-        int verticalTiles = (HEIGHT - TOPBAR) / CELLSIZE;
+        int horizontalTiles = getBoardColumns();
+        int verticalTiles = getBoardRows();
         return 2 * (horizontalTiles + verticalTiles) - 4; // Exclude double-counted corners
     }
 
@@ -745,8 +1206,8 @@ public class App extends PApplet {
      * @return an array with the x and y coordinates of the tile
      */
     private int[] getTilePosition(int step) {
-        int horizontalTiles = WIDTH / CELLSIZE;
-        int verticalTiles = (HEIGHT - TOPBAR) / CELLSIZE;
+        int horizontalTiles = getBoardColumns();
+        int verticalTiles = getBoardRows();
 
         if (step < horizontalTiles) { // Top edge
             return new int[] { step, 0 };
@@ -761,132 +1222,104 @@ public class App extends PApplet {
 
     /**
      * Checks if the current level has been completed and, if so, loads the next level.
-     * This method is marked as synchronized to prevent multiple threads from
-     * accessing it simultaneously, ensuring that the level loading process is
-     * not interrupted or triggered multiple times.
+     * Only ever run on the game thread by the scheduler, once per victory sequence.
      */
-    private synchronized void checkVictoryAndLoadNextLevel() {
-        if (isTimeDrained && isVictoryAnimationComplete) {
+    private void checkVictoryAndLoadNextLevel() {
+        if (isTimeDrained && isVictoryAnimationComplete && !isGameEnded) {
             loadNextLevel();
         }
     }
 
     /**
-     * Loads the next level. If all levels are completed, the game ends.
+     * Loads the next level. If all levels are completed, the game ends, unless it is in endless
+     * mode: then the next generated level is swapped in. Levels are built in the background, and
+     * if the next one is not ready yet, this is tried again on the next frame rather than waiting,
+     * unless the game is headless.
      */
     void loadNextLevel() {
+        if (nextLevel != null) {
+            if (!nextLevel.isDone() && !headless) {
+                scheduler.schedule(1, this::loadNextLevel); // Still being built: never hold up drawing
+                return;
+            }
+            // A headless game waits for it instead, so it plays out the same on every run
+            PreparedLevel next = nextLevel.join();
+            nextLevel = null;
+            currentLevel++;
+            preparedLevel = next;
+            log("Level loaded: " + currentLevel);
+            setup();
+            return;
+        }
+        if (config.isEndless() && currentLevel >= config.getLevelCount()) {
+            if (endless == null) { // E.g. a fork, which does not share its original's levels
+                endless = new EndlessLevels(random.nextLong(), config.getLevel(config.getLevelCount()), sprites);
+            }
+            EndlessLevels.Level next = headless ? endless.take() : endless.poll();
+            if (next == null) {
+                scheduler.schedule(1, this::loadNextLevel);
+                return;
+            }
+            currentLevel++;
+            preparedLevel = next;
+            log("Generated level loaded: " + currentLevel);
+            setup();
+            return;
+        }
         currentLevel++;
-        // System.out.println("Levels size is " + config.getJSONArray("levels").size() +
+        preparedLevel = null;
+        // System.out.println("Levels size is " + config.getLevelCount() +
         // " and current level is " + currentLevel);
-        if (currentLevel <= config.getJSONArray("levels").size()) {
-            System.out.println("Level loaded: " + currentLevel);
+        if (currentLevel <= config.getLevelCount()) {
+            log("Level loaded: " + currentLevel);
             setup(); // Reset and load the next level
         } else {
-            println("Congratulations! All levels completed.");
+            log("Congratulations! All levels completed.");
             victoryInProgress = false; // Stop interactions with the game
             isTimeDraining = false; // Stop any ongoing processes
+            isGameEnded = true;
         }
     }
 
     /**
-     * Draws the top bar displaying the score and remaining time.
-     */
-    private void drawTopBar() {
-        pushStyle(); // save current stroke and stroke weight settings
-        // Add black background for ball queue and timer
-        fill(0);
-        drawBallQueue();
-        // Display the score and time:
-        fill(0); // black text
-        textSize(20);
-        textAlign(RIGHT, TOP); // Align to the top-right corner
-        // Calculate X position for the top-right corner
-        int scoreX = WIDTH - 10; // 10px padding from the right edge
-        int scoreY = 10; // 10px from the top
-        // Draw score directly above the timer
-        text("Score: " + score, scoreX, scoreY); // Display score
-        text("Time: " + (remainingTime / FPS) + "s", scoreX, scoreY + 25); // Display timer below the score
-    }
-
-    /**
-     * Draws the queue of balls waiting to spawn, animating their movement, making them 
-     * slide down gradually after the spawn timer hits zero. 
+     * Advances the sliding animation of the ball queue in the top bar. Once the queue
+     * has shifted by a full ball, the spawned ball is removed from the front of the queue,
+     * and a spawn that became due during the animation happens straight away.
+     * Run by the scheduler every frame while the queue is shifting.
+     *
+     * @return true while the animation should continue
      */
-    private void drawBallQueue() {
-        int blackRectEnd = 154;
-        int blackRectY = 15;
-        int blackRectLeft = 15;
-        int blackRectHeight = TOPBAR - 30;
-        rect(blackRectLeft, blackRectY, blackRectEnd, blackRectHeight);
-        clip(blackRectLeft, blackRectY, blackRectEnd, blackRectHeight);
-
-        // Display up to 5 balls from the spawn queue
-        int xPos = 20; // Start position for ball display
-        int ballSize = 24; // 24 diameter = 12 radius
-        int ballSpacing = 30;
-
-        for (int i = 0; i < ballSpawnQueue.size(); i++) {
-            String ballColor = ballSpawnQueue.get(i);
-            int colorIndex = spawners.get(0).getColorIndex(ballColor);
-            PImage ballSprite = getSprite("ball" + colorIndex);
-
-            // If it is the leftmost ball and sliding, make it transparent
-            if (i == 0 && isShifting) {
-                tint(255, 255, 255, 0); // Full transparency for the leftmost ball
-            } else {
-                noTint(); // Reset to full opacity for other balls
-            }
-
-            // During sliding, gradually shift the balls left
-            if (isShifting) {
-                image(ballSprite, xPos - (int) offsetX, 20, ballSize, ballSize);
-            } else {
-                image(ballSprite, xPos, 20, ballSize, ballSize);
-            }
-
-            noTint();
-            // image(ballSprite, xPos - (int) offsetX, 20, ballSize, ballSize);
-            xPos += ballSpacing; // Spacing between each ball
+    boolean updateBallQueue() {
+        if (isLevelFailed || !isShifting) {
+            return false; // Leave the queue where it is
         }
+        offsetX += 2; // Move by 2 pixels per frame
 
-        // Update offsetX to animate the gradual leftward movement, only if shifting
-        if (!isPaused && !isLevelFailed && isShifting) {
-            offsetX += 1; // Move by 1 pixel per frame
+        // If offsetX reaches the full ball spacing, stop shifting
+        if (offsetX >= HUD.BALL_SPACING) {
+            isShifting = false; // Stop shifting until the next spawn
+            offsetX = 0; // Reset for the next shift
 
-            // If offsetX reaches the full ball spacing, stop shifting
-            if (offsetX >= ballSpacing) {
-                isShifting = false; // Stop shifting until the next spawn
-                offsetX = 0; // Reset for the next shift
-
-                ballSpawnQueue.remove(0);
-            }
-        }
-        popStyle(); // restore previous stroke and stroke weight settings
-        noClip();
-
-        // Display the SPAWNTIMER as a countdown, stop showing after all balls are
-        // spawned
-        if (!ballSpawnQueue.isEmpty() && !isLevelFailed) {
-            fill(0);
-            textSize(20);
-            text(String.format("%.1f", (float) SPAWNTIMER / FPS), blackRectEnd + 55, 22); // Timer next to ball queue
+            ballSpawnQueue.remove(0);
+            handleSpawning();
+            return false;
         }
+        return true;
     }
 
     /**
      * Draws the game board by iterating over the tiles and placing the appropriate sprites.
      */
-    private void drawBoard() { // Loop over the board[][] array and assign sprites based on the character.
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board[row].length; col++) {
+    private void drawBoard() { // Loop over the visible part of the board[][] array and assign sprites based on the character.
+        int lastRow = Math.min(camera.getLastVisibleRow(), board.length - 1);
+        for (int row = camera.getFirstVisibleRow(); row <= lastRow; row++) {
+            int lastCol = Math.min(camera.getLastVisibleColumn(), board[row].length - 1);
+            for (int col = camera.getFirstVisibleColumn(); col <= lastCol; col++) {
                 char tileChar = board[row][col];
                 PImage sprite = null;
-                final int currentRow = row; // Capture row into a final variable
-                final int currentCol = col;
 
                 // Skip timed tiles since they are drawn separately
-                boolean isTimed = timedTiles.stream().anyMatch(t -> t.getX() == currentCol && t.getY() == currentRow);
-                if (isTimed)
+                if (tileChar == 'T')
                     continue;
 
                 switch (tileChar) {
@@ -929,17 +1362,30 @@ public class App extends PApplet {
     }
 
     /**
-     * Handles ball spawning logic, including animation for the spawn queue.
+     * Checks whether a tile spanning the given number of cells is inside the camera's view.
+     *
+     * @param tile the tile to check
+     * @param cells the width and height of the tile in cells
+     * @return true if any part of the tile is visible
+     */
+    private boolean isTileVisible(Tile tile, int cells) {
+        return camera.isVisible(tile.getX() * CELLSIZE, tile.getY() * CELLSIZE + TOPBAR,
+                cells * CELLSIZE, cells * CELLSIZE);
+    }
+
+    /**
+     * Spawns the ball at the front of the queue if a spawn is due, and starts the
+     * queue's sliding animation. Run by the scheduler when the spawn timer runs out;
+     * a spawn that is due while the queue is still sliding waits for it to finish.
      */
     void handleSpawning() {
         if (isPaused || isLevelFailed)
             return; // Skip spawning if the game is paused
-        SPAWNTIMER--;
-        if (SPAWNTIMER <= 0 && !ballSpawnQueue.isEmpty() && !isShifting) {
+        if (getSpawnTimer() <= 0 && !ballSpawnQueue.isEmpty() && !isShifting) {
             // Reset offsetX to begin a new sliding animation
             offsetX = 0;
             isShifting = true;
-            Random random = new Random();
+            scheduler.scheduleRepeating(1, this::updateBallQueue);
             Spawner randomSpawner = spawners.get(random.nextInt(spawners.size()));
             String ballColor = ballSpawnQueue.get(0);
 
@@ -949,22 +1395,58 @@ public class App extends PApplet {
             float centerY = randomSpawner.getY() * CELLSIZE + CELLSIZE / 2 + TOPBAR;
 
             int colorIndex = randomSpawner.getColorIndex(ballColor);
-            PImage ballSprite = getSprite("ball" + colorIndex);
 
-            float randomDx = Math.random() < 0.5 ? -2 : 2;
-            float randomDy = Math.random() < 0.5 ? -2 : 2;
-            balls.add(new Ball(centerX, centerY, randomDx, randomDy, ballSprite, colorIndex, this));
-            SPAWNTIMER = SPAWNINTERVAL * FPS;
+            float randomDx = random.nextBoolean() ? -2 : 2;
+            float randomDy = random.nextBoolean() ? -2 : 2;
+            spawnBall(centerX, centerY, randomDx, randomDy, colorIndex);
+            stats.recordSpawn();
+            resetSpawnTimer();
         }
     }
 
     /**
-     * The main entry point of the program that launches the Processing sketch.
+     * The main entry point of the program that launches the Processing sketch, or with
+     * {@code --headless} runs batches of levels without a window (see {@link BatchRunner}),
+     * with {@code --serve} hosts headless games controlled over a socket (see {@link SessionHost}),
+     * with {@code --solve} ranks squiggle placements on a level (see {@link Solver}), with
+     * {@code --analyze} sweeps a level's settings to measure its difficulty (see {@link DifficultyAnalyzer}),
+     * with {@code --soak} checks the simulation's invariants over many runs (see {@link SoakHarness}),
+     * or with {@code --scale} measures speed over generated levels of growing size (see {@link ScalingBenchmark}).
      *
      * @param args command-line arguments
      */
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--headless")) {
+            System.exit(BatchRunner.run(args));
+        }
+        if (Arrays.asList(args).contains("--serve")) {
+            System.exit(SessionHost.run(args));
+        }
+        if (Arrays.asList(args).contains("--solve")) {
+            System.exit(Solver.run(args));
+        }
+        if (Arrays.asList(args).contains("--analyze")) {
+            System.exit(DifficultyAnalyzer.run(args));
+        }
+        if (Arrays.asList(args).contains("--soak")) {
+            System.exit(SoakHarness.run(args));
+        }
+        if (Arrays.asList(args).contains("--scale")) {
+            System.exit(ScalingBenchmark.run(args));
+        }
         PApplet.main("inkball.App");
     }
+
+    /**
+     * Prints a progress message for a player. Headless games stay quiet, so that batch
+     * runs can write their results to standard output.
+     *
+     * @param message the message to print
+     */
+    private void log(String message) {
+        if (!headless) {
+            System.out.println(message);
+        }
+    }
 }
 
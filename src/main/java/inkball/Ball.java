@@ -27,6 +27,7 @@ public class Ball implements GameObject {
     private double EPSILON = 0.00001;
     private boolean isCaptured = false;
     private App app;
+    private final Contact wallContact = new Contact(); // Reused for every wall check
 
     /**
      * Constructs a Ball with the specified position, velocity, sprite, color, and game context.
@@ -51,42 +52,71 @@ public class Ball implements GameObject {
     }
 
     /**
-     * Handles collision with walls by adjusting the ball's velocity and color.
+     * Constructs a blank Ball for a {@link Pool}, to be placed with {@link #reset}.
      *
-     * @param velocity the current velocity (x or y) of the ball
-     * @param pos the current position (x or y) of the ball
-     * @param col the current column of the ball on the board
-     * @param row the current row of the ball on the board
-     * @param isHorizontal true if the collision check is horizontal, false if vertical
-     * @return the updated velocity after the collision
+     * @param app the game context
      */
-    private float handleCollision(float velocity, float pos, int col, int row, boolean isHorizontal) {
-        // Determine the part of the ball boundary in the dir of movement.
-        float frontEdge;
-        if (velocity > 0) {
-            frontEdge = pos + radius; // moving 'forward' (right or down)
-        } else {
-            frontEdge = pos - radius; // moving 'backward' (left or up)
-        }
+    Ball(App app) {
+        this(0, 0, 0, 0, null, 0, app);
+    }
 
-        // Identify the target tile based on the dir of movement
-        int targetCol;
-        int targetRow;
-        if (isHorizontal) {
-            targetCol = getColumn(frontEdge);
-            targetRow = row;
-        } else {
-            targetCol = col;
-            targetRow = getRow(frontEdge);
-        }
-        // Flip the velocity if there is a collision with a wall:
-        if (isWall(targetCol, targetRow)) {
-            // Change color based on wall color
-            char tileChar = app.board[targetRow][targetCol];
-            changeColor(tileChar);
-            return -velocity;
+    /**
+     * Puts a pooled ball back into play as if it had just been constructed.
+     *
+     * @param startX the initial x-coordinate of the ball
+     * @param startY the initial y-coordinate of the ball
+     * @param speedX the initial x-velocity of the ball
+     * @param speedY the initial y-velocity of the ball
+     * @param ballSprite the sprite image for the ball
+     * @param colorIndex the color index of the ball
+     * @return this ball
+     */
+    Ball reset(float startX, float startY, float speedX, float speedY, PImage ballSprite, int colorIndex) {
+        this.radius = DEFAULT_RADIUS;
+        this.x = startX;
+        this.y = startY;
+        this.dx = speedX;
+        this.dy = speedY;
+        this.ballSprite = ballSprite;
+        this.colorIndex = colorIndex;
+        this.isCaptured = false;
+        return this;
+    }
+
+    /**
+     * Makes this ball an exact copy of a ball from another game, e.g. when forking a game.
+     *
+     * @param other the ball to copy
+     * @return this ball
+     */
+    Ball copyFrom(Ball other) {
+        reset(other.x, other.y, other.dx, other.dy, other.ballSprite, other.colorIndex);
+        this.radius = other.radius;
+        this.isCaptured = other.isCaptured;
+        return this;
+    }
+
+    /**
+     * Finds where the ball touches the walls, from the level's {@link WallField}.
+     *
+     * @param contact filled in with the tile, surface point, normal and penetration on a hit
+     * @return true if the ball overlaps a wall
+     */
+    boolean findWallContact(Contact contact) {
+        return app.getWalls().findContact(x, y, radius, contact);
+    }
+
+    /**
+     * Bounces the ball off a wall it is moving into and takes on the wall's color.
+     *
+     * @param contact the contact between the ball and the wall tile
+     */
+    private void handleWallContact(Contact contact) {
+        if (dx * contact.getNormalX() + dy * contact.getNormalY() >= 0) {
+            return; // Already moving away from the wall
         }
-        return velocity;
+        changeColor(contact.getTile());
+        contact.reflect(this);
     }
 
     /**
@@ -122,8 +152,8 @@ public class Ball implements GameObject {
             // Check if the ball is captured (aligned with the hole or shrunk below a size)
             if (distance < DIST_THRESH || this.radius < BALLSIZE_THRESH) {
                 // Capture the ball: Remove it from the game
-                app.balls.remove(this);
                 handleCapture(hole);
+                app.removeBall(this); // Returns it to the pool, so it must not be used after this
             }
         }
     }
@@ -141,14 +171,14 @@ public class Ball implements GameObject {
         if (isValidCapture) {
             // Successful capture
             int scoreIncrease = app.getScoreIncrease(colorIndex);
-            app.addScore(scoreIncrease);
-            app.balls.remove(this); // Remove the ball from the game
+            app.addScore(colorIndex, scoreIncrease);
+            app.getStats().recordCapture(colorIndex);
         } else {
             // Unsuccessful capture
             int scoreDecrease = app.getScoreDecrease(colorIndex);
-            app.subtractScore(scoreDecrease);
+            app.subtractScore(colorIndex, scoreDecrease);
+            app.getStats().recordWrongCapture();
             app.requeueBall(colorIndex); // Re-add the ball to the queue
-            app.balls.remove(this); // Remove the ball from active play
         }
 
     }
@@ -196,45 +226,12 @@ public class Ball implements GameObject {
         return MAX_SPEED;
     }
 
-    public int getColorIndex() {
-        return colorIndex;
-    }
-
-    private int getColumn(float pos) {
-        return PApplet.constrain((int) (pos / App.CELLSIZE), 0, App.WIDTH - 1);
+    public float getMinSpeed() {
+        return MIN_SPEED;
     }
 
-    private int getRow(float pos) {
-        return PApplet.constrain((int) ((pos - App.TOPBAR) / App.CELLSIZE), 0, App.HEIGHT - 1);
-    }
-
-    /**
-     * Checks if the given position corresponds to a wall tile on the game board.
-     *
-     * @param col the column of the tile
-     * @param row the row of the tile
-     * @return true if the tile is a wall or active timed tile, false otherwise
-     */
-    private boolean isWall(int col, int row) {
-        if (col < 0 || col >= app.board[0].length || row < 0 || row >= app.board.length) {
-            return false; // Out of bounds
-        }
-
-        char tile = app.board[row][col];
-
-        // Check for a regular wall or a timed tile
-        if (tile == 'X' || (tile >= '1' && tile <= '4')) {
-            return true;
-        }
-
-        // Check if the tile is a timed tile and still active
-        for (TimedTile timedTile : app.timedTiles) {
-            if (timedTile.getX() == col && timedTile.getY() == row && timedTile.isActive()) {
-                return true;
-            }
-        }
-
-        return false;
+    public int getColorIndex() {
+        return colorIndex;
     }
 
     // Mutators:
@@ -266,13 +263,13 @@ public class Ball implements GameObject {
     }
 
     /**
-     * Checks if the ball has collided with the screen edges and adjusts its velocity (trajectory).
+     * Checks if the ball has collided with the edges of the board and adjusts its velocity (trajectory).
      */
     private void checkScreenEdgeCollision() {
-        if (x - radius < MIN_X || x + radius > App.WIDTH) {
+        if (x - radius < MIN_X || x + radius > app.getBoardColumns() * App.CELLSIZE) {
             dx *= -1;
         }
-        if (y - radius < MIN_Y || y + radius > App.HEIGHT) {
+        if (y - radius < MIN_Y || y + radius > app.getBoardRows() * App.CELLSIZE + App.TOPBAR) {
             dy *= -1;
         }
     }
@@ -300,11 +297,9 @@ public class Ball implements GameObject {
         y += dy;
         float currX = x;
         float currY = y;
-        int col = getColumn(x);
-        int row = getRow(y);
-
-        dx = handleCollision(dx, x, col, row, true);
-        dy = handleCollision(dy, y, col, row, false);
+        if (findWallContact(wallContact)) {
+            handleWallContact(wallContact);
+        }
 
         moveIfNoCollision(currX, currY);
         checkScreenEdgeCollision();
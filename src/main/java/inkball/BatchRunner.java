@@ -0,0 +1,233 @@
+package inkball;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Plays complete levels without a window, as fast as the simulation allows, and writes one
+ * CSV row per run. Balls bounce around with no squiggles drawn until every ball is captured
+ * (the run then continues until the remaining time has been added to the score) or the time
+ * runs out.
+ *
+ * <pre>
+ * java -jar inkball.jar --headless [--config config.json] [--level L] [--runs N]
+ *                       [--threads T] [--seed S] [--out results.csv]
+ * </pre>
+ *
+ * Without {@code --level} every level in the config is played {@code --runs} times. Each run
+ * gets its own seed, derived from {@code --seed} and written to its row, so any run can be
+ * replayed on its own and the results do not depend on the number of threads.
+ */
+public final class BatchRunner {
+    static final String HEADER = "run,level,seed,outcome,ticks,score,"
+            + "captures_grey,captures_orange,captures_blue,captures_green,captures_yellow,wrong_hole,requeues";
+    static final String COMPLETE = "complete";
+    static final String TIME_UP = "time_up";
+    static final String TIMEOUT = "timeout"; // Stopped by the frame cap, which a finite level should never hit
+    static final String USAGE = "--headless [--config config.json] [--level L] [--runs N] [--threads T] [--seed S]"
+            + " [--out results.csv]";
+
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L; // Spreads consecutive run indices apart
+    private static final int OVERTIME_SECONDS = 60; // Frame cap beyond the level's own limit and time bonus
+
+    private BatchRunner() {
+    }
+
+    /**
+     * The options of a batch.
+     */
+    static final class Options {
+        String config = "config.json";
+        int level = 0; // 0 for every level
+        int runs = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        String out; // Null for standard output
+
+        /**
+         * Parses command-line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            CommandLine line = new CommandLine("--headless", args);
+            while (line.next()) {
+                switch (line.option()) {
+                    case "--config":
+                        options.config = line.value();
+                        break;
+                    case "--level":
+                        options.level = line.intValue();
+                        break;
+                    case "--runs":
+                        options.runs = line.intValue();
+                        break;
+                    case "--threads":
+                        options.threads = line.intValue();
+                        break;
+                    case "--seed":
+                        options.seed = line.longValue();
+                        break;
+                    case "--out":
+                        options.out = line.value();
+                        break;
+                    default:
+                        throw line.unknown();
+                }
+            }
+            if (options.runs < 1 || options.threads < 1 || options.level < 0) {
+                throw new IllegalArgumentException("--runs and --threads must be positive and --level not negative");
+            }
+            return options;
+        }
+    }
+
+    /**
+     * Runs a batch from command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the process exit code: 0 on success, 2 for bad arguments, 1 if the batch failed
+     */
+    public static int run(String[] args) {
+        return CommandLine.run(args, USAGE, "Batch failed", arguments -> {
+            Options options = Options.parse(arguments);
+            CommandLine.requireLevel(options.config, options.level);
+            return options;
+        }, options -> {
+            try (Writer out = CommandLine.openOutput(options.out)) {
+                runBatch(options, out);
+            }
+            return CommandLine.OK;
+        });
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Plays every run of a batch on a pool of threads and writes the rows in run order.
+     *
+     * @param options the batch to play
+     * @param out where to write the CSV
+     * @throws IOException if the CSV cannot be written
+     * @throws ExecutionException if a run fails
+     * @throws InterruptedException if interrupted while waiting for runs
+     */
+    static void runBatch(Options options, Writer out) throws IOException, ExecutionException, InterruptedException {
+        int levelCount = GameConfig.load(options.config).getLevelCount();
+        int firstLevel = options.level == 0 ? 1 : options.level;
+        int lastLevel = options.level == 0 ? levelCount : options.level;
+
+        out.write(HEADER);
+        out.write('\n');
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<String>> rows = new ArrayList<>();
+            for (int level = firstLevel; level <= lastLevel; level++) {
+                for (int run = 0; run < options.runs; run++) {
+                    int l = level, r = run;
+                    long seed = seedFor(options.seed, level, run);
+                    rows.add(pool.submit(() -> play(options.config, r, l, seed)));
+                }
+            }
+            for (Future<String> row : rows) {
+                out.write(row.get());
+                out.write('\n');
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+    }
+
+    /**
+     * Derives the seed of one run from the batch seed.
+     *
+     * @param seed the batch seed
+     * @param level the level of the run
+     * @param run the index of the run within its level
+     * @return the run's seed
+     */
+    static long seedFor(long seed, int level, int run) {
+        return seed + SEED_GAMMA * ((long) run * 1024 + level);
+    }
+
+    /**
+     * Returns the most frames a run of a level is played for. A finite level always ends well
+     * before: after its time limit at most, plus the time bonus being drained.
+     *
+     * @param level the level's settings
+     * @return the frame cap
+     */
+    static long frameCap(LevelConfig level) {
+        return (long) (level.getTime() * 2 + OVERTIME_SECONDS) * App.FPS;
+    }
+
+    /**
+     * Plays a game until its level is won and the time bonus counted, the time runs out, or the
+     * frame cap is reached.
+     *
+     * @param game the game
+     * @param cap the most frames to play
+     * @return the number of frames played
+     */
+    static long playOut(App game, long cap) {
+        return playUntil(game, cap, App::isTimeDrained);
+    }
+
+    /**
+     * Plays a game until a condition holds, the time runs out, or the frame cap is reached.
+     *
+     * @param game the game
+     * @param cap the most frames to play
+     * @param done the condition to stop at
+     * @return the number of frames played
+     */
+    private static long playUntil(App game, long cap, Predicate<App> done) {
+        long ticks = 0;
+        while (ticks < cap && !done.test(game) && !game.isLevelFailed()) {
+            game.update();
+            ticks++;
+        }
+        return ticks;
+    }
+
+    /**
+     * Plays one level to the end and describes the run.
+     *
+     * @param config the config path
+     * @param run the index of the run within its level
+     * @param level the level to play, 1-based
+     * @param seed the seed for the game's random choices
+     * @return the run's CSV row
+     */
+    static String play(String config, int run, int level, long seed) {
+        App app = App.createHeadless(config, level, seed);
+        long cap = frameCap(GameConfig.load(config).getLevel(level));
+
+        long endTick = playUntil(app, cap, App::isLevelComplete); // When the last ball was captured or the time ran out
+        String outcome = app.isLevelComplete() ? COMPLETE : app.isLevelFailed() ? TIME_UP : TIMEOUT;
+        playOut(app, cap - endTick); // Then the time bonus is counted
+
+        RunStats stats = app.getStats();
+        StringBuilder row = new StringBuilder(96);
+        row.append(run).append(',').append(level).append(',').append(seed).append(',').append(outcome).append(',')
+                .append(endTick).append(',').append(app.getScoreLedger().getTotal());
+        for (int color = 0; color < GameConfig.COLOR_NAMES.length; color++) {
+            row.append(',').append(stats.getCaptures(color));
+        }
+        row.append(',').append(stats.getWrongCaptures()).append(',').append(stats.getRequeues());
+        return row.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package inkball;
+
+/**
+ * Represents the visible window onto the game board.
+ * Boards larger than the window are scrolled by moving the camera; drawing code asks the
+ * camera which tiles and objects are in view so that only those are rendered.
+ * Positions passed to the camera are board (world) coordinates, in which the board starts
+ * at y = {@link App#TOPBAR}, matching the coordinates used by balls and squiggles.
+ */
+public class Camera {
+    private final int viewWidth; // Size of the board area of the window, in pixels
+    private final int viewHeight;
+    private int worldWidth; // Size of the board, in pixels
+    private int worldHeight;
+    private int x, y; // Scroll offset, in pixels
+
+    /**
+     * Constructs a {@code Camera} with a viewport of the given size, looking at an empty board.
+     *
+     * @param viewWidth the width of the board area of the window
+     * @param viewHeight the height of the board area of the window
+     */
+    public Camera(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+
+    /**
+     * Sets the board size in tiles and moves the camera back to the top-left corner.
+     *
+     * @param columns the number of board columns
+     * @param rows the number of board rows
+     */
+    public void setBoardSize(int columns, int rows) {
+        worldWidth = columns * App.CELLSIZE;
+        worldHeight = rows * App.CELLSIZE;
+        x = 0;
+        y = 0;
+    }
+
+    /**
+     * Scrolls the camera, keeping the viewport within the board.
+     *
+     * @param dx the horizontal distance in pixels
+     * @param dy the vertical distance in pixels
+     */
+    public void scrollBy(int dx, int dy) {
+        x = clamp(x + dx, Math.max(0, worldWidth - viewWidth));
+        y = clamp(y + dy, Math.max(0, worldHeight - viewHeight));
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getFirstVisibleColumn() {
+        return x / App.CELLSIZE;
+    }
+
+    public int getLastVisibleColumn() {
+        return Math.min(worldWidth - 1, x + viewWidth - 1) / App.CELLSIZE;
+    }
+
+    public int getFirstVisibleRow() {
+        return y / App.CELLSIZE;
+    }
+
+    public int getLastVisibleRow() {
+        return Math.min(worldHeight - 1, y + viewHeight - 1) / App.CELLSIZE;
+    }
+
+    /**
+     * Checks whether any part of a rectangle on the board is inside the viewport.
+     *
+     * @param left the x-coordinate of the left edge of the rectangle
+     * @param top the y-coordinate of the top edge of the rectangle
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @return true if the rectangle overlaps the viewport
+     */
+    public boolean isVisible(float left, float top, float width, float height) {
+        float boardTop = top - App.TOPBAR;
+        return left < x + viewWidth && left + width > x
+                && boardTop < y + viewHeight && boardTop + height > y;
+    }
+
+    /**
+     * Checks whether a line segment of the given thickness may be inside the viewport.
+     *
+     * @param x1 the x-coordinate of the start of the segment
+     * @param y1 the y-coordinate of the start of the segment
+     * @param x2 the x-coordinate of the end of the segment
+     * @param y2 the y-coordinate of the end of the segment
+     * @param thickness the stroke width of the segment
+     * @return true if the segment's bounding box overlaps the viewport
+     */
+    public boolean isSegmentVisible(float x1, float y1, float x2, float y2, float thickness) {
+        float half = thickness / 2;
+        float left = Math.min(x1, x2) - half;
+        float top = Math.min(y1, y2) - half;
+        return isVisible(left, top, Math.abs(x2 - x1) + thickness, Math.abs(y2 - y1) + thickness);
+    }
+
+    /**
+     * Converts a window x-coordinate (e.g. the mouse position) into a board x-coordinate.
+     *
+     * @param screenX the x-coordinate in the window
+     * @return the x-coordinate on the board
+     */
+    public float toWorldX(float screenX) {
+        return screenX + x;
+    }
+
+    /**
+     * Converts a window y-coordinate (e.g. the mouse position) into a board y-coordinate.
+     *
+     * @param screenY the y-coordinate in the window
+     * @return the y-coordinate on the board
+     */
+    public float toWorldY(float screenY) {
+        return screenY + y;
+    }
+}
@@ -0,0 +1,341 @@
+package inkball;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Reads the arguments of the command-line tools ({@link BatchRunner}, {@link Solver},
+ * {@link DifficultyAnalyzer}, {@link SoakHarness}, {@link ScalingBenchmark} and
+ * {@link SessionHost}), which all take {@code --option value} pairs (and the odd switch with no
+ * value) after the flag that selects the tool, and runs a tool with the exit codes they share: 0
+ * on success, 2 for bad arguments (with the tool's usage on standard error) and 1 if the tool
+ * failed.
+ *
+ * <pre>
+ * CommandLine line = new CommandLine("--solve", args);
+ * while (line.next()) {
+ *     switch (line.option()) {
+ *         case "--level":
+ *             options.level = line.intValue();
+ *             break;
+ *         default:
+ *             throw line.unknown();
+ *     }
+ * }
+ * </pre>
+ */
+final class CommandLine {
+    static final int OK = 0;
+    static final int FAILED = 1;
+    static final int BAD_ARGUMENTS = 2;
+
+    private final String flag;
+    private final String[] args;
+    private int index = 0; // Of the next argument to read
+    private String option;
+    private String value; // Read once the tool asks for it
+
+    /**
+     * The work of a tool, once its arguments are read.
+     *
+     * @param <O> the tool's options
+     */
+    interface Tool<O> {
+        /**
+         * Runs the tool.
+         *
+         * @param options the tool's options
+         * @return the process exit code
+         * @throws IOException if the tool's output cannot be written
+         * @throws ExecutionException if a task of the tool fails
+         * @throws InterruptedException if interrupted while waiting for tasks
+         */
+        int run(O options) throws IOException, ExecutionException, InterruptedException;
+    }
+
+    /**
+     * Starts reading the arguments of a tool.
+     *
+     * @param flag the flag that selects the tool, skipped wherever it appears
+     * @param args the arguments
+     */
+    CommandLine(String flag, String[] args) {
+        this.flag = flag;
+        this.args = args;
+    }
+
+    /**
+     * Moves to the next option. Its value is only read once the tool asks for it, so switches
+     * need none and an unknown option is reported as such even when it comes last.
+     *
+     * @return false once every argument has been read
+     */
+    boolean next() {
+        while (index < args.length && args[index].equals(flag)) {
+            index++;
+        }
+        if (index >= args.length) {
+            return false;
+        }
+        option = args[index++];
+        value = null;
+        return true;
+    }
+
+    /**
+     * Returns the name of the current option, e.g. {@code --level}.
+     *
+     * @return the option
+     */
+    String option() {
+        return option;
+    }
+
+    /**
+     * Returns the value of the current option as it was given.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the option has no value
+     */
+    String value() {
+        if (value == null) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            value = args[index++];
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of the current option as an integer.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    int intValue() {
+        try {
+            return Integer.parseInt(value());
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * Returns the value of the current option as a long integer.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the value is not an integer
+     */
+    long longValue() {
+        try {
+            return Long.parseLong(value());
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * Returns the values of the current option, given in any of the forms {@link #parseValues}
+     * accepts.
+     *
+     * @param min the smallest allowed value
+     * @return the values, in order
+     * @throws IllegalArgumentException if a value is not a number, is below the minimum, or the range is empty
+     */
+    double[] values(double min) {
+        try {
+            return parseValues(value(), min);
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * Returns the whole-number values of the current option, given in any of the forms
+     * {@link #parseValues} accepts.
+     *
+     * @param min the smallest allowed value
+     * @return the values, in order
+     * @throws IllegalArgumentException if a value is not a whole number, is below the minimum, or the range is empty
+     */
+    int[] integers(int min) {
+        try {
+            return parseIntegers(value(), min);
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * Describes the current option as one the tool does not know, for the tool to throw.
+     *
+     * @return the exception
+     */
+    IllegalArgumentException unknown() {
+        return new IllegalArgumentException("Unknown option " + option);
+    }
+
+    /**
+     * Describes the value of the current option as invalid, for the tool to throw.
+     *
+     * @return the exception
+     */
+    IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Invalid value for " + option + ": " + value);
+    }
+
+    /**
+     * Parses a parameter: a value, a comma-separated list of values or a {@code from:to:step}
+     * range, inclusive.
+     *
+     * @param text the parameter
+     * @param min the smallest allowed value
+     * @return the values, in order
+     * @throws NumberFormatException if a value is not a number
+     * @throws IllegalArgumentException if a value is below the minimum or the range is empty
+     */
+    static double[] parseValues(String text, double min) {
+        double[] values;
+        if (text.contains(":")) {
+            String[] range = text.split(":");
+            if (range.length != 3) {
+                throw new IllegalArgumentException("A range is from:to:step, not " + text);
+            }
+            double from = Double.parseDouble(range[0]);
+            double to = Double.parseDouble(range[1]);
+            double step = Double.parseDouble(range[2]);
+            if (step <= 0 || to < from) {
+                throw new IllegalArgumentException("Empty range " + text);
+            }
+            int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+            values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = from + i * step;
+            }
+        } else {
+            String[] list = text.split(",");
+            values = new double[list.length];
+            for (int i = 0; i < list.length; i++) {
+                values[i] = Double.parseDouble(list[i].trim());
+            }
+        }
+        for (double value : values) {
+            if (value < min) {
+                throw new IllegalArgumentException(value + " is below " + min);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Parses a parameter of whole numbers, in any of the forms {@link #parseValues} accepts.
+     *
+     * @param text the parameter
+     * @param min the smallest allowed value
+     * @return the values, in order
+     * @throws NumberFormatException if a value is not a number
+     * @throws IllegalArgumentException if a value is fractional or below the minimum, or the range is empty
+     */
+    static int[] parseIntegers(String text, int min) {
+        double[] values = parseValues(text, min);
+        int[] integers = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != Math.rint(values[i]) || values[i] > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(values[i] + " is not a whole number");
+            }
+            integers[i] = (int) values[i];
+        }
+        return integers;
+    }
+
+    /**
+     * Checks that a config has a level.
+     *
+     * @param config the config path
+     * @param level the level, 1-based
+     * @throws IllegalArgumentException if the config cannot be read or has fewer levels
+     */
+    static void requireLevel(String config, int level) {
+        int levels;
+        try {
+            levels = GameConfig.load(config).getLevelCount();
+        } catch (UncheckedIOException e) {
+            throw new IllegalArgumentException(e.getMessage() + ": " + e.getCause(), e);
+        }
+        if (level > levels) {
+            throw new IllegalArgumentException("No level " + level);
+        }
+    }
+
+    /**
+     * Runs a tool from its command-line arguments.
+     *
+     * @param args the arguments
+     * @param usage the tool's arguments, printed after a bad one
+     * @param failure what to print before the error when the tool fails, e.g. "Batch failed"
+     * @param parse reads the tool's options, throwing {@link IllegalArgumentException} for bad ones
+     * @param tool the tool
+     * @param <O> the tool's options
+     * @return the process exit code
+     */
+    static <O> int run(String[] args, String usage, String failure, Function<String[], O> parse, Tool<O> tool) {
+        O options;
+        try {
+            options = parse.apply(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: " + usage);
+            return BAD_ARGUMENTS;
+        }
+
+        try {
+            return tool.run(options);
+        } catch (ExecutionException e) {
+            System.err.println(failure + ": " + e.getCause());
+            return FAILED;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println(failure + ": " + e);
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FAILED;
+        }
+    }
+
+    /**
+     * Opens where a tool writes its CSV. Closing the writer of standard output only flushes it,
+     * so the stream stays open for the rest of the process.
+     *
+     * @param path the file to write, or null for standard output
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    static Writer openOutput(String path) throws IOException {
+        if (path != null) {
+            return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+        }
+        OutputStream stdout = new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length); // Whole buffers, not a byte at a time
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package inkball;
+
+/**
+ * Describes where a ball touches a squiggle or a wall tile.
+ * A contact query fills in an existing {@code Contact} rather than allocating a new one,
+ * so each caller keeps a single instance and reuses it every frame.
+ */
+public final class Contact {
+    private int segment = -1; // Index of the squiggle segment's first point, -1 for walls
+    private int column = -1, row = -1; // Board cell of the wall tile, -1 for squiggles
+    private char tile;
+    private float pointX, pointY; // Closest point on the surface to the ball's center
+    private float normalX, normalY; // Unit surface normal, pointing towards the ball
+    private float penetration; // How far the ball overlaps the surface
+
+    /**
+     * Records a contact with a squiggle segment.
+     *
+     * @param segment the index of the segment's first point
+     * @param pointX the x-coordinate of the closest point on the segment
+     * @param pointY the y-coordinate of the closest point on the segment
+     * @param normalX the x-component of the unit normal
+     * @param normalY the y-component of the unit normal
+     * @param penetration how far the ball overlaps the segment
+     */
+    void setSegment(int segment, float pointX, float pointY, float normalX, float normalY, float penetration) {
+        this.segment = segment;
+        this.column = -1;
+        this.row = -1;
+        this.tile = 0;
+        set(pointX, pointY, normalX, normalY, penetration);
+    }
+
+    /**
+     * Records a contact with a wall tile.
+     *
+     * @param column the column of the tile
+     * @param row the row of the tile
+     * @param tile the tile character
+     * @param pointX the x-coordinate of the contact point on the tile's edge
+     * @param pointY the y-coordinate of the contact point on the tile's edge
+     * @param normalX the x-component of the unit normal
+     * @param normalY the y-component of the unit normal
+     * @param penetration how far the ball overlaps the tile
+     */
+    void setWall(int column, int row, char tile, float pointX, float pointY, float normalX, float normalY,
+            float penetration) {
+        this.segment = -1;
+        this.column = column;
+        this.row = row;
+        this.tile = tile;
+        set(pointX, pointY, normalX, normalY, penetration);
+    }
+
+    private void set(float pointX, float pointY, float normalX, float normalY, float penetration) {
+        this.pointX = pointX;
+        this.pointY = pointY;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.penetration = penetration;
+    }
+
+    /**
+     * Reflects a ball's velocity off the surface of this contact.
+     *
+     * @param ball the ball to reflect
+     */
+    public void reflect(Ball ball) {
+        float dot = ball.getDx() * normalX + ball.getDy() * normalY;
+        ball.setDx(ball.getDx() - 2 * dot * normalX);
+        ball.setDy(ball.getDy() - 2 * dot * normalY);
+    }
+
+    public int getSegment() {
+        return segment;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public char getTile() {
+        return tile;
+    }
+
+    public float getPointX() {
+        return pointX;
+    }
+
+    public float getPointY() {
+        return pointY;
+    }
+
+    public float getNormalX() {
+        return normalX;
+    }
+
+    public float getNormalY() {
+        return normalY;
+    }
+
+    public float getPenetration() {
+        return penetration;
+    }
+}
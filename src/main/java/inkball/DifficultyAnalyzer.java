@@ -0,0 +1,291 @@
+package inkball;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how hard a level is over a grid of settings, so designers can tune the config
+ * without playing every variant. Each point of the grid (a time limit, spawn interval and pair
+ * of score modifiers) is played headlessly many times, with no squiggles drawn, and gets one CSV
+ * row: how often the time ran out, the distribution of the share of balls captured by a
+ * matching hole, and the mean wrong captures, score and length of a run.
+ *
+ * <pre>
+ * java -jar inkball.jar --analyze [--config config.json] [--level L] [--time 60:180:30]
+ *                       [--spawn-interval 3,5,8] [--increase-modifier 1.0]
+ *                       [--decrease-modifier 0.5:1.5:0.25] [--runs N] [--threads T]
+ *                       [--seed S] [--out sweep.csv]
+ * </pre>
+ *
+ * Each parameter takes a single value, a comma-separated list or a {@code from:to:step} range,
+ * and defaults to the level's own setting; the time limit and spawn interval are whole seconds.
+ * Every point is played with the same run seeds, so differences between points come from the
+ * settings rather than the luck of the spawns.
+ */
+public final class DifficultyAnalyzer {
+    static final String HEADER = "time,spawn_interval,increase_modifier,decrease_modifier,runs,fail_rate,"
+            + "capture_rate_mean,capture_rate_p10,capture_rate_p50,capture_rate_p90,wrong_hole_mean,score_mean,ticks_mean";
+    static final String USAGE = "--analyze [--config config.json] [--level L] [--time T] [--spawn-interval S]"
+            + " [--increase-modifier M] [--decrease-modifier M] [--runs N] [--threads T] [--seed S] [--out sweep.csv]";
+
+    private DifficultyAnalyzer() {
+    }
+
+    /**
+     * The options of a sweep. Null parameter values stand for the level's own setting.
+     */
+    static final class Options {
+        String config = "config.json";
+        int level = 1;
+        int[] times; // Seconds
+        int[] spawnIntervals; // Seconds
+        double[] increaseModifiers;
+        double[] decreaseModifiers;
+        int runs = 200;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        String out; // Null for standard output
+
+        /**
+         * Parses command-line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            CommandLine line = new CommandLine("--analyze", args);
+            while (line.next()) {
+                switch (line.option()) {
+                    case "--config":
+                        options.config = line.value();
+                        break;
+                    case "--level":
+                        options.level = line.intValue();
+                        break;
+                    case "--time":
+                        options.times = line.integers(1);
+                        break;
+                    case "--spawn-interval":
+                        options.spawnIntervals = line.integers(1);
+                        break;
+                    case "--increase-modifier":
+                        options.increaseModifiers = line.values(0);
+                        break;
+                    case "--decrease-modifier":
+                        options.decreaseModifiers = line.values(0);
+                        break;
+                    case "--runs":
+                        options.runs = line.intValue();
+                        break;
+                    case "--threads":
+                        options.threads = line.intValue();
+                        break;
+                    case "--seed":
+                        options.seed = line.longValue();
+                        break;
+                    case "--out":
+                        options.out = line.value();
+                        break;
+                    default:
+                        throw line.unknown();
+                }
+            }
+            if (options.level < 1 || options.runs < 1 || options.threads < 1) {
+                throw new IllegalArgumentException("--level, --runs and --threads must be positive");
+            }
+            return options;
+        }
+    }
+
+    /**
+     * The results of one run.
+     */
+    private static final class Sample {
+        final boolean failed;
+        final double captureRate;
+        final int wrongCaptures;
+        final int score;
+        final long ticks;
+
+        Sample(boolean failed, double captureRate, int wrongCaptures, int score, long ticks) {
+            this.failed = failed;
+            this.captureRate = captureRate;
+            this.wrongCaptures = wrongCaptures;
+            this.score = score;
+            this.ticks = ticks;
+        }
+    }
+
+    /**
+     * One point of the grid and its results over every run.
+     */
+    static final class Point {
+        private final LevelConfig settings;
+        private final double[] captureRates; // Sorted once every run is in
+        private int failures = 0;
+        private long wrongCaptures = 0;
+        private long score = 0;
+        private long ticks = 0;
+
+        Point(LevelConfig settings, int runs) {
+            this.settings = settings;
+            this.captureRates = new double[runs];
+        }
+
+        LevelConfig getSettings() {
+            return settings;
+        }
+
+        private void add(int run, Sample sample) {
+            captureRates[run] = sample.captureRate;
+            failures += sample.failed ? 1 : 0;
+            wrongCaptures += sample.wrongCaptures;
+            score += sample.score;
+            ticks += sample.ticks;
+        }
+
+        double getFailRate() {
+            return (double) failures / captureRates.length;
+        }
+
+        double getMeanCaptureRate() {
+            double sum = 0;
+            for (double rate : captureRates) {
+                sum += rate;
+            }
+            return sum / captureRates.length;
+        }
+
+        /**
+         * Returns a percentile of the capture rates, by the nearest rank.
+         *
+         * @param percent the percentile, from 0 to 100
+         * @return the capture rate
+         */
+        double getCaptureRate(int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * captureRates.length);
+            return captureRates[Math.max(0, Math.min(captureRates.length - 1, rank - 1))];
+        }
+
+        /**
+         * Describes the point as a CSV row.
+         *
+         * @return the row
+         */
+        String toRow() {
+            int runs = captureRates.length;
+            return settings.getTime() + "," + settings.getSpawnInterval() + ","
+                    + format(settings.getScoreIncreaseModifier()) + "," + format(settings.getScoreDecreaseModifier()) + ","
+                    + runs + "," + format(getFailRate()) + "," + format(getMeanCaptureRate()) + ","
+                    + format(getCaptureRate(10)) + "," + format(getCaptureRate(50)) + "," + format(getCaptureRate(90)) + ","
+                    + format((double) wrongCaptures / runs) + "," + format((double) score / runs) + ","
+                    + format((double) ticks / runs);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format("%.3f", value);
+    }
+
+    /**
+     * Runs a sweep from command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the process exit code: 0 on success, 2 for bad arguments, 1 if the sweep failed
+     */
+    public static int run(String[] args) {
+        return CommandLine.run(args, USAGE, "Sweep failed", arguments -> {
+            Options options = Options.parse(arguments);
+            CommandLine.requireLevel(options.config, options.level);
+            return options;
+        }, options -> {
+            try (Writer out = CommandLine.openOutput(options.out)) {
+                long start = System.nanoTime();
+                List<Point> points = analyze(options);
+                out.write(HEADER);
+                out.write('\n');
+                for (Point point : points) {
+                    out.write(point.toRow());
+                    out.write('\n');
+                }
+                out.flush();
+                System.err.println(String.format("%d runs in %.2f s", (long) points.size() * options.runs,
+                        (System.nanoTime() - start) / 1e9));
+            }
+            return CommandLine.OK;
+        });
+    }
+
+    /**
+     * Plays every run of every point of the grid on a pool of threads.
+     *
+     * @param options the sweep to run
+     * @return the points in grid order: time limits outermost, then spawn intervals, then modifiers
+     * @throws ExecutionException if a run fails
+     * @throws InterruptedException if interrupted while waiting for runs
+     */
+    static List<Point> analyze(Options options) throws ExecutionException, InterruptedException {
+        LevelConfig base = GameConfig.load(options.config).getLevel(options.level);
+        int balls = base.getBalls().size() + LevelTemplate.get(base.getLayout(), null).getLevel().getBallCount();
+        List<Point> points = new ArrayList<>();
+        for (int time : orDefault(options.times, base.getTime())) {
+            for (int interval : orDefault(options.spawnIntervals, base.getSpawnInterval())) {
+                for (double increase : orDefault(options.increaseModifiers, base.getScoreIncreaseModifier())) {
+                    for (double decrease : orDefault(options.decreaseModifiers, base.getScoreDecreaseModifier())) {
+                        points.add(new Point(base.withTuning(time, interval, increase, decrease),
+                                options.runs));
+                    }
+                }
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<Sample>> samples = new ArrayList<>(points.size() * options.runs);
+            for (Point point : points) {
+                for (int run = 0; run < options.runs; run++) {
+                    long seed = BatchRunner.seedFor(options.seed, options.level, run);
+                    samples.add(pool.submit(() -> play(options, point.getSettings(), balls, seed)));
+                }
+            }
+            int i = 0;
+            for (Point point : points) {
+                for (int run = 0; run < options.runs; run++) {
+                    point.add(run, samples.get(i++).get());
+                }
+                Arrays.sort(point.captureRates);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return points;
+    }
+
+    private static int[] orDefault(int[] values, int setting) {
+        return values == null ? new int[] { setting } : values;
+    }
+
+    private static double[] orDefault(double[] values, double setting) {
+        return values == null ? new double[] { setting } : values;
+    }
+
+    private static Sample play(Options options, LevelConfig settings, int balls, long seed) {
+        App app = App.createHeadless(options.config, options.level, settings, seed);
+        long ticks = BatchRunner.playOut(app, BatchRunner.frameCap(settings));
+        RunStats stats = app.getStats();
+        int captures = 0;
+        for (int color = 0; color < GameConfig.COLOR_NAMES.length; color++) {
+            captures += stats.getCaptures(color);
+        }
+        return new Sample(app.isLevelFailed(), balls == 0 ? 1 : (double) captures / balls, stats.getWrongCaptures(),
+                app.getScoreLedger().getTotal(), ticks);
+    }
+}
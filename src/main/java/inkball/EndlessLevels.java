@@ -0,0 +1,115 @@
+package inkball;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Supplies the levels of endless mode, which follow the last level in the config. Each level is
+ * generated and validated by {@link LevelGenerator}, and its {@link LevelTemplate} (tiles, holes,
+ * spawners and baked wall field) built, on the background threads that prefetch templates. Up to
+ * {@link #AHEAD} levels are kept in the making in a bounded queue, in order, and each one taken
+ * is replaced by the next, so the game thread only ever swaps in a level that is already built.
+ *
+ * <p>Levels are played at the pace of the last level in the config, with one more ball queued
+ * and a shorter spawn interval every few levels. The balls are the colors of the level's holes.
+ */
+final class EndlessLevels {
+    static final int AHEAD = 3; // Levels in the making at once
+    private static final int LEVELS_PER_STEP = 3; // Levels between each shortening of the spawn interval
+    private static final int MIN_SPAWN_INTERVAL = 2; // Seconds
+    private static final int MAX_EXTRA_BALLS = 10;
+
+    private final long seed;
+    private final LevelConfig base;
+    private final SpriteRegistry sprites;
+    private final ArrayDeque<CompletableFuture<Level>> queue = new ArrayDeque<>(AHEAD); // Only used on the game thread
+    private int next = 0; // Index of the next level to start making
+
+    /**
+     * A generated level, ready to play.
+     */
+    static final class Level extends PreparedLevel {
+        private final int index;
+
+        Level(int index, LevelTemplate template, LevelConfig settings) {
+            super(template, settings);
+            this.index = index;
+        }
+
+        int getIndex() {
+            return index;
+        }
+    }
+
+    /**
+     * Starts making the first levels.
+     *
+     * @param seed the seed of the sequence of levels
+     * @param base the settings of the last level in the config
+     * @param sprites the sprites to draw the holes and spawners with, or null for a headless game
+     */
+    EndlessLevels(long seed, LevelConfig base, SpriteRegistry sprites) {
+        this.seed = seed;
+        this.base = base;
+        this.sprites = sprites;
+        while (queue.size() < AHEAD) {
+            int index = next++;
+            queue.add(CompletableFuture.supplyAsync(() -> make(index), LevelTemplate.BUILDERS));
+        }
+    }
+
+    /**
+     * Takes the next level if it is ready, and starts making another in its place. Never waits.
+     *
+     * @return the level, or null if it is still being made
+     * @throws java.util.concurrent.CompletionException if the level could not be generated
+     */
+    Level poll() {
+        CompletableFuture<Level> head = queue.peek();
+        if (head == null || !head.isDone()) {
+            return null;
+        }
+        queue.remove();
+        int index = next++;
+        queue.add(CompletableFuture.supplyAsync(() -> make(index), LevelTemplate.BUILDERS));
+        return head.join();
+    }
+
+    /**
+     * Takes the next level, waiting for it to be built if need be, and starts making another in
+     * its place. For headless games, whose level changes must not depend on timing.
+     *
+     * @return the level
+     * @throws java.util.concurrent.CompletionException if the level could not be generated
+     */
+    Level take() {
+        queue.peek().join();
+        return poll();
+    }
+
+    /**
+     * Generates a level and builds everything the game needs to play it.
+     *
+     * @param index the level's number within the sequence, from 0
+     * @return the level
+     */
+    Level make(int index) {
+        LevelGenerator.Level generated = LevelGenerator.generate(seed, index);
+        LevelData data = generated.getData();
+
+        Random random = new Random(seed ^ index);
+        List<String> balls = new ArrayList<>();
+        int count = base.getBalls().size() + Math.min(index, MAX_EXTRA_BALLS);
+        for (int i = 0; i < count; i++) {
+            balls.add(GameConfig.getColorName(data.getHoleColor(random.nextInt(data.getHoleCount()))));
+        }
+        int spawnInterval = Math.max(Math.min(MIN_SPAWN_INTERVAL, base.getSpawnInterval()),
+                base.getSpawnInterval() - index / LEVELS_PER_STEP);
+        LevelConfig settings = base.withLayout("endless" + (index + 1), balls).withTuning(base.getTime(), spawnInterval,
+                base.getScoreIncreaseModifier(), base.getScoreDecreaseModifier());
+        return new Level(index, LevelTemplate.build(data, sprites), settings);
+    }
+}
@@ -0,0 +1,276 @@
+package inkball;
+
+import processing.data.JSONObject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Parsed form of a {@code config.json} file, shared by every game using the same path.
+ * The file is read once and indexed: the position of every entry of the {@code levels} array
+ * is recorded, but an entry is only turned into a {@link LevelConfig} the first time that level
+ * is requested. Large generated level packs therefore cost one pass over the text up front.
+ */
+public final class GameConfig {
+    static final String[] COLOR_NAMES = { "grey", "orange", "blue", "green", "yellow" };
+
+    private static final Map<String, GameConfig> CACHE = new ConcurrentHashMap<>(); // Path : config
+
+    private final String source;
+    private final int[] levelStarts; // Offset of each level object in the source text
+    private final int[] levelEnds;
+    private final AtomicReferenceArray<LevelConfig> levels; // Materialised on first use
+    private final int[] scoreIncrease; // Color index : base score increase
+    private final int[] scoreDecrease; // Color index : base score decrease
+    private final boolean endless; // Generated levels follow the last one
+    private volatile JSONObject json;
+
+    private GameConfig(String source) {
+        this.source = source;
+        Map<String, int[]> members = indexObject(source, 0);
+
+        int[] levelsSpan = members.get("levels");
+        if (levelsSpan == null) {
+            throw new IllegalArgumentException("Config has no \"levels\" array");
+        }
+        List<int[]> entries = indexArray(source, levelsSpan[0]);
+        this.levelStarts = new int[entries.size()];
+        this.levelEnds = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            levelStarts[i] = entries.get(i)[0];
+            levelEnds[i] = entries.get(i)[1];
+        }
+        this.levels = new AtomicReferenceArray<>(entries.size());
+
+        this.scoreIncrease = readScoreTable(members.get("score_increase_from_hole_capture"));
+        this.scoreDecrease = readScoreTable(members.get("score_decrease_from_wrong_hole"));
+        int[] endlessSpan = members.get("endless");
+        this.endless = endlessSpan != null && source.substring(endlessSpan[0], endlessSpan[1]).trim().equals("true");
+    }
+
+    /**
+     * Returns the config stored at the given path, reading it only the first time it is requested.
+     *
+     * @param path the path of the config file
+     * @return the shared, parsed config
+     */
+    public static GameConfig load(String path) {
+        return CACHE.computeIfAbsent(path, p -> {
+            try {
+                return parse(new String(Files.readAllBytes(Paths.get(p)), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read config " + p, e);
+            }
+        });
+    }
+
+    /**
+     * Indexes a config from its JSON text without caching it.
+     *
+     * @param json the contents of a config file
+     * @return the parsed config
+     */
+    public static GameConfig parse(String json) {
+        return new GameConfig(json);
+    }
+
+    /**
+     * Returns the number of levels in the config without materialising any of them.
+     *
+     * @return the level count
+     */
+    public int getLevelCount() {
+        return levels.length();
+    }
+
+    /**
+     * Returns whether the game carries on with generated levels after the last level in the
+     * config, set by {@code "endless": true}.
+     *
+     * @return true in endless mode
+     */
+    public boolean isEndless() {
+        return endless;
+    }
+
+    /**
+     * Returns the settings for the given level, parsing its entry on first access.
+     *
+     * @param level the level number, starting at 1
+     * @return the level settings, or null if there is no such level
+     */
+    public LevelConfig getLevel(int level) {
+        if (level < 1 || level > levels.length()) {
+            return null;
+        }
+        int index = level - 1;
+        LevelConfig config = levels.get(index);
+        if (config == null) {
+            JSONObject entry = JSONObject.parse(source.substring(levelStarts[index], levelEnds[index]));
+            levels.compareAndSet(index, null, new LevelConfig(entry, scoreIncrease, scoreDecrease));
+            config = levels.get(index);
+        }
+        return config;
+    }
+
+    /**
+     * Returns the color name for a color index, e.g. 2 is "blue".
+     *
+     * @param colorIndex the index of the color
+     * @return the name of the color, or null if the index is invalid
+     */
+    public static String getColorName(int colorIndex) {
+        if (colorIndex < 0 || colorIndex >= COLOR_NAMES.length) {
+            return null;
+        }
+        return COLOR_NAMES[colorIndex];
+    }
+
+    /**
+     * Returns the whole config as a {@link JSONObject}. This parses the full document the first
+     * time it is called and is only meant for code that needs the raw JSON.
+     *
+     * @return the config document
+     */
+    public JSONObject toJSON() {
+        if (json == null) {
+            json = JSONObject.parse(source);
+        }
+        return json;
+    }
+
+    /**
+     * Parses one of the color name to score objects into an array indexed by color index.
+     *
+     * @param span the start and end offsets of the object in the source text
+     * @return the scores, with 0 for any color missing from the object
+     */
+    private int[] readScoreTable(int[] span) {
+        int[] table = new int[COLOR_NAMES.length];
+        if (span == null) {
+            return table;
+        }
+        JSONObject scores = JSONObject.parse(source.substring(span[0], span[1]));
+        for (int i = 0; i < COLOR_NAMES.length; i++) {
+            table[i] = scores.getInt(COLOR_NAMES[i], 0);
+        }
+        return table;
+    }
+
+    /**
+     * Records the value span of every member of the JSON object starting at {@code start}.
+     *
+     * @param s the JSON text
+     * @param start the offset of the opening brace
+     * @return a map of member name to {start, end} offsets of its value
+     */
+    static Map<String, int[]> indexObject(String s, int start) {
+        Map<String, int[]> members = new HashMap<>();
+        int i = expect(s, skipWhitespace(s, start), '{');
+        i = skipWhitespace(s, i);
+        if (s.charAt(i) == '}') {
+            return members;
+        }
+        while (true) {
+            int keyStart = skipWhitespace(s, i);
+            int keyEnd = skipString(s, keyStart);
+            String key = s.substring(keyStart + 1, keyEnd - 1);
+            int valueStart = skipWhitespace(s, expect(s, skipWhitespace(s, keyEnd), ':'));
+            int valueEnd = skipValue(s, valueStart);
+            members.put(key, new int[] { valueStart, valueEnd });
+
+            i = skipWhitespace(s, valueEnd);
+            if (s.charAt(i) == '}') {
+                return members;
+            }
+            i = expect(s, i, ',');
+        }
+    }
+
+    /**
+     * Records the span of every element of the JSON array starting at {@code start}.
+     *
+     * @param s the JSON text
+     * @param start the offset of the opening bracket
+     * @return the {start, end} offsets of each element, in order
+     */
+    static List<int[]> indexArray(String s, int start) {
+        List<int[]> elements = new ArrayList<>();
+        int i = skipWhitespace(s, expect(s, skipWhitespace(s, start), '['));
+        if (s.charAt(i) == ']') {
+            return elements;
+        }
+        while (true) {
+            int valueStart = skipWhitespace(s, i);
+            int valueEnd = skipValue(s, valueStart);
+            elements.add(new int[] { valueStart, valueEnd });
+
+            i = skipWhitespace(s, valueEnd);
+            if (s.charAt(i) == ']') {
+                return elements;
+            }
+            i = expect(s, i, ',');
+        }
+    }
+
+    private static int skipValue(String s, int i) {
+        char c = s.charAt(i);
+        if (c == '"') {
+            return skipString(s, i);
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            for (; i < s.length(); i++) {
+                c = s.charAt(i);
+                if (c == '"') {
+                    i = skipString(s, i) - 1;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unterminated JSON value at offset " + i);
+        }
+        // Number, boolean or null
+        while (i < s.length() && ",}] \t\r\n".indexOf(s.charAt(i)) < 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipString(String s, int i) {
+        expect(s, i, '"');
+        for (i++; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++; // Skip the escaped character
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+
+    private static int skipWhitespace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int expect(String s, int i, char c) {
+        if (i >= s.length() || s.charAt(i) != c) {
+            throw new IllegalArgumentException("Expected '" + c + "' at offset " + i + " of config");
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,248 @@
+package inkball;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PImage;
+import java.util.List;
+
+/**
+ * Represents the top bar of the game window (ball queue, spawn timer, score and time).
+ * The bar is rendered into an off-screen {@link PGraphics} layer that is kept between
+ * frames, and only the parts whose values have changed since the last frame are redrawn.
+ */
+public class HUD extends UIElement {
+    static final int QUEUE_LEFT = 15; // Left edge of the black ball queue strip
+    static final int QUEUE_TOP = 15;
+    static final int QUEUE_WIDTH = 154;
+    static final int QUEUE_HEIGHT = App.TOPBAR - 30;
+    static final int BALL_X = 20; // x-position of the first queued ball
+    static final int BALL_Y = 20;
+    static final int BALL_SIZE = 24; // 24 diameter = 12 radius
+    static final int BALL_SPACING = 30;
+    // At most this many queued balls can overlap the strip, even mid-shift
+    static final int MAX_VISIBLE_BALLS = QUEUE_WIDTH / BALL_SPACING + 1;
+
+    private static final int BACKGROUND = 200; // Same grey as the board background
+    private static final int SPAWN_TIMER_X = QUEUE_LEFT + QUEUE_WIDTH + 10;
+    private static final int SPAWN_TIMER_WIDTH = 80;
+    private static final int SCORE_RIGHT = App.WIDTH - 10; // 10px padding from the right edge
+    private static final int SCORE_Y = 10;
+    private static final int TIME_Y = SCORE_Y + 25;
+    private static final int TEXT_REGION_WIDTH = 200;
+    private static final int TEXT_ROW_HEIGHT = 25;
+
+    private final App app;
+    private PGraphics layer;
+    private final PImage[] ballSprites = new PImage[5];
+
+    // Values currently rendered into the layer, used to decide what needs redrawing
+    private boolean invalid = true;
+    private int renderedScore;
+    private int renderedSeconds;
+    private int renderedSpawnTenths;
+    private boolean renderedSpawnVisible;
+    private int renderedOffset;
+    private boolean renderedShifting;
+    private int renderedQueueCount;
+    private final String[] renderedQueue = new String[MAX_VISIBLE_BALLS];
+    private final int[] queueColors = new int[MAX_VISIBLE_BALLS];
+    private String scoreText;
+    private String timeText;
+    private String spawnText;
+
+    /**
+     * Constructs a {@code HUD} covering the top bar of the given game.
+     *
+     * @param app the game whose state is displayed
+     */
+    public HUD(App app) {
+        super(0, 0, App.WIDTH, App.TOPBAR);
+        this.app = app;
+    }
+
+    /**
+     * Forces the whole bar to be re-rendered on the next draw, e.g. after a level is loaded.
+     */
+    public void invalidate() {
+        invalid = true;
+        for (int i = 0; i < ballSprites.length; i++) {
+            ballSprites[i] = null;
+        }
+    }
+
+    /**
+     * Brings the cached layer up to date with the game state and draws it at the top of the window.
+     *
+     * @param target the {@link PApplet} instance used for rendering
+     */
+    @Override
+    public void draw(PApplet target) {
+        if (layer == null) {
+            layer = target.createGraphics(width, height);
+            invalid = true;
+        }
+
+        int score = app.getScore();
+        int seconds = app.getRemainingTime() / App.FPS;
+        boolean spawnVisible = !app.ballSpawnQueue.isEmpty() && !app.isLevelFailed;
+        int spawnTenths = Math.round(app.getSpawnTimer() * 10f / App.FPS);
+        boolean queueChanged = invalid || hasQueueChanged();
+
+        if (!invalid && score == renderedScore && seconds == renderedSeconds && !queueChanged
+                && spawnVisible == renderedSpawnVisible && (!spawnVisible || spawnTenths == renderedSpawnTenths)) {
+            target.image(layer, x, y);
+            return;
+        }
+
+        layer.beginDraw();
+        if (invalid) {
+            layer.background(BACKGROUND);
+        }
+        if (queueChanged) {
+            renderQueue();
+        }
+        if (invalid || spawnVisible != renderedSpawnVisible || (spawnVisible && spawnTenths != renderedSpawnTenths)) {
+            renderSpawnTimer(spawnVisible, spawnTenths);
+        }
+        if (invalid || score != renderedScore) {
+            scoreText = "Score: " + score;
+            renderText(scoreText, SCORE_Y);
+            renderedScore = score;
+        }
+        if (invalid || seconds != renderedSeconds) {
+            timeText = "Time: " + seconds + "s";
+            renderText(timeText, TIME_Y);
+            renderedSeconds = seconds;
+        }
+        layer.endDraw();
+        invalid = false;
+
+        target.image(layer, x, y);
+    }
+
+    /**
+     * Checks whether the visible window of the spawn queue differs from what was last rendered.
+     * Only the first {@link #MAX_VISIBLE_BALLS} entries are ever compared.
+     *
+     * @return true if the queue strip needs to be redrawn
+     */
+    private boolean hasQueueChanged() {
+        if (app.getQueueOffset() != renderedOffset || app.isQueueShifting() != renderedShifting) {
+            return true;
+        }
+        List<String> queue = app.ballSpawnQueue;
+        int count = Math.min(queue.size(), MAX_VISIBLE_BALLS);
+        if (count != renderedQueueCount) {
+            return true;
+        }
+        for (int i = 0; i < count; i++) {
+            String color = queue.get(i);
+            if (color != renderedQueue[i] && !color.equals(renderedQueue[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Redraws the black queue strip with the balls that are currently inside it.
+     * The leftmost ball is hidden while the queue slides towards the spawner.
+     */
+    private void renderQueue() {
+        List<String> queue = app.ballSpawnQueue;
+        int offset = app.getQueueOffset();
+        boolean shifting = app.isQueueShifting();
+        int count = Math.min(queue.size(), MAX_VISIBLE_BALLS);
+
+        layer.noStroke();
+        layer.fill(BACKGROUND);
+        layer.rect(QUEUE_LEFT - 1, QUEUE_TOP - 1, QUEUE_WIDTH + 2, QUEUE_HEIGHT + 2);
+        layer.stroke(0);
+        layer.fill(0);
+        layer.rect(QUEUE_LEFT, QUEUE_TOP, QUEUE_WIDTH, QUEUE_HEIGHT);
+        layer.clip(QUEUE_LEFT, QUEUE_TOP, QUEUE_WIDTH, QUEUE_HEIGHT);
+
+        for (int i = 0; i < count; i++) {
+            String color = queue.get(i);
+            if (color != renderedQueue[i]) {
+                renderedQueue[i] = color;
+                queueColors[i] = Spawner.colorIndexOf(color);
+            }
+            int xPos = BALL_X + i * BALL_SPACING - (shifting ? offset : 0);
+            if ((i == 0 && shifting) || xPos >= QUEUE_LEFT + QUEUE_WIDTH) {
+                continue;
+            }
+            PImage sprite = getBallSprite(queueColors[i]);
+            if (sprite != null) {
+                layer.image(sprite, xPos, BALL_Y, BALL_SIZE, BALL_SIZE);
+            }
+        }
+        layer.noClip();
+
+        renderedQueueCount = count;
+        renderedOffset = offset;
+        renderedShifting = shifting;
+    }
+
+    /**
+     * Redraws the countdown until the next ball spawns, next to the queue strip.
+     *
+     * @param visible whether the countdown should be shown at all
+     * @param tenths the remaining spawn time in tenths of a second
+     */
+    private void renderSpawnTimer(boolean visible, int tenths) {
+        layer.noStroke();
+        layer.fill(BACKGROUND);
+        layer.rect(SPAWN_TIMER_X, QUEUE_TOP, SPAWN_TIMER_WIDTH, QUEUE_HEIGHT);
+        if (visible) {
+            spawnText = formatTenths(tenths);
+            layer.fill(0);
+            layer.textSize(20);
+            layer.textAlign(PApplet.LEFT, PApplet.CENTER);
+            layer.text(spawnText, SPAWN_TIMER_X, QUEUE_TOP + QUEUE_HEIGHT / 2);
+        }
+        renderedSpawnVisible = visible;
+        renderedSpawnTenths = tenths;
+    }
+
+    /**
+     * Redraws one right-aligned row of text (score or time) in the top-right corner.
+     *
+     * @param text the text to draw
+     * @param rowY the y-coordinate of the top of the row
+     */
+    private void renderText(String text, int rowY) {
+        layer.noStroke();
+        layer.fill(BACKGROUND);
+        layer.rect(SCORE_RIGHT - TEXT_REGION_WIDTH, rowY, TEXT_REGION_WIDTH + 10, TEXT_ROW_HEIGHT);
+        layer.fill(0);
+        layer.textSize(20);
+        layer.textAlign(PApplet.RIGHT, PApplet.TOP);
+        layer.text(text, SCORE_RIGHT, rowY);
+    }
+
+    /**
+     * Looks up the sprite of a ball color once and caches it for later frames.
+     *
+     * @param colorIndex the color index of the ball
+     * @return the ball sprite, or null if it is not loaded
+     */
+    private PImage getBallSprite(int colorIndex) {
+        if (ballSprites[colorIndex] == null) {
+            ballSprites[colorIndex] = app.getSprite("ball" + colorIndex);
+        }
+        return ballSprites[colorIndex];
+    }
+
+    /**
+     * Formats a number of tenths as a one decimal string, e.g. 57 becomes "5.7".
+     *
+     * @param tenths the value in tenths
+     * @return the formatted value
+     */
+    static String formatTenths(int tenths) {
+        String sign = tenths < 0 ? "-" : "";
+        int abs = Math.abs(tenths);
+        return sign + (abs / 10) + "." + (abs % 10);
+    }
+}
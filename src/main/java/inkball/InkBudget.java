@@ -0,0 +1,73 @@
+package inkball;
+
+/**
+ * Limits the total length of line the player can have on the board at once.
+ * Drawing a segment takes ink from the budget and removing a squiggle gives its ink back,
+ * which bounds the number of segments balls are tested against and drawn each frame.
+ */
+public class InkBudget {
+    public static final float DEFAULT_CAPACITY = 10000; // Pixels of line, a little over 17 board widths
+    private static final float MIN_STROKE = 1; // Less ink than this cannot start a new squiggle
+
+    private final float capacity;
+    private float used = 0;
+
+    /**
+     * Constructs a full {@code InkBudget}.
+     *
+     * @param capacity the total length of line, in pixels, that may be on the board at once
+     */
+    public InkBudget(float capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Takes up to the requested amount of ink.
+     *
+     * @param length the length of line to draw, in pixels
+     * @return the length that may actually be drawn, which is less than requested if the
+     *         budget is running out
+     */
+    public float take(float length) {
+        float granted = Math.min(length, getRemaining());
+        used += granted;
+        return granted;
+    }
+
+    /**
+     * Gives ink back to the budget, e.g. when a squiggle is removed.
+     *
+     * @param length the length of line that was removed, in pixels
+     */
+    public void release(float length) {
+        used = Math.max(0, used - length);
+    }
+
+    /**
+     * Creates a budget with the same capacity and the same ink in use.
+     *
+     * @return the copy
+     */
+    public InkBudget copy() {
+        InkBudget copy = new InkBudget(capacity);
+        copy.used = used;
+        return copy;
+    }
+
+    public float getCapacity() {
+        return capacity;
+    }
+
+    public float getRemaining() {
+        return Math.max(0, capacity - used);
+    }
+
+    /**
+     * Checks whether there is too little ink left to start drawing a new squiggle.
+     *
+     * @return true if the budget is used up
+     */
+    public boolean isExhausted() {
+        return getRemaining() < MIN_STROKE;
+    }
+}
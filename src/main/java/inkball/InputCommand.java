@@ -0,0 +1,98 @@
+package inkball;
+
+/**
+ * An immutable record of one input event, taken when the event arrives and applied to the
+ * game later, at the start of a simulation step. Mouse positions are window coordinates;
+ * they are converted to board coordinates when the command is applied, so that any scrolling
+ * queued before the command has already taken effect.
+ */
+public final class InputCommand {
+    /**
+     * The kinds of input the game responds to.
+     */
+    public enum Type {
+        MOUSE_PRESSED,
+        MOUSE_DRAGGED,
+        MOUSE_RELEASED,
+        KEY_PRESSED
+    }
+
+    private final Type type;
+    private final long time; // System.nanoTime() when the event arrived
+    private final float x, y;
+    private final int button;
+    private final char key;
+    private final int keyCode;
+
+    private InputCommand(Type type, long time, float x, float y, int button, char key, int keyCode) {
+        this.type = type;
+        this.time = time;
+        this.x = x;
+        this.y = y;
+        this.button = button;
+        this.key = key;
+        this.keyCode = keyCode;
+    }
+
+    /**
+     * Creates a mouse command.
+     *
+     * @param type one of the mouse command types
+     * @param time the time the event arrived, from {@link System#nanoTime()}
+     * @param x the x-coordinate of the mouse in the window
+     * @param y the y-coordinate of the mouse in the window
+     * @param button the mouse button, e.g. {@link processing.core.PConstants#LEFT}
+     * @return the command
+     */
+    public static InputCommand mouse(Type type, long time, float x, float y, int button) {
+        return new InputCommand(type, time, x, y, button, (char) 0, 0);
+    }
+
+    /**
+     * Creates a key press command.
+     *
+     * @param time the time the event arrived, from {@link System#nanoTime()}
+     * @param key the key character, or {@link processing.core.PConstants#CODED} for special keys
+     * @param keyCode the key code of special keys such as the arrow keys
+     * @return the command
+     */
+    public static InputCommand key(long time, char key, int keyCode) {
+        return new InputCommand(Type.KEY_PRESSED, time, 0, 0, 0, key, keyCode);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public int getButton() {
+        return button;
+    }
+
+    public char getKey() {
+        return key;
+    }
+
+    public int getKeyCode() {
+        return keyCode;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.KEY_PRESSED) {
+            return time + " " + type + " " + (int) key + " " + keyCode;
+        }
+        return time + " " + type + " " + x + " " + y + " " + button;
+    }
+}
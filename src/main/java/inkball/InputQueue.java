@@ -0,0 +1,93 @@
+package inkball;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue of {@link InputCommand}s with exactly one producer thread (the one
+ * delivering input events) and one consumer thread (the one running the simulation).
+ * Each side only ever writes its own index, so no locks or compare-and-set loops are needed:
+ * the producer publishes a command by advancing the tail after storing it, and the consumer
+ * frees a slot by advancing the head after reading it.
+ */
+public final class InputQueue {
+    private final InputCommand[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot to read, written only by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, written only by the producer
+    private final AtomicLong dropped = new AtomicLong(); // Commands rejected because the queue was full
+
+    /**
+     * Constructs an empty {@code InputQueue}.
+     *
+     * @param capacity the maximum number of queued commands, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        buffer = new InputCommand[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds a command to the queue. Must only be called from the producer thread.
+     *
+     * @param command the command to add
+     * @return false if the queue was full and the command was dropped
+     */
+    public boolean offer(InputCommand command) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        buffer[(int) (t & mask)] = command;
+        tail.lazySet(t + 1); // Publishes the stored command to the consumer
+        return true;
+    }
+
+    /**
+     * Removes the oldest command. Must only be called from the consumer thread.
+     *
+     * @return the oldest command, or null if the queue is empty
+     */
+    public InputCommand poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int index = (int) (h & mask);
+        InputCommand command = buffer[index];
+        buffer[index] = null;
+        head.lazySet(h + 1); // Hands the slot back to the producer
+        return command;
+    }
+
+    /**
+     * Removes every queued command, in order. Must only be called from the consumer thread.
+     * Commands offered while draining are left for the next call.
+     *
+     * @param consumer receives each command
+     * @return the number of commands drained
+     */
+    public int drain(Consumer<InputCommand> consumer) {
+        long end = tail.get();
+        int count = 0;
+        for (long h = head.get(); h < end; h++) {
+            int index = (int) (h & mask);
+            InputCommand command = buffer[index];
+            buffer[index] = null;
+            head.lazySet(h + 1);
+            consumer.accept(command);
+            count++;
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
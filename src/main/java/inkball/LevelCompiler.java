@@ -0,0 +1,214 @@
+package inkball;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts level layouts from the text format ({@code levelN.txt}) into {@link LevelData},
+ * and writes them out in the compact binary format read by {@link LevelLoader}.
+ *
+ * <p>The binary format (big-endian) is:
+ * <pre>
+ * int   magic ("INKL")
+ * short version
+ * short width, height
+ * byte  tiles[height * width]      row by row, one character per tile
+ * short holeCount,      then (short x, short y, byte color) per hole
+ * short ballCount,      then (short x, short y, byte color) per initial ball
+ * short spawnerCount,   then (short x, short y) per spawner
+ * short timedTileCount, then (short x, short y) per timed tile
+ * </pre>
+ */
+public final class LevelCompiler {
+    static final int MAGIC = 0x494E4B4C; // "INKL"
+    static final short VERSION = 1;
+    public static final String EXTENSION = ".inkl";
+
+    private LevelCompiler() {
+    }
+
+    /**
+     * Parses a text layout. The board is as wide as its longest line; shorter lines are padded
+     * with empty tiles. {@code H<n>} and {@code B<n>} pairs become holes and initial balls, and
+     * the cell holding the color digit is stored as an empty tile.
+     *
+     * @param lines the lines of the layout file
+     * @return the decoded level
+     * @throws IllegalArgumentException if a hole or ball is missing its color digit
+     */
+    public static LevelData parse(List<String> lines) {
+        int height = lines.size();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, line.length());
+        }
+
+        char[][] tiles = new char[height][width];
+        IntList holes = new IntList();
+        IntList balls = new IntList();
+        IntList spawners = new IntList();
+        IntList timedTiles = new IntList();
+
+        for (int row = 0; row < height; row++) {
+            String line = lines.get(row);
+            Arrays.fill(tiles[row], ' ');
+            for (int col = 0; col < line.length(); col++) {
+                char tileChar = line.charAt(col);
+                tiles[row][col] = tileChar;
+
+                if (tileChar == 'T') {
+                    timedTiles.add(col, row);
+                } else if (tileChar == 'H' || tileChar == 'B') {
+                    if (col + 1 >= line.length() || !Character.isDigit(line.charAt(col + 1))) {
+                        throw new IllegalArgumentException("'" + tileChar + "' at row " + row + ", column " + col
+                                + " must be followed by a color digit");
+                    }
+                    int color = Character.getNumericValue(line.charAt(col + 1)); // e.g., H1 means hole1
+                    if (tileChar == 'H') {
+                        holes.add(col, row, color);
+                    } else {
+                        balls.add(col, row, color);
+                    }
+                    col++; // Skip the color number character, leaving an empty tile
+                } else if (tileChar == 'S') {
+                    spawners.add(col, row);
+                }
+            }
+        }
+        return new LevelData(width, height, tiles, holes.toArray(), balls.toArray(),
+                spawners.toArray(), timedTiles.toArray());
+    }
+
+    /**
+     * Encodes a level into the binary format.
+     *
+     * @param level the level to encode
+     * @return a buffer holding the encoded level, positioned at 0
+     * @throws IllegalArgumentException if the level is too large for the format's 16-bit sizes
+     *         and counts, or has a tile that does not fit in a byte
+     */
+    public static ByteBuffer encode(LevelData level) {
+        checkRange(level.getWidth(), "width");
+        checkRange(level.getHeight(), "height");
+        checkRange(level.getHoleCount(), "hole count");
+        checkRange(level.getBallCount(), "ball count");
+        checkRange(level.getSpawnerCount(), "spawner count");
+        checkRange(level.getTimedTileCount(), "timed tile count");
+        int size = 4 + 2 + 2 + 2 + level.getWidth() * level.getHeight()
+                + 2 + level.getHoleCount() * 5
+                + 2 + level.getBallCount() * 5
+                + 2 + level.getSpawnerCount() * 4
+                + 2 + level.getTimedTileCount() * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) level.getWidth());
+        buffer.putShort((short) level.getHeight());
+        for (int row = 0; row < level.getHeight(); row++) {
+            for (int col = 0; col < level.getWidth(); col++) {
+                char tile = level.getTile(row, col);
+                if (tile > 0xFF) {
+                    throw new IllegalArgumentException("Tile '" + tile + "' at row " + row + ", column " + col
+                            + " does not fit the compiled format");
+                }
+                buffer.put((byte) tile);
+            }
+        }
+
+        buffer.putShort((short) level.getHoleCount());
+        for (int i = 0; i < level.getHoleCount(); i++) {
+            buffer.putShort((short) level.getHoleX(i));
+            buffer.putShort((short) level.getHoleY(i));
+            buffer.put((byte) level.getHoleColor(i));
+        }
+        buffer.putShort((short) level.getBallCount());
+        for (int i = 0; i < level.getBallCount(); i++) {
+            buffer.putShort((short) level.getBallX(i));
+            buffer.putShort((short) level.getBallY(i));
+            buffer.put((byte) level.getBallColor(i));
+        }
+        buffer.putShort((short) level.getSpawnerCount());
+        for (int i = 0; i < level.getSpawnerCount(); i++) {
+            buffer.putShort((short) level.getSpawnerX(i));
+            buffer.putShort((short) level.getSpawnerY(i));
+        }
+        buffer.putShort((short) level.getTimedTileCount());
+        for (int i = 0; i < level.getTimedTileCount(); i++) {
+            buffer.putShort((short) level.getTimedTileX(i));
+            buffer.putShort((short) level.getTimedTileY(i));
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void checkRange(int value, String what) {
+        if (value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Level " + what + " " + value + " exceeds the compiled format's limit of "
+                    + Short.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Compiles a text layout file into a binary level file.
+     *
+     * @param source the text layout
+     * @param target the binary file to create or overwrite
+     * @throws IOException if either file cannot be accessed
+     */
+    public static void compile(Path source, Path target) throws IOException {
+        LevelData level = parse(Files.readAllLines(source, StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = encode(level);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Compiles every layout given on the command line to a {@code .inkl} file next to it,
+     * e.g. {@code level1.txt} becomes {@code level1.inkl}.
+     *
+     * @param args paths of text layout files
+     * @throws IOException if a file cannot be compiled
+     */
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Path source = Paths.get(arg);
+            Path target = Paths.get(LevelLoader.compiledPathFor(arg));
+            compile(source, target);
+            System.out.println("Compiled " + source + " -> " + target);
+        }
+    }
+
+    /**
+     * Minimal growable int array used while scanning a layout.
+     */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int... entry) {
+            if (size + entry.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + entry.length));
+            }
+            System.arraycopy(entry, 0, values, size, entry.length);
+            size += entry.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
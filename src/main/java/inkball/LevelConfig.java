@@ -0,0 +1,163 @@
+package inkball;
+
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+import java.util.*;
+
+/**
+ * Immutable settings of a single level as read from the {@code levels} array of the config.
+ * Score changes are pre-multiplied by the level's modifiers into tables indexed by color index,
+ * so a capture costs a single array lookup.
+ */
+public final class LevelConfig {
+    private final String layout;
+    private final int time; // Level duration in seconds
+    private final int spawnInterval; // Seconds between spawns
+    private final double scoreIncreaseModifier;
+    private final double scoreDecreaseModifier;
+    private final List<String> balls;
+    private final float strokeTolerance; // Pixels squiggles may deviate from the drawn points
+    private final float inkBudget; // Total length of line, in pixels, allowed on the board at once
+    private final int[] baseIncrease; // Color index : config-wide points before the modifier, shared
+    private final int[] baseDecrease;
+    private final int[] scoreIncrease; // Color index : points gained on a correct capture
+    private final int[] scoreDecrease; // Color index : points lost on a wrong capture
+
+    /**
+     * Constructs a {@code LevelConfig} from its JSON object and the config-wide base score tables.
+     *
+     * @param json the level object from the {@code levels} array
+     * @param baseIncrease the base score increase per color index
+     * @param baseDecrease the base score decrease per color index
+     */
+    LevelConfig(JSONObject json, int[] baseIncrease, int[] baseDecrease) {
+        this.layout = json.getString("layout");
+        this.time = json.getInt("time");
+        this.spawnInterval = json.getInt("spawn_interval");
+        this.scoreIncreaseModifier = json.getDouble("score_increase_from_hole_capture_modifier");
+        this.scoreDecreaseModifier = json.getDouble("score_decrease_from_wrong_hole_modifier");
+
+        JSONArray ballColors = json.getJSONArray("balls");
+        List<String> colors = new ArrayList<>(ballColors.size());
+        for (int i = 0; i < ballColors.size(); i++) {
+            colors.add(ballColors.getString(i));
+        }
+        this.balls = Collections.unmodifiableList(colors);
+        this.strokeTolerance = json.getFloat("stroke_tolerance", Squiggle.DEFAULT_TOLERANCE);
+        this.inkBudget = json.getFloat("ink_budget", InkBudget.DEFAULT_CAPACITY);
+
+        this.baseIncrease = baseIncrease;
+        this.baseDecrease = baseDecrease;
+        this.scoreIncrease = scale(baseIncrease, scoreIncreaseModifier);
+        this.scoreDecrease = scale(baseDecrease, scoreDecreaseModifier);
+    }
+
+    private LevelConfig(LevelConfig source, String layout, List<String> balls, int time, int spawnInterval,
+                        double scoreIncreaseModifier, double scoreDecreaseModifier) {
+        this.layout = layout;
+        this.time = time;
+        this.spawnInterval = spawnInterval;
+        this.scoreIncreaseModifier = scoreIncreaseModifier;
+        this.scoreDecreaseModifier = scoreDecreaseModifier;
+        this.balls = balls;
+        this.strokeTolerance = source.strokeTolerance;
+        this.inkBudget = source.inkBudget;
+        this.baseIncrease = source.baseIncrease;
+        this.baseDecrease = source.baseDecrease;
+        this.scoreIncrease = scale(baseIncrease, scoreIncreaseModifier);
+        this.scoreDecrease = scale(baseDecrease, scoreDecreaseModifier);
+    }
+
+    private static int[] scale(int[] base, double modifier) {
+        int[] scaled = new int[base.length];
+        for (int i = 0; i < base.length; i++) {
+            scaled[i] = (int) (base[i] * modifier);
+        }
+        return scaled;
+    }
+
+    /**
+     * Returns a copy of these settings with a different pace and different score modifiers,
+     * e.g. to try out changes to a level without editing the config.
+     *
+     * @param time the level duration in seconds
+     * @param spawnInterval the seconds between spawns
+     * @param scoreIncreaseModifier the multiplier of the points gained on a correct capture
+     * @param scoreDecreaseModifier the multiplier of the points lost on a wrong capture
+     * @return the new settings
+     */
+    public LevelConfig withTuning(int time, int spawnInterval, double scoreIncreaseModifier,
+                                  double scoreDecreaseModifier) {
+        return new LevelConfig(this, layout, balls, time, spawnInterval, scoreIncreaseModifier, scoreDecreaseModifier);
+    }
+
+    /**
+     * Returns a copy of these settings for another layout and queue of balls, e.g. for a
+     * generated level played at the pace of this one.
+     *
+     * @param layout the name of the layout
+     * @param balls the colors of the balls queued at the start of the level
+     * @return the new settings
+     */
+    public LevelConfig withLayout(String layout, List<String> balls) {
+        return new LevelConfig(this, layout, Collections.unmodifiableList(new ArrayList<>(balls)), time, spawnInterval,
+                scoreIncreaseModifier, scoreDecreaseModifier);
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public int getTime() {
+        return time;
+    }
+
+    public int getSpawnInterval() {
+        return spawnInterval;
+    }
+
+    public float getStrokeTolerance() {
+        return strokeTolerance;
+    }
+
+    public float getInkBudget() {
+        return inkBudget;
+    }
+
+    public double getScoreIncreaseModifier() {
+        return scoreIncreaseModifier;
+    }
+
+    public double getScoreDecreaseModifier() {
+        return scoreDecreaseModifier;
+    }
+
+    /**
+     * Returns the colors of the balls queued at the start of the level.
+     *
+     * @return an unmodifiable list of color names
+     */
+    public List<String> getBalls() {
+        return balls;
+    }
+
+    /**
+     * Returns the points gained when a ball of the given color is captured by a matching hole.
+     *
+     * @param colorIndex the color index of the ball
+     * @return the score increase, already scaled by the level's modifier
+     */
+    public int getScoreIncrease(int colorIndex) {
+        return scoreIncrease[colorIndex];
+    }
+
+    /**
+     * Returns the points lost when a ball of the given color is captured by a wrong hole.
+     *
+     * @param colorIndex the color index of the ball
+     * @return the score decrease, already scaled by the level's modifier
+     */
+    public int getScoreDecrease(int colorIndex) {
+        return scoreDecrease[colorIndex];
+    }
+}
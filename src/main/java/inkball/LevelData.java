@@ -0,0 +1,126 @@
+package inkball;
+
+/**
+ * Immutable, decoded form of a level layout.
+ * Holds the tile grid along with tables of the holes, initial balls, spawners and
+ * timed tiles found in it, so a level can be rebuilt without scanning the grid again.
+ * Entity tables are flat arrays: entry {@code i} of a table with stride {@code n}
+ * occupies indices {@code i * n} to {@code i * n + n - 1}.
+ */
+public final class LevelData {
+    static final int HOLE_STRIDE = 3; // x, y, color
+    static final int BALL_STRIDE = 3; // x, y, color
+    static final int SPAWNER_STRIDE = 2; // x, y
+    static final int TIMED_TILE_STRIDE = 2; // x, y
+
+    private final int width;
+    private final int height;
+    private final char[][] tiles;
+    private final int[] holes;
+    private final int[] balls;
+    private final int[] spawners;
+    private final int[] timedTiles;
+
+    /**
+     * Constructs a {@code LevelData}. The arrays are owned by the new instance and must not
+     * be modified afterwards.
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param tiles the tile characters, indexed by row then column
+     * @param holes the hole table
+     * @param balls the initial ball table
+     * @param spawners the spawner table
+     * @param timedTiles the timed tile table
+     */
+    LevelData(int width, int height, char[][] tiles, int[] holes, int[] balls, int[] spawners, int[] timedTiles) {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+        this.holes = holes;
+        this.balls = balls;
+        this.spawners = spawners;
+        this.timedTiles = timedTiles;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public char getTile(int row, int col) {
+        return tiles[row][col];
+    }
+
+    /**
+     * Returns a copy of the tile grid that the caller is free to modify.
+     *
+     * @return the tile characters, indexed by row then column
+     */
+    public char[][] copyTiles() {
+        char[][] copy = new char[height][];
+        for (int row = 0; row < height; row++) {
+            copy[row] = tiles[row].clone();
+        }
+        return copy;
+    }
+
+    public int getHoleCount() {
+        return holes.length / HOLE_STRIDE;
+    }
+
+    public int getHoleX(int i) {
+        return holes[i * HOLE_STRIDE];
+    }
+
+    public int getHoleY(int i) {
+        return holes[i * HOLE_STRIDE + 1];
+    }
+
+    public int getHoleColor(int i) {
+        return holes[i * HOLE_STRIDE + 2];
+    }
+
+    public int getBallCount() {
+        return balls.length / BALL_STRIDE;
+    }
+
+    public int getBallX(int i) {
+        return balls[i * BALL_STRIDE];
+    }
+
+    public int getBallY(int i) {
+        return balls[i * BALL_STRIDE + 1];
+    }
+
+    public int getBallColor(int i) {
+        return balls[i * BALL_STRIDE + 2];
+    }
+
+    public int getSpawnerCount() {
+        return spawners.length / SPAWNER_STRIDE;
+    }
+
+    public int getSpawnerX(int i) {
+        return spawners[i * SPAWNER_STRIDE];
+    }
+
+    public int getSpawnerY(int i) {
+        return spawners[i * SPAWNER_STRIDE + 1];
+    }
+
+    public int getTimedTileCount() {
+        return timedTiles.length / TIMED_TILE_STRIDE;
+    }
+
+    public int getTimedTileX(int i) {
+        return timedTiles[i * TIMED_TILE_STRIDE];
+    }
+
+    public int getTimedTileY(int i) {
+        return timedTiles[i * TIMED_TILE_STRIDE + 1];
+    }
+}
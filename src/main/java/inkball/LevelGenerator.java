@@ -0,0 +1,390 @@
+package inkball;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates new playable layouts in the text format ({@code X}, {@code 1}-{@code 4}, {@code T},
+ * {@code S}, {@code H<n>}, {@code B<n>}). Candidates are drawn at random: a walled board with
+ * short runs of plain and colored walls, a few timed tiles, holes, spawners and balls. Each is
+ * kept only if it passes {@link #validate(List)}, which flood-fills the open tiles to check that
+ * every spawner can reach every hole and that no part of the board is sealed off.
+ *
+ * <p>Level {@code n} of a seed is always the same layout, however many threads generate it:
+ * candidates are drawn from seeds derived from the seed, the level and the attempt, and many
+ * levels are generated and validated in parallel, one thread per level.
+ */
+public final class LevelGenerator {
+    public static final int COLUMNS = 18; // The size of the shipped boards
+    public static final int ROWS = 18;
+    static final int MAX_ATTEMPTS = 1000; // Candidates per level before giving up
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final int MIN_WALL_RUNS = 4;
+    private static final int MAX_WALL_RUNS = 9;
+    private static final int MAX_WALL_RUN = 6; // Tiles
+    private static final double COLORED_WALLS = 0.3; // Share of wall runs given a color
+
+    private LevelGenerator() {
+    }
+
+    /**
+     * A generated layout that passed validation.
+     */
+    public static final class Level {
+        private final int index;
+        private final int attempts;
+        private final List<String> lines;
+        private final LevelData data;
+
+        Level(int index, int attempts, List<String> lines, LevelData data) {
+            this.index = index;
+            this.attempts = attempts;
+            this.lines = lines;
+            this.data = data;
+        }
+
+        /**
+         * Returns the level's number within its seed.
+         *
+         * @return the index, from 0
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the number of candidates drawn to find this level, including itself.
+         *
+         * @return the attempts
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * Returns the layout in the text format.
+         *
+         * @return the lines of the layout
+         */
+        public List<String> getLines() {
+            return lines;
+        }
+
+        /**
+         * Returns the parsed layout.
+         *
+         * @return the level data
+         */
+        public LevelData getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Generates one level of a seed, drawing candidates until one is valid.
+     *
+     * @param seed the seed of the sequence of levels
+     * @param index the level's number within the sequence
+     * @return the level
+     * @throws IllegalStateException if no valid candidate was found
+     */
+    public static Level generate(long seed, int index) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<String> lines = candidate(new Random(seed + SEED_GAMMA * ((long) index * MAX_ATTEMPTS + attempt)));
+            if (validate(lines) == null) {
+                return new Level(index, attempt + 1, lines, LevelCompiler.parse(lines));
+            }
+        }
+        throw new IllegalStateException("No valid level " + index + " in " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * Generates a run of levels of a seed on a pool of threads.
+     *
+     * @param seed the seed of the sequence of levels
+     * @param first the number of the first level
+     * @param count the number of levels
+     * @param threads the number of threads
+     * @return the levels, in order
+     * @throws ExecutionException if a level could not be generated
+     * @throws InterruptedException if interrupted while waiting for levels
+     */
+    public static List<Level> generate(long seed, int first, int count, int threads)
+            throws ExecutionException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Level>> futures = new ArrayList<>(count);
+            for (int i = first; i < first + count; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> generate(seed, index)));
+            }
+            List<Level> levels = new ArrayList<>(count);
+            for (Future<Level> future : futures) {
+                levels.add(future.get());
+            }
+            return levels;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Draws a random candidate layout, which may not be valid.
+     *
+     * @param random the source of the layout
+     * @return the lines of the layout
+     */
+    static List<String> candidate(Random random) {
+        char[][] tiles = new char[ROWS][COLUMNS];
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                boolean edge = row == 0 || col == 0 || row == ROWS - 1 || col == COLUMNS - 1;
+                tiles[row][col] = edge ? 'X' : ' ';
+            }
+        }
+
+        // Colored stretches of the border, as on the shipped boards
+        for (int i = random.nextInt(3); i > 0; i--) {
+            char color = Character.forDigit(1 + random.nextInt(4), 10);
+            int start = 2 + random.nextInt(COLUMNS - 8);
+            int row = random.nextBoolean() ? 0 : ROWS - 1;
+            for (int col = start; col < start + 4; col++) {
+                tiles[row][col] = color;
+            }
+        }
+
+        int runs = MIN_WALL_RUNS + random.nextInt(MAX_WALL_RUNS - MIN_WALL_RUNS + 1);
+        for (int i = 0; i < runs; i++) {
+            char wall = random.nextDouble() < COLORED_WALLS ? Character.forDigit(1 + random.nextInt(4), 10) : 'X';
+            run(tiles, random, wall, 2 + random.nextInt(MAX_WALL_RUN - 1));
+        }
+        for (int i = random.nextInt(3); i > 0; i--) {
+            run(tiles, random, 'T', 1 + random.nextInt(4));
+        }
+
+        // Holes of different colors, then spawners and balls, on open tiles
+        List<Integer> colors = new ArrayList<>();
+        for (int color = 0; color < GameConfig.COLOR_NAMES.length; color++) {
+            colors.add(color);
+        }
+        Collections.shuffle(colors, random);
+        int holes = 2 + random.nextInt(3);
+        for (int i = 0; i < holes; i++) {
+            place(tiles, random, 'H', Character.forDigit(colors.get(i), 10), 2);
+        }
+        for (int i = 1 + random.nextInt(2); i > 0; i--) {
+            place(tiles, random, 'S', ' ', 1);
+        }
+        for (int i = random.nextInt(3); i > 0; i--) {
+            place(tiles, random, 'B', Character.forDigit(random.nextInt(GameConfig.COLOR_NAMES.length), 10), 1);
+        }
+
+        List<String> lines = new ArrayList<>(ROWS);
+        for (char[] row : tiles) {
+            lines.add(new String(row));
+        }
+        return lines;
+    }
+
+    /**
+     * Lays a straight run of tiles across the inside of the board, over anything but the border.
+     */
+    private static void run(char[][] tiles, Random random, char tile, int length) {
+        boolean horizontal = random.nextBoolean();
+        int col = 1 + random.nextInt(COLUMNS - 2);
+        int row = 1 + random.nextInt(ROWS - 2);
+        for (int i = 0; i < length; i++) {
+            int c = horizontal ? col + i : col;
+            int r = horizontal ? row : row + i;
+            if (c < COLUMNS - 1 && r < ROWS - 1) {
+                tiles[r][c] = tile;
+            }
+        }
+    }
+
+    /**
+     * Places an entity on a random block of open tiles: a square of the given size, whose
+     * top-left tile holds the entity and the tile to its right its color digit, if any.
+     * Leaves the board unchanged if no open block is found after a few tries.
+     */
+    private static void place(char[][] tiles, Random random, char tile, char digit, int size) {
+        int width = Math.max(size, digit == ' ' ? 1 : 2);
+        for (int attempt = 0; attempt < 50; attempt++) {
+            int col = 1 + random.nextInt(COLUMNS - 1 - width);
+            int row = 1 + random.nextInt(ROWS - 1 - size);
+            if (isOpenBlock(tiles, col, row, width, size)) {
+                tiles[row][col] = tile;
+                if (digit != ' ') {
+                    tiles[row][col + 1] = digit;
+                }
+                return;
+            }
+        }
+    }
+
+    private static boolean isOpenBlock(char[][] tiles, int col, int row, int width, int height) {
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                if (tiles[r][c] != ' ') {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that a layout is playable:
+     * <ul>
+     * <li>it parses, so every hole and ball has a color digit on its line,</li>
+     * <li>it has at least one spawner and one hole,</li>
+     * <li>every hole's 2x2 block lies inside the board and is free of walls,</li>
+     * <li>the spawners, holes and balls all lie in one walled region, so every spawner reaches
+     * every hole, and balls cannot leave the board through a gap in its border, and</li>
+     * <li>no other region is sealed off inside the walls.</li>
+     * </ul>
+     * Open tiles outside the border, such as padding after a short line, are not sealed off.
+     * Timed tiles count as open, since they expire.
+     *
+     * @param lines the lines of the layout
+     * @return null if the layout is playable, otherwise why not
+     */
+    public static String validate(List<String> lines) {
+        LevelData level;
+        try {
+            level = LevelCompiler.parse(lines);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        int width = level.getWidth(), height = level.getHeight();
+        if (level.getSpawnerCount() == 0) {
+            return "No spawner";
+        }
+        if (level.getHoleCount() == 0) {
+            return "No hole";
+        }
+        for (int i = 0; i < level.getHoleCount(); i++) {
+            int x = level.getHoleX(i), y = level.getHoleY(i);
+            if (x + 1 >= width || y + 1 >= height) {
+                return "Hole at (" + x + ", " + y + ") is wedged against the edge";
+            }
+            if (isBlocked(level, x + 1, y) || isBlocked(level, x, y + 1) || isBlocked(level, x + 1, y + 1)) {
+                return "Hole at (" + x + ", " + y + ") overlaps a wall";
+            }
+        }
+
+        int spawnerX = level.getSpawnerX(0), spawnerY = level.getSpawnerY(0);
+        boolean[] reached = new boolean[width * height];
+        int[] queue = new int[width * height];
+        if (floodFill(level, reached, queue, spawnerX, spawnerY)) {
+            return "The border is open around the spawner at (" + spawnerX + ", " + spawnerY + ")";
+        }
+        String from = " cannot be reached from the spawner at (" + spawnerX + ", " + spawnerY + ")";
+        for (int i = 1; i < level.getSpawnerCount(); i++) {
+            if (!reached[level.getSpawnerY(i) * width + level.getSpawnerX(i)]) {
+                return "Spawner at (" + level.getSpawnerX(i) + ", " + level.getSpawnerY(i) + ")" + from;
+            }
+        }
+        for (int i = 0; i < level.getHoleCount(); i++) {
+            if (!reached[level.getHoleY(i) * width + level.getHoleX(i)]) {
+                return "Hole at (" + level.getHoleX(i) + ", " + level.getHoleY(i) + ")" + from;
+            }
+        }
+        for (int i = 0; i < level.getBallCount(); i++) {
+            if (!reached[level.getBallY(i) * width + level.getBallX(i)]) {
+                return "Ball at (" + level.getBallX(i) + ", " + level.getBallY(i) + ")" + from;
+            }
+        }
+
+        // Every other open region must reach the edge of the board, outside the walls
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (!isBlocked(level, col, row) && !reached[row * width + col]
+                        && !floodFill(level, reached, queue, col, row)) {
+                    return "Tile (" + col + ", " + row + ") is sealed off";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether a tile stops balls for good. Timed tiles do not, since they expire.
+     */
+    private static boolean isBlocked(LevelData level, int col, int row) {
+        char tile = level.getTile(row, col);
+        return tile == 'X' || (tile >= '1' && tile <= '4');
+    }
+
+    /**
+     * Marks every open tile reachable from a tile, moving up, down, left and right.
+     *
+     * @param reached whether each tile was reached, row by row, updated in place
+     * @param queue scratch space for one index per tile
+     * @return whether the region touches the edge of the board
+     */
+    private static boolean floodFill(LevelData level, boolean[] reached, int[] queue, int col, int row) {
+        int width = level.getWidth(), height = level.getHeight();
+        int head = 0, tail = 0;
+        boolean edge = false;
+        reached[row * width + col] = true;
+        queue[tail++] = row * width + col; // Each tile is queued at most once
+        while (head < tail) {
+            int tile = queue[head++];
+            int c = tile % width, r = tile / width;
+            edge |= c == 0 || r == 0 || c == width - 1 || r == height - 1;
+            for (int d = 0; d < 4; d++) {
+                int nc = c + (d == 0 ? 1 : d == 1 ? -1 : 0);
+                int nr = r + (d == 2 ? 1 : d == 3 ? -1 : 0);
+                if (nc >= 0 && nc < width && nr >= 0 && nr < height && !reached[nr * width + nc]
+                        && !isBlocked(level, nc, nr)) {
+                    reached[nr * width + nc] = true;
+                    queue[tail++] = nr * width + nc;
+                }
+            }
+        }
+        return edge;
+    }
+
+    /**
+     * Generates levels into a directory as {@code levelN.txt} files, e.g.
+     * {@code LevelGenerator 100 levels 42} writes {@code levels/level1.txt} to {@code levels/level100.txt}
+     * from seed 42.
+     *
+     * @param args the number of levels, the directory, and optionally the seed and number of threads
+     * @throws IOException if a layout cannot be written
+     * @throws ExecutionException if a level could not be generated
+     * @throws InterruptedException if interrupted while generating
+     */
+    public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        int count = Integer.parseInt(args[0]);
+        Path directory = Paths.get(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        List<Level> levels = generate(seed, 0, count, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Files.createDirectories(directory);
+        long attempts = 0;
+        for (Level level : levels) {
+            Files.write(directory.resolve("level" + (level.getIndex() + 1) + ".txt"), level.getLines(),
+                    StandardCharsets.UTF_8);
+            attempts += level.getAttempts();
+        }
+        System.out.println(String.format("Generated %d levels from %d candidates in %.2f s: %.0f levels/s", count,
+                attempts, seconds, count / seconds));
+    }
+}
@@ -0,0 +1,171 @@
+package inkball;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads level layouts, preferring the binary files produced by {@link LevelCompiler}.
+ * For a layout path such as {@code level1.txt}, a compiled {@code level1.inkl} next to it is
+ * memory-mapped when it is at least as new as the text file; otherwise the text is parsed.
+ * Decoded levels are cached per path, so restarting a level does not read it again.
+ */
+public final class LevelLoader {
+    private static final Map<String, LevelData> CACHE = new ConcurrentHashMap<>(); // Path : level
+
+    private LevelLoader() {
+    }
+
+    /**
+     * Returns the decoded level for a layout path, loading it only the first time.
+     *
+     * @param path the path of the layout, either a text layout or a compiled {@code .inkl} file
+     * @return the decoded level
+     */
+    public static LevelData load(String path) {
+        return CACHE.computeIfAbsent(path, p -> {
+            try {
+                return read(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load level " + p, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the path of the compiled file that belongs to a text layout.
+     *
+     * @param path the path of a text layout
+     * @return the same path with its extension replaced by {@link LevelCompiler#EXTENSION}
+     */
+    public static String compiledPathFor(String path) {
+        int dot = path.lastIndexOf('.');
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        String stem = dot > slash ? path.substring(0, dot) : path;
+        return stem + LevelCompiler.EXTENSION;
+    }
+
+    private static LevelData read(String path) throws IOException {
+        Path source = Paths.get(path);
+        if (path.endsWith(LevelCompiler.EXTENSION)) {
+            return readCompiled(source);
+        }
+        Path compiled = Paths.get(compiledPathFor(path));
+        if (Files.isRegularFile(compiled)
+                && Files.getLastModifiedTime(compiled).compareTo(Files.getLastModifiedTime(source)) >= 0) {
+            return readCompiled(compiled);
+        }
+        return LevelCompiler.parse(Files.readAllLines(source, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Memory-maps a compiled level file and decodes it.
+     *
+     * @param path the compiled level file
+     * @return the decoded level
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a valid compiled level, naming the file
+     */
+    public static LevelData readCompiled(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes a level from the binary format described in {@link LevelCompiler}.
+     *
+     * @param buffer the encoded level, starting at the buffer's position
+     * @return the decoded level
+     * @throws IllegalArgumentException if the buffer is not a supported compiled level, or is
+     *         truncated or corrupt
+     */
+    public static LevelData decode(ByteBuffer buffer) {
+        if (buffer.remaining() < 10 || buffer.getInt() != LevelCompiler.MAGIC) {
+            throw new IllegalArgumentException("Not a compiled Inkball level");
+        }
+        short version = buffer.getShort();
+        if (version != LevelCompiler.VERSION) {
+            throw new IllegalArgumentException("Unsupported compiled level version " + version);
+        }
+        int width = buffer.getShort();
+        int height = buffer.getShort();
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Corrupt compiled level: board size " + width + "x" + height);
+        }
+        require(buffer, width * height, "tiles");
+
+        char[][] tiles = new char[height][width];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                tiles[row][col] = (char) (buffer.get() & 0xFF);
+            }
+        }
+
+        int[] holes = readColored(buffer, width, height, LevelData.HOLE_STRIDE, "holes");
+        int[] balls = readColored(buffer, width, height, LevelData.BALL_STRIDE, "balls");
+        int[] spawners = readPairs(buffer, width, height, "spawners");
+        int[] timedTiles = readPairs(buffer, width, height, "timed tiles");
+        return new LevelData(width, height, tiles, holes, balls, spawners, timedTiles);
+    }
+
+    /**
+     * Reads a count and that many (x, y, color) entries, checking each lies on the board.
+     */
+    private static int[] readColored(ByteBuffer buffer, int width, int height, int stride, String what) {
+        int[] entries = new int[readCount(buffer, 5, what) * stride];
+        for (int i = 0; i < entries.length; i += stride) {
+            entries[i] = readCoordinate(buffer, width, what);
+            entries[i + 1] = readCoordinate(buffer, height, what);
+            entries[i + 2] = buffer.get();
+        }
+        return entries;
+    }
+
+    /**
+     * Reads a count and that many (x, y) entries, checking each lies on the board.
+     */
+    private static int[] readPairs(ByteBuffer buffer, int width, int height, String what) {
+        int[] pairs = new int[readCount(buffer, 4, what) * 2];
+        for (int i = 0; i < pairs.length; i += 2) {
+            pairs[i] = readCoordinate(buffer, width, what);
+            pairs[i + 1] = readCoordinate(buffer, height, what);
+        }
+        return pairs;
+    }
+
+    private static int readCount(ByteBuffer buffer, int entrySize, String what) {
+        require(buffer, 2, what);
+        int count = buffer.getShort();
+        if (count < 0) {
+            throw new IllegalArgumentException("Corrupt compiled level: " + count + " " + what);
+        }
+        require(buffer, count * entrySize, what);
+        return count;
+    }
+
+    private static int readCoordinate(ByteBuffer buffer, int size, String what) {
+        int coordinate = buffer.getShort();
+        if (coordinate < 0 || coordinate >= size) {
+            throw new IllegalArgumentException("Corrupt compiled level: " + what + " off the board at " + coordinate);
+        }
+        return coordinate;
+    }
+
+    private static void require(ByteBuffer buffer, int bytes, String what) {
+        if (buffer.remaining() < bytes) {
+            throw new IllegalArgumentException("Truncated compiled level: " + what + " need " + bytes
+                    + " bytes, " + buffer.remaining() + " left");
+        }
+    }
+}
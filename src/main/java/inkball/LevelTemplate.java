@@ -0,0 +1,173 @@
+package inkball;
+
+import processing.core.PImage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The immutable part of a level, built once per layout and shared by every game that plays it:
+ * the tile grid, the holes and spawners, the tables of initial balls and timed tiles, and the
+ * baked {@link WallField}. A game only keeps its own mutable state on top (balls, squiggles,
+ * timed tile fades and a copy-on-write fork of the wall field), so many concurrent games of the
+ * same level cost little more memory than one.
+ *
+ * <p>Templates are cached per layout path and sprite set; headless games, which have no sprites,
+ * share their own templates. A template can be {@link #prefetch prefetched} on a background
+ * thread, so the game thread finds it built when the level starts.
+ */
+public final class LevelTemplate {
+    private static final Map<Key, LevelTemplate> CACHE = new ConcurrentHashMap<>();
+
+    // Builds templates in the background for every game; low priority, so it never competes with drawing
+    static final ExecutorService BUILDERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), task -> {
+                Thread thread = new Thread(task, "level-builder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    private final LevelData level;
+    private final char[][] tiles; // Shared by every game, never modified
+    private final WallField walls; // Never modified; games play on forks of it
+    private final List<Hole> holes;
+    private final List<Spawner> spawners;
+
+    /**
+     * Cache key: a layout path and the identity of the sprites its tiles are drawn with.
+     */
+    private static final class Key {
+        private final String path;
+        private final SpriteRegistry sprites;
+
+        Key(String path, SpriteRegistry sprites) {
+            this.path = path;
+            this.sprites = sprites;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).path.equals(path) && ((Key) o).sprites == sprites;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() * 31 + System.identityHashCode(sprites);
+        }
+    }
+
+    private LevelTemplate(LevelData level, SpriteRegistry sprites) {
+        this.level = level;
+        this.tiles = level.copyTiles();
+        this.walls = new WallField(tiles);
+
+        List<Hole> holes = new ArrayList<>();
+        for (int i = 0; i < level.getHoleCount(); i++) {
+            int holeColor = level.getHoleColor(i); // e.g., H1 means hole1
+            holes.add(new Hole(level.getHoleX(i), level.getHoleY(i), holeColor, sprite(sprites, "hole" + holeColor)));
+        }
+        this.holes = Collections.unmodifiableList(holes);
+
+        List<Spawner> spawners = new ArrayList<>();
+        for (int i = 0; i < level.getSpawnerCount(); i++) {
+            spawners.add(new Spawner(null, level.getSpawnerX(i), level.getSpawnerY(i), sprite(sprites, "entrypoint")));
+        }
+        this.spawners = Collections.unmodifiableList(spawners);
+    }
+
+    /**
+     * Returns the template for a layout, building it only the first time.
+     *
+     * @param path the path of the layout, as accepted by {@link LevelLoader#load(String)}
+     * @param sprites the sprites to draw the holes and spawners with, or null for a headless game
+     * @return the shared template
+     */
+    public static LevelTemplate get(String path, SpriteRegistry sprites) {
+        return CACHE.computeIfAbsent(new Key(path, sprites), key -> new LevelTemplate(LevelLoader.load(path), sprites));
+    }
+
+    /**
+     * Starts building the template for a layout on a background thread, unless it is cached.
+     *
+     * @param path the path of the layout, as accepted by {@link LevelLoader#load(String)}
+     * @param sprites the sprites to draw the holes and spawners with, or null for a headless game
+     * @return the template, once built
+     */
+    public static CompletableFuture<LevelTemplate> prefetch(String path, SpriteRegistry sprites) {
+        LevelTemplate cached = CACHE.get(new Key(path, sprites));
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> get(path, sprites), BUILDERS);
+    }
+
+    /**
+     * Checks whether the template for a layout has been built.
+     *
+     * @param path the path of the layout
+     * @param sprites the sprites of the template, or null for a headless game
+     * @return true if it is cached
+     */
+    static boolean isCached(String path, SpriteRegistry sprites) {
+        return CACHE.containsKey(new Key(path, sprites));
+    }
+
+    /**
+     * Builds a template for a layout that has no file, such as a generated level. It is not
+     * cached, so it is collected once no game plays it.
+     *
+     * @param level the decoded layout
+     * @param sprites the sprites to draw the holes and spawners with, or null for a headless game
+     * @return the new template
+     */
+    public static LevelTemplate build(LevelData level, SpriteRegistry sprites) {
+        return new LevelTemplate(level, sprites);
+    }
+
+    private static PImage sprite(SpriteRegistry sprites, String name) {
+        return sprites == null ? null : sprites.get(name);
+    }
+
+    /**
+     * Returns the decoded layout, for the tables of initial balls and timed tiles.
+     *
+     * @return the level data
+     */
+    public LevelData getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the tile grid shared by every game of this level. It must not be modified.
+     *
+     * @return the tile characters, indexed by row then column
+     */
+    public char[][] getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Creates a game's own view of the walls. It shares the baked samples with the template until
+     * a wall is removed from it.
+     *
+     * @return a fork of the template's wall field
+     */
+    public WallField newWallField() {
+        return walls.fork();
+    }
+
+    public List<Hole> getHoles() {
+        return holes;
+    }
+
+    public List<Spawner> getSpawners() {
+        return spawners;
+    }
+}
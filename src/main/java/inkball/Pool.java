@@ -0,0 +1,145 @@
+package inkball;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps released game objects for reuse, so that spawning balls and drawing squiggles does not
+ * allocate once the pool has warmed up. Objects are handed out as they were released; callers
+ * reset them before use. Objects the pool did not create, such as ones built directly in tests,
+ * are ignored when released.
+ *
+ * <p>In debug mode (the {@code inkball.debug} system property) the pool remembers where every
+ * object it hands out was acquired, rejects objects released twice or never acquired, and
+ * {@link #checkLeaks(Collection)} reports objects that were dropped without being released.
+ *
+ * <p>A pool is not thread-safe; each game owns its own pools.
+ *
+ * @param <T> the type of object pooled
+ */
+public final class Pool<T> {
+    public static final boolean DEBUG = Boolean.getBoolean("inkball.debug");
+
+    private final Supplier<T> factory;
+    private final ArrayDeque<T> free = new ArrayDeque<>();
+    private final Set<T> owned = Collections.newSetFromMap(new IdentityHashMap<>()); // Everything created here
+    private final Map<T, Throwable> outstanding; // Acquisition sites, only tracked in debug mode
+    private int live = 0;
+
+    /**
+     * Constructs an empty {@code Pool}, in debug mode if the {@code inkball.debug} property is set.
+     *
+     * @param factory creates new objects when the pool is empty
+     */
+    public Pool(Supplier<T> factory) {
+        this(factory, DEBUG);
+    }
+
+    /**
+     * Constructs an empty {@code Pool}.
+     *
+     * @param factory creates new objects when the pool is empty
+     * @param debug whether to track outstanding objects for leak detection
+     */
+    public Pool(Supplier<T> factory, boolean debug) {
+        this.factory = factory;
+        this.outstanding = debug ? new IdentityHashMap<>() : null;
+    }
+
+    /**
+     * Takes an object from the pool, creating one if none are free.
+     *
+     * @return an object, in whatever state it was released in
+     */
+    public T acquire() {
+        T object = free.poll();
+        if (object == null) {
+            object = factory.get();
+            owned.add(object);
+        }
+        live++;
+        if (outstanding != null) {
+            outstanding.put(object, new Throwable("Acquired here"));
+        }
+        return object;
+    }
+
+    /**
+     * Returns an object to the pool. The caller must not use it afterwards.
+     *
+     * @param object the object to return
+     * @throws IllegalStateException in debug mode, if the object was created by this pool but is
+     *         not currently acquired
+     */
+    public void release(T object) {
+        if (!owned.contains(object)) {
+            return; // Not ours to reuse
+        }
+        if (outstanding != null && outstanding.remove(object) == null) {
+            throw new IllegalStateException("Released an object twice: " + object);
+        }
+        live--;
+        free.push(object);
+    }
+
+    /**
+     * Checks that every acquired object is still held by the caller. Only does anything in
+     * debug mode.
+     *
+     * @param held the acquired objects the caller still holds
+     * @throws IllegalStateException if objects were dropped without being released; the cause
+     *         is the acquisition site of one of them
+     */
+    public void checkLeaks(Collection<? extends T> held) {
+        if (outstanding == null || live <= 0) {
+            return;
+        }
+        Set<Object> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(held);
+        int leaked = 0;
+        Throwable site = null;
+        for (Map.Entry<T, Throwable> entry : outstanding.entrySet()) {
+            if (!kept.contains(entry.getKey())) {
+                leaked++;
+                site = entry.getValue();
+            }
+        }
+        if (leaked > 0) {
+            IllegalStateException leak = new IllegalStateException(leaked + " pooled object(s) leaked");
+            leak.initCause(site);
+            throw leak;
+        }
+    }
+
+    /**
+     * Returns the number of objects the pool has had to create.
+     *
+     * @return the count of objects created
+     */
+    public int getCreated() {
+        return owned.size();
+    }
+
+    /**
+     * Returns the number of objects currently acquired and not yet released.
+     *
+     * @return the count of live objects
+     */
+    public int getLive() {
+        return live;
+    }
+
+    /**
+     * Returns the number of objects waiting to be reused.
+     *
+     * @return the count of free objects
+     */
+    public int getFree() {
+        return free.size();
+    }
+}
@@ -0,0 +1,23 @@
+package inkball;
+
+/**
+ * A level ready to be swapped in: its settings resolved and its {@link LevelTemplate} built,
+ * typically on a background thread while the previous level is still being played.
+ */
+class PreparedLevel {
+    private final LevelTemplate template;
+    private final LevelConfig settings;
+
+    PreparedLevel(LevelTemplate template, LevelConfig settings) {
+        this.template = template;
+        this.settings = settings;
+    }
+
+    LevelTemplate getTemplate() {
+        return template;
+    }
+
+    LevelConfig getSettings() {
+        return settings;
+    }
+}
@@ -0,0 +1,89 @@
+package inkball;
+
+/**
+ * Counts what happened to the balls during the current level: spawns, captures into a matching
+ * hole per ball color, captures into the wrong hole, and balls sent back to the spawn queue.
+ * Read by the batch runner to summarise a run; the score itself is kept by {@link ScoreLedger}.
+ */
+public final class RunStats {
+    private final int[] captures = new int[GameConfig.COLOR_NAMES.length]; // Color index : captures
+    private int wrongCaptures = 0;
+    private int requeues = 0;
+    private int spawns = 0;
+
+    /**
+     * Records a ball captured by a hole it was allowed into.
+     *
+     * @param colorIndex the color index of the ball
+     */
+    void recordCapture(int colorIndex) {
+        if (colorIndex >= 0 && colorIndex < captures.length) {
+            captures[colorIndex]++;
+        }
+    }
+
+    /**
+     * Records a ball captured by a hole of another color.
+     */
+    void recordWrongCapture() {
+        wrongCaptures++;
+    }
+
+    /**
+     * Records a ball returned to the spawn queue.
+     */
+    void recordRequeue() {
+        requeues++;
+    }
+
+    /**
+     * Records a ball spawned from the queue.
+     */
+    void recordSpawn() {
+        spawns++;
+    }
+
+    /**
+     * Copies the counters of another game, e.g. when forking it.
+     *
+     * @param other the counters to copy
+     */
+    void copyFrom(RunStats other) {
+        System.arraycopy(other.captures, 0, captures, 0, captures.length);
+        wrongCaptures = other.wrongCaptures;
+        requeues = other.requeues;
+        spawns = other.spawns;
+    }
+
+    /**
+     * Clears the counters for a new level.
+     */
+    void reset() {
+        java.util.Arrays.fill(captures, 0);
+        wrongCaptures = 0;
+        requeues = 0;
+        spawns = 0;
+    }
+
+    /**
+     * Returns the number of balls of one color captured by a matching hole.
+     *
+     * @param colorIndex the color index of the balls
+     * @return the capture count, 0 for unknown colors
+     */
+    public int getCaptures(int colorIndex) {
+        return colorIndex >= 0 && colorIndex < captures.length ? captures[colorIndex] : 0;
+    }
+
+    public int getWrongCaptures() {
+        return wrongCaptures;
+    }
+
+    public int getRequeues() {
+        return requeues;
+    }
+
+    public int getSpawns() {
+        return spawns;
+    }
+}
@@ -0,0 +1,477 @@
+package inkball;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Measures how the engine's speed scales with the size of a level, to see where each subsystem
+ * stops keeping up. A grid of {@link ScenarioGenerator generated scenarios} is played headlessly,
+ * each from a fresh game with its synthetic squiggles drawn, and timed over a fixed number of
+ * frames after a warm-up. Each point of the grid gets one CSV row with its settings, the mean
+ * number of balls, squiggles and squiggle segments live while it was timed, and its median
+ * ticks per second over the runs. A bar chart of ticks per second is drawn on standard error.
+ *
+ * <pre>
+ * java -jar inkball.jar --scale [--size 18,36,72] [--wall-density 0.05] [--holes 4]
+ *                       [--timed-tiles 0] [--spawners 2] [--balls 0:200:50] [--queue 6]
+ *                       [--spawn-interval 1] [--squiggles 0] [--squiggle-points 16]
+ *                       [--frames F] [--warmup W] [--runs N] [--threads T] [--seed S]
+ *                       [--dir scenarios] [--out scaling.csv]
+ * </pre>
+ *
+ * Each setting takes a single value, a comma-separated list or a {@code from:to:step} range.
+ * Points run one at a time by default, so they do not compete for cores while being timed.
+ * The scenarios are written to a temporary directory, or kept in {@code --dir}.
+ */
+public final class ScalingBenchmark {
+    static final String HEADER = "size,wall_density,holes,timed_tiles,spawners,balls,queue,spawn_interval,squiggles,"
+            + "squiggle_points,walls,live_balls,live_squiggles,live_segments,ticks_per_s,us_per_tick";
+    static final String USAGE = "--scale [--size N] [--wall-density D] [--holes N] [--timed-tiles N] [--spawners N]"
+            + " [--balls N] [--queue N] [--spawn-interval S] [--squiggles N] [--squiggle-points N] [--frames F]"
+            + " [--warmup W] [--runs N] [--threads T] [--seed S] [--dir scenarios] [--out scaling.csv]";
+
+    private static final int SAMPLE_EVERY = 16; // Frames between counts of the live entities
+    private static final int BAR_WIDTH = 50; // Characters of the longest bar in the chart
+
+    private ScalingBenchmark() {
+    }
+
+    /**
+     * The options of a benchmark. Null settings stand for the generator's default.
+     */
+    static final class Options {
+        int[] sizes;
+        double[] wallDensities;
+        int[] holes;
+        int[] timedTiles;
+        int[] spawners;
+        int[] balls;
+        int[] queues;
+        int[] spawnIntervals;
+        int[] squiggles;
+        int[] squigglePoints;
+        int frames = 3000;
+        int warmup = 300;
+        int runs = 3;
+        int threads = 1;
+        long seed = System.nanoTime();
+        String dir; // Null for a temporary directory
+        String out; // Null for standard output
+
+        /**
+         * Parses command-line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            CommandLine line = new CommandLine("--scale", args);
+            while (line.next()) {
+                switch (line.option()) {
+                    case "--size":
+                        options.sizes = line.integers(4);
+                        break;
+                    case "--wall-density":
+                        options.wallDensities = line.values(0);
+                        break;
+                    case "--holes":
+                        options.holes = line.integers(0);
+                        break;
+                    case "--timed-tiles":
+                        options.timedTiles = line.integers(0);
+                        break;
+                    case "--spawners":
+                        options.spawners = line.integers(0);
+                        break;
+                    case "--balls":
+                        options.balls = line.integers(0);
+                        break;
+                    case "--queue":
+                        options.queues = line.integers(0);
+                        break;
+                    case "--spawn-interval":
+                        options.spawnIntervals = line.integers(1);
+                        break;
+                    case "--squiggles":
+                        options.squiggles = line.integers(0);
+                        break;
+                    case "--squiggle-points":
+                        options.squigglePoints = line.integers(2);
+                        break;
+                    case "--frames":
+                        options.frames = line.intValue();
+                        break;
+                    case "--warmup":
+                        options.warmup = line.intValue();
+                        break;
+                    case "--runs":
+                        options.runs = line.intValue();
+                        break;
+                    case "--threads":
+                        options.threads = line.intValue();
+                        break;
+                    case "--seed":
+                        options.seed = line.longValue();
+                        break;
+                    case "--dir":
+                        options.dir = line.value();
+                        break;
+                    case "--out":
+                        options.out = line.value();
+                        break;
+                    default:
+                        throw line.unknown();
+                }
+            }
+            if (options.frames < 1 || options.warmup < 0 || options.runs < 1 || options.threads < 1) {
+                throw new IllegalArgumentException("--frames, --runs and --threads must be positive"
+                        + " and --warmup not negative");
+            }
+            return options;
+        }
+
+        /**
+         * Expands the settings into the scales of every point of the grid, all generated from the
+         * same seed so points differ only by their settings.
+         *
+         * @return the scales, with sizes outermost and squiggle lengths innermost
+         * @throws IllegalArgumentException if a scale is invalid
+         */
+        List<ScenarioGenerator.Scale> grid() {
+            ScenarioGenerator.Scale base = new ScenarioGenerator.Scale();
+            base.seed = seed;
+            List<ScenarioGenerator.Scale> scales = new ArrayList<>();
+            scales.add(base);
+            scales = expand(scales, sizes, (s, v) -> s.size = v);
+            scales = expand(scales, wallDensities, (s, v) -> s.wallDensity = v);
+            scales = expand(scales, holes, (s, v) -> s.holes = v);
+            scales = expand(scales, timedTiles, (s, v) -> s.timedTiles = v);
+            scales = expand(scales, spawners, (s, v) -> s.spawners = v);
+            scales = expand(scales, balls, (s, v) -> s.balls = v);
+            scales = expand(scales, queues, (s, v) -> s.queue = v);
+            scales = expand(scales, spawnIntervals, (s, v) -> s.spawnInterval = v);
+            scales = expand(scales, squiggles, (s, v) -> s.squiggles = v);
+            scales = expand(scales, squigglePoints, (s, v) -> s.squigglePoints = v);
+            for (ScenarioGenerator.Scale scale : scales) {
+                scale.validate();
+            }
+            return scales;
+        }
+    }
+
+    private static List<ScenarioGenerator.Scale> expand(List<ScenarioGenerator.Scale> scales, int[] values,
+            ObjIntConsumer<ScenarioGenerator.Scale> setter) {
+        return values == null ? scales : expand(scales, values.length, (s, i) -> setter.accept(s, values[i]));
+    }
+
+    private static List<ScenarioGenerator.Scale> expand(List<ScenarioGenerator.Scale> scales, double[] values,
+            ObjDoubleConsumer<ScenarioGenerator.Scale> setter) {
+        return values == null ? scales : expand(scales, values.length, (s, i) -> setter.accept(s, values[i]));
+    }
+
+    /**
+     * Copies every scale once per value of a setting.
+     *
+     * @param scales the scales so far
+     * @param count the number of values
+     * @param setter sets a copy's setting to the value at an index
+     * @return the copies, grouped by the scale they came from
+     */
+    private static List<ScenarioGenerator.Scale> expand(List<ScenarioGenerator.Scale> scales, int count,
+            ObjIntConsumer<ScenarioGenerator.Scale> setter) {
+        List<ScenarioGenerator.Scale> expanded = new ArrayList<>(scales.size() * count);
+        for (ScenarioGenerator.Scale scale : scales) {
+            for (int i = 0; i < count; i++) {
+                ScenarioGenerator.Scale copy = scale.copy();
+                setter.accept(copy, i);
+                expanded.add(copy);
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * The timing of one run of a point.
+     */
+    private static final class Sample {
+        final long nanos;
+        final double liveBalls;
+        final double liveSquiggles;
+        final double liveSegments;
+
+        Sample(long nanos, double liveBalls, double liveSquiggles, double liveSegments) {
+            this.nanos = nanos;
+            this.liveBalls = liveBalls;
+            this.liveSquiggles = liveSquiggles;
+            this.liveSegments = liveSegments;
+        }
+    }
+
+    /**
+     * One point of the grid and its timings.
+     */
+    static final class Point {
+        private final ScenarioGenerator.Scale scale;
+        private final int level; // The point's level in the generated config
+        private final int frames;
+        private int walls;
+        private final long[] nanos; // Sorted once every run is in
+        private double liveBalls;
+        private double liveSquiggles;
+        private double liveSegments;
+
+        Point(ScenarioGenerator.Scale scale, int level, int frames, int runs) {
+            this.scale = scale;
+            this.level = level;
+            this.frames = frames;
+            this.nanos = new long[runs];
+        }
+
+        ScenarioGenerator.Scale getScale() {
+            return scale;
+        }
+
+        private void add(int run, Sample sample) {
+            nanos[run] = sample.nanos;
+            liveBalls += sample.liveBalls / nanos.length;
+            liveSquiggles += sample.liveSquiggles / nanos.length;
+            liveSegments += sample.liveSegments / nanos.length;
+        }
+
+        /**
+         * Returns the median speed over the runs.
+         *
+         * @return ticks per second
+         */
+        double getTicksPerSecond() {
+            return frames * 1e9 / Math.max(1, nanos[nanos.length / 2]);
+        }
+
+        double getLiveBalls() {
+            return liveBalls;
+        }
+
+        double getLiveSegments() {
+            return liveSegments;
+        }
+
+        int getWalls() {
+            return walls;
+        }
+
+        /**
+         * Describes the point as a CSV row.
+         *
+         * @return the row
+         */
+        String toRow() {
+            double ticksPerSecond = getTicksPerSecond();
+            return scale.size + "," + scale.wallDensity + "," + scale.holes + "," + scale.timedTiles + ","
+                    + scale.spawners + "," + scale.balls + "," + scale.queue + "," + scale.spawnInterval + ","
+                    + scale.squiggles + "," + scale.squigglePoints + "," + walls + ","
+                    + String.format("%.1f,%.1f,%.1f,%.0f,%.2f", liveBalls, liveSquiggles, liveSegments, ticksPerSecond,
+                            1e6 / ticksPerSecond);
+        }
+    }
+
+    /**
+     * Runs a benchmark from command-line arguments, writing a CSV row per point to standard
+     * output and the chart to standard error.
+     *
+     * @param args the command-line arguments
+     * @return the process exit code: 0 on success, 2 for bad arguments, 1 if the benchmark failed
+     */
+    public static int run(String[] args) {
+        return CommandLine.run(args, USAGE, "Benchmark failed", arguments -> {
+            Options options = Options.parse(arguments);
+            for (ScenarioGenerator.Scale scale : options.grid()) {
+                ScenarioGenerator.layout(scale); // Fail early if a scenario does not fit on its board
+            }
+            return options;
+        }, options -> {
+            List<ScenarioGenerator.Scale> scales = options.grid();
+            Path directory = null;
+            try (Writer out = CommandLine.openOutput(options.out)) {
+                directory = options.dir == null ? Files.createTempDirectory("inkball-scale") : Paths.get(options.dir);
+                long start = System.nanoTime();
+                List<Point> points = benchmark(ScenarioGenerator.write(directory, scales), scales, options);
+                out.write(HEADER);
+                out.write('\n');
+                for (Point point : points) {
+                    out.write(point.toRow());
+                    out.write('\n');
+                }
+                out.flush();
+                System.err.print(chart(points, options));
+                System.err.println(String.format("%d points in %.2f s", points.size(),
+                        (System.nanoTime() - start) / 1e9));
+            } finally {
+                if (options.dir == null && directory != null) {
+                    delete(directory);
+                }
+            }
+            return CommandLine.OK;
+        });
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not delete " + directory + ": " + e);
+        }
+    }
+
+    /**
+     * Times every run of every point on a pool of threads.
+     *
+     * @param config the path of the generated config, listing the scenarios as levels in order
+     * @param scales the scales of the scenarios
+     * @param options the benchmark to run
+     * @return the points, in the order of the scales
+     * @throws ExecutionException if a run fails
+     * @throws InterruptedException if interrupted while waiting for runs
+     */
+    static List<Point> benchmark(Path config, List<ScenarioGenerator.Scale> scales, Options options)
+            throws ExecutionException, InterruptedException {
+        List<Point> points = new ArrayList<>(scales.size());
+        for (int i = 0; i < scales.size(); i++) {
+            points.add(new Point(scales.get(i), i + 1, options.frames, options.runs));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<Sample>> samples = new ArrayList<>(points.size() * options.runs);
+            for (Point point : points) {
+                for (int run = 0; run < options.runs; run++) {
+                    long seed = BatchRunner.seedFor(options.seed, point.level, run);
+                    samples.add(pool.submit(() -> time(config.toString(), point, options, seed)));
+                }
+            }
+            int i = 0;
+            for (Point point : points) {
+                for (int run = 0; run < options.runs; run++) {
+                    point.add(run, samples.get(i++).get());
+                }
+                Arrays.sort(point.nanos);
+                point.walls = countWalls(App.createHeadless(config.toString(), point.level, options.seed));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return points;
+    }
+
+    private static int countWalls(App game) {
+        int walls = 0;
+        for (int row = 0; row < game.getBoardRows(); row++) {
+            for (int col = 0; col < game.getBoardColumns(); col++) {
+                walls += game.getWalls().isWall(col, row) ? 1 : 0;
+            }
+        }
+        return walls;
+    }
+
+    /**
+     * Plays a point's scenario from the start of its level and times it after the warm-up,
+     * counting the live entities every few frames.
+     */
+    private static Sample time(String config, Point point, Options options, long seed) {
+        App game = App.createHeadless(config, point.level, seed);
+        ScenarioGenerator.drawSquiggles(game, point.getScale());
+        for (int f = 0; f < options.warmup; f++) {
+            game.update();
+        }
+
+        long nanos = 0;
+        double balls = 0, squiggles = 0, segments = 0;
+        int samples = 0;
+        for (int f = 0; f < options.frames; f++) {
+            long start = System.nanoTime();
+            game.update();
+            nanos += System.nanoTime() - start;
+            if (f % SAMPLE_EVERY == 0) { // Counted outside the timing
+                balls += game.balls.size();
+                List<Squiggle> live = game.getSquiggles();
+                squiggles += live.size();
+                for (int i = 0; i < live.size(); i++) {
+                    segments += live.get(i).getSegmentCount();
+                }
+                samples++;
+            }
+        }
+        return new Sample(nanos, balls / samples, squiggles / samples, segments / samples);
+    }
+
+    /**
+     * Draws a bar of ticks per second for every point, labelled with the settings that vary
+     * across the grid and the live entity counts.
+     *
+     * @param points the points
+     * @param options the benchmark they came from
+     * @return the chart, one line per point
+     */
+    static String chart(List<Point> points, Options options) {
+        double best = 0;
+        for (Point point : points) {
+            best = Math.max(best, point.getTicksPerSecond());
+        }
+        StringBuilder chart = new StringBuilder();
+        for (Point point : points) {
+            ScenarioGenerator.Scale scale = point.getScale();
+            StringBuilder label = new StringBuilder();
+            label(label, "size", options.sizes, scale.size);
+            label(label, "walls", options.wallDensities, scale.wallDensity);
+            label(label, "holes", options.holes, scale.holes);
+            label(label, "timed", options.timedTiles, scale.timedTiles);
+            label(label, "spawners", options.spawners, scale.spawners);
+            label(label, "balls", options.balls, scale.balls);
+            label(label, "queue", options.queues, scale.queue);
+            label(label, "interval", options.spawnIntervals, scale.spawnInterval);
+            label(label, "squiggles", options.squiggles, scale.squiggles);
+            label(label, "points", options.squigglePoints, scale.squigglePoints);
+            label.append(String.format("[%.0f balls, %.0f segments] ", point.getLiveBalls(), point.getLiveSegments()));
+
+            double ticksPerSecond = point.getTicksPerSecond();
+            int bar = best > 0 ? (int) Math.round(ticksPerSecond / best * BAR_WIDTH) : 0;
+            chart.append(String.format("%-60s", label)).append(repeat('#', bar)).append(repeat(' ', BAR_WIDTH - bar))
+                    .append(String.format(" %,.0f ticks/s", ticksPerSecond)).append('\n');
+        }
+        return chart.toString();
+    }
+
+    private static void label(StringBuilder label, String name, int[] values, int value) {
+        if (values != null && values.length > 1) {
+            label.append(name).append('=').append(value).append(' ');
+        }
+    }
+
+    private static void label(StringBuilder label, String name, double[] values, double value) {
+        if (values != null && values.length > 1) {
+            label.append(name).append('=').append(value == (long) value ? Long.toString((long) value) : Double.toString(value))
+                    .append(' ');
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[Math.max(0, count)];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,297 @@
+package inkball;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import processing.data.JSONArray;
+import processing.data.JSONObject;
+
+/**
+ * Generates stress scenarios: level layouts and config entries of a chosen scale, for
+ * benchmarking the engine beyond the shipped levels. A scenario is a square board with walls
+ * around its edge, a share of its other tiles made walls, and a chosen number of holes, timed
+ * tiles, spawners, initial balls and queued balls, each placed at random on open tiles. A set
+ * of synthetic squiggles of a chosen length can be drawn into the game once it is loaded.
+ *
+ * <p>{@link #write(Path, List)} writes one {@code levelN.txt} per scenario and a
+ * {@code config.json} listing them in order, so scenario {@code N} is level {@code N} of a
+ * headless game created from that config.
+ */
+public final class ScenarioGenerator {
+    static final String CONFIG = "config.json";
+    static final float SQUIGGLE_STEP = 12; // Pixels between the points of a synthetic squiggle
+    static final int TIME = 3600; // Seconds, so no scenario runs out of time while being measured
+
+    private static final double COLORED_WALLS = 0.25; // Share of walls given a color
+    private static final int[] SCORE_INCREASE = { 70, 50, 50, 50, 100 }; // As shipped, by color
+    private static final int[] SCORE_DECREASE = { 0, 25, 25, 25, 100 };
+
+    private ScenarioGenerator() {
+    }
+
+    /**
+     * The scale of one scenario.
+     */
+    static final class Scale {
+        int size = 18; // Tiles along each side of the board
+        double wallDensity = 0.05; // Share of open tiles, after everything else is placed, made walls
+        int holes = 4;
+        int timedTiles = 0;
+        int spawners = 2;
+        int balls = 0; // Placed on the board at the start of the level
+        int queue = 6; // Waiting to be spawned
+        int spawnInterval = 1; // Seconds
+        int squiggles = 0;
+        int squigglePoints = 16; // Points per squiggle
+        long seed = 0;
+
+        /**
+         * Copies the scale, for varying one of its settings.
+         *
+         * @return the copy
+         */
+        Scale copy() {
+            Scale copy = new Scale();
+            copy.size = size;
+            copy.wallDensity = wallDensity;
+            copy.holes = holes;
+            copy.timedTiles = timedTiles;
+            copy.spawners = spawners;
+            copy.balls = balls;
+            copy.queue = queue;
+            copy.spawnInterval = spawnInterval;
+            copy.squiggles = squiggles;
+            copy.squigglePoints = squigglePoints;
+            copy.seed = seed;
+            return copy;
+        }
+
+        /**
+         * Checks that the scale describes a playable board.
+         *
+         * @throws IllegalArgumentException if a setting is out of range
+         */
+        void validate() {
+            if (size < 4 || wallDensity < 0 || wallDensity > 1 || holes < 0 || timedTiles < 0 || spawners < 0
+                    || balls < 0 || queue < 0 || spawnInterval < 1 || squiggles < 0 || squigglePoints < 2) {
+                throw new IllegalArgumentException("Bad scale: size must be at least 4, the wall density from 0 to 1,"
+                        + " the spawn interval positive, squiggles at least 2 points and every count not negative");
+            }
+            if (queue > 0 && spawners == 0) {
+                throw new IllegalArgumentException("A queue of balls needs at least one spawner");
+            }
+        }
+    }
+
+    /**
+     * Generates the layout of a scenario. Holes are placed first, as they need a 2x2 block of open
+     * tiles, then spawners, timed tiles and balls, and finally the interior walls.
+     *
+     * @param scale the scale of the scenario
+     * @return the lines of the layout
+     * @throws IllegalArgumentException if the scale is invalid or its entities do not fit on the board
+     */
+    static List<String> layout(Scale scale) {
+        scale.validate();
+        Random random = new Random(scale.seed);
+        int size = scale.size;
+        char[][] tiles = new char[size][size];
+        boolean[][] taken = new boolean[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                boolean edge = row == 0 || col == 0 || row == size - 1 || col == size - 1;
+                tiles[row][col] = edge ? 'X' : ' ';
+                taken[row][col] = edge;
+            }
+        }
+
+        // Every interior tile, in a random order that each entity searches for a space that fits
+        List<int[]> cells = new ArrayList<>((size - 2) * (size - 2));
+        for (int row = 1; row < size - 1; row++) {
+            for (int col = 1; col < size - 1; col++) {
+                cells.add(new int[] { col, row });
+            }
+        }
+        Collections.shuffle(cells, random);
+
+        for (int i = 0; i < scale.holes; i++) {
+            int[] cell = place(cells, taken, 2, 2, "hole");
+            tiles[cell[1]][cell[0]] = 'H';
+            tiles[cell[1]][cell[0] + 1] = Character.forDigit(random.nextInt(GameConfig.COLOR_NAMES.length), 10);
+        }
+        for (int i = 0; i < scale.spawners; i++) {
+            int[] cell = place(cells, taken, 1, 1, "spawner");
+            tiles[cell[1]][cell[0]] = 'S';
+        }
+        for (int i = 0; i < scale.timedTiles; i++) {
+            int[] cell = place(cells, taken, 1, 1, "timed tile");
+            tiles[cell[1]][cell[0]] = 'T';
+        }
+        for (int i = 0; i < scale.balls; i++) {
+            int[] cell = place(cells, taken, 2, 1, "ball"); // The ball and its color digit
+            tiles[cell[1]][cell[0]] = 'B';
+            tiles[cell[1]][cell[0] + 1] = Character.forDigit(random.nextInt(GameConfig.COLOR_NAMES.length), 10);
+        }
+
+        for (int[] cell : cells) {
+            if (!taken[cell[1]][cell[0]] && random.nextDouble() < scale.wallDensity) {
+                boolean colored = random.nextDouble() < COLORED_WALLS;
+                tiles[cell[1]][cell[0]] = colored ? Character.forDigit(1 + random.nextInt(4), 10) : 'X';
+            }
+        }
+
+        List<String> lines = new ArrayList<>(size);
+        for (char[] row : tiles) {
+            lines.add(new String(row));
+        }
+        return lines;
+    }
+
+    /**
+     * Takes the first block of open tiles, in the shuffled order, that fits an entity.
+     *
+     * @return the top-left tile of the block, as {column, row}
+     */
+    private static int[] place(List<int[]> cells, boolean[][] taken, int width, int height, String entity) {
+        for (int[] cell : cells) {
+            int col = cell[0], row = cell[1];
+            if (fits(taken, col, row, width, height)) {
+                for (int r = row; r < row + height; r++) {
+                    for (int c = col; c < col + width; c++) {
+                        taken[r][c] = true;
+                    }
+                }
+                return cell;
+            }
+        }
+        throw new IllegalArgumentException("No room left on the board for another " + entity);
+    }
+
+    private static boolean fits(boolean[][] taken, int col, int row, int width, int height) {
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                if (r >= taken.length || c >= taken[r].length || taken[r][c]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the config entry of a scenario. Its queue is random colors, its time limit long
+     * enough for any measurement, and its ink enough for every synthetic squiggle. Squiggles are
+     * never straightened, so each of their points is a segment the balls are tested against.
+     *
+     * @param layout the path of the scenario's layout
+     * @param scale the scale of the scenario
+     * @return the entry
+     */
+    static JSONObject configEntry(String layout, Scale scale) {
+        Random random = new Random(~scale.seed); // Independent of the layout's choices
+        JSONArray queue = new JSONArray();
+        for (int i = 0; i < scale.queue; i++) {
+            queue.append(GameConfig.COLOR_NAMES[random.nextInt(GameConfig.COLOR_NAMES.length)]);
+        }
+        float ink = scale.squiggles * (scale.squigglePoints - 1) * SQUIGGLE_STEP * 2;
+
+        JSONObject entry = new JSONObject();
+        entry.setString("layout", layout);
+        entry.setInt("time", TIME);
+        entry.setInt("spawn_interval", scale.spawnInterval);
+        entry.setDouble("score_increase_from_hole_capture_modifier", 1.0);
+        entry.setDouble("score_decrease_from_wrong_hole_modifier", 1.0);
+        entry.setJSONArray("balls", queue);
+        entry.setDouble("stroke_tolerance", 0);
+        entry.setDouble("ink_budget", Math.max(InkBudget.DEFAULT_CAPACITY, ink));
+        return entry;
+    }
+
+    /**
+     * Builds a config listing the scenarios as levels, with the shipped score tables.
+     *
+     * @param entries the config entries of the scenarios, in level order
+     * @return the config
+     */
+    static JSONObject config(List<JSONObject> entries) {
+        JSONArray levels = new JSONArray();
+        for (JSONObject entry : entries) {
+            levels.append(entry);
+        }
+        JSONObject increase = new JSONObject();
+        JSONObject decrease = new JSONObject();
+        for (int color = 0; color < GameConfig.COLOR_NAMES.length; color++) {
+            increase.setInt(GameConfig.COLOR_NAMES[color], SCORE_INCREASE[color]);
+            decrease.setInt(GameConfig.COLOR_NAMES[color], SCORE_DECREASE[color]);
+        }
+        JSONObject config = new JSONObject();
+        config.setJSONArray("levels", levels);
+        config.setJSONObject("score_increase_from_hole_capture", increase);
+        config.setJSONObject("score_decrease_from_wrong_hole", decrease);
+        return config;
+    }
+
+    /**
+     * Writes the layouts of the scenarios and a config listing them into a directory.
+     *
+     * @param directory the directory, created if missing
+     * @param scales the scales of the scenarios, in level order
+     * @return the path of the config
+     * @throws IOException if a file cannot be written
+     * @throws IllegalArgumentException if a scale is invalid or does not fit on its board
+     */
+    public static Path write(Path directory, List<Scale> scales) throws IOException {
+        Files.createDirectories(directory);
+        List<JSONObject> entries = new ArrayList<>(scales.size());
+        for (int i = 0; i < scales.size(); i++) {
+            Scale scale = scales.get(i);
+            Path layout = directory.resolve("level" + (i + 1) + ".txt");
+            Files.write(layout, layout(scale), StandardCharsets.UTF_8);
+            entries.add(configEntry(layout.toString(), scale));
+        }
+        Path config = directory.resolve(CONFIG);
+        Files.write(config, config(entries).toString().getBytes(StandardCharsets.UTF_8));
+        return config;
+    }
+
+    /**
+     * Draws the synthetic squiggles of a scenario into a game as the player would. Each is a random
+     * walk with a fixed step, kept within the part of the board shown at the start of the level.
+     *
+     * @param game the game, at the start of the scenario's level
+     * @param scale the scale of the scenario
+     */
+    static void drawSquiggles(App game, Scale scale) {
+        Random random = new Random(scale.seed * 31 + 17);
+        float right = Math.min(App.WIDTH, game.getBoardColumns() * App.CELLSIZE) - 1;
+        float bottom = Math.min(App.HEIGHT, App.TOPBAR + game.getBoardRows() * App.CELLSIZE) - 1;
+        float[] stroke = new float[scale.squigglePoints * 2];
+        for (int s = 0; s < scale.squiggles; s++) {
+            float x = random.nextFloat() * right;
+            float y = App.TOPBAR + random.nextFloat() * (bottom - App.TOPBAR);
+            double heading = random.nextDouble() * Math.PI * 2;
+            for (int i = 0; i < stroke.length; i += 2) {
+                stroke[i] = x;
+                stroke[i + 1] = y;
+                heading += random.nextGaussian() * 0.5; // Wander, so the walk is not a straight line
+                x += (float) Math.cos(heading) * SQUIGGLE_STEP;
+                y += (float) Math.sin(heading) * SQUIGGLE_STEP;
+                if (x < 0 || x > right) { // Bounce off the edges of the window
+                    heading = Math.PI - heading;
+                    x = Math.max(0, Math.min(right, x));
+                }
+                if (y < App.TOPBAR || y > bottom) {
+                    heading = -heading;
+                    y = Math.max(App.TOPBAR, Math.min(bottom, y));
+                }
+            }
+            Solver.draw(game, stroke);
+        }
+    }
+}
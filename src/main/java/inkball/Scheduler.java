@@ -0,0 +1,278 @@
+package inkball;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs timed game tasks on the game thread, measured in simulation frames.
+ * The scheduler only advances when {@link #tick()} is called, so tasks pause with the game
+ * (the game simply stops ticking it) and resume exactly where they left off. Headless games
+ * can fast-forward the scheduler by ticking it as quickly as they like.
+ *
+ * <p>Tasks are kept in a hierarchical timer wheel: four levels of 64 slots, where each level
+ * covers 64 times the range of the one below it. Scheduling and cancelling are O(1), and a
+ * tick only touches the slot for the current frame (plus, every 64 frames, one slot of a
+ * higher level whose tasks are moved down), so the cost per frame does not depend on how
+ * many tasks are waiting.
+ */
+public class Scheduler {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // Slots per level
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1; // Furthest a task can be placed
+
+    private final Task[][] wheel = new Task[LEVELS][SLOTS]; // Sentinel node of each slot's list
+    private Task running; // Sentinel of the list of tasks being run this tick
+    private long next = 0; // The frame the next tick processes
+    private int size = 0; // Number of tasks waiting to run
+
+    /**
+     * Represents a task registered with the {@link Scheduler}.
+     */
+    public static final class Task {
+        private final Scheduler scheduler;
+        private final BooleanSupplier action;
+        private final int period; // 0 for one-shot tasks
+        private long expires; // Frame the task runs on
+        private boolean cancelled = false;
+        private Task prev, next; // Links in the list of the slot holding the task
+
+        private Task(Scheduler scheduler, int period, BooleanSupplier action) {
+            this.scheduler = scheduler;
+            this.period = period;
+            this.action = action;
+        }
+
+        /**
+         * Stops the task from running again.
+         */
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                if (unlink()) {
+                    scheduler.size--;
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Returns the number of frames left until the task next runs.
+         *
+         * @return the remaining frames, or 0 if the task has finished or was cancelled
+         */
+        public int getRemainingFrames() {
+            if (cancelled) {
+                return 0;
+            }
+            return (int) Math.max(0, expires - scheduler.next + 1);
+        }
+
+        private boolean unlink() {
+            if (prev == null) {
+                return false;
+            }
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+            return true;
+        }
+    }
+
+    /**
+     * Constructs an empty {@code Scheduler}.
+     */
+    public Scheduler() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = newSentinel();
+            }
+        }
+        running = newSentinel();
+    }
+
+    private Task newSentinel() {
+        Task sentinel = new Task(this, 0, null);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        return sentinel;
+    }
+
+    /**
+     * Runs an action once, after the given number of frames.
+     *
+     * @param delay the number of frames to wait; values below 1 run on the next tick
+     * @param action the action to run
+     * @return the scheduled task
+     */
+    public Task schedule(int delay, Runnable action) {
+        Task task = new Task(this, 0, () -> {
+            action.run();
+            return false;
+        });
+        insert(task, next + Math.max(1, delay) - 1);
+        size++;
+        return task;
+    }
+
+    /**
+     * Runs an action every {@code period} frames for as long as it returns true.
+     *
+     * @param period the number of frames between runs, also used as the initial delay
+     * @param action the action to run, returning false once it should stop repeating
+     * @return the scheduled task
+     */
+    public Task scheduleRepeating(int period, BooleanSupplier action) {
+        Task task = new Task(this, Math.max(1, period), action);
+        insert(task, next + task.period - 1);
+        size++;
+        return task;
+    }
+
+    /**
+     * Places a task in the slot matching how far away its expiry frame is.
+     * Tasks further away than the wheel covers wait in the outermost level and are
+     * placed again when that slot is cascaded.
+     */
+    private void insert(Task task, long expires) {
+        task.expires = expires;
+        long delta = Math.min(expires - next, MAX_DELAY);
+        Task slot;
+        if (delta < 0) {
+            slot = wheel[0][(int) (next & SLOT_MASK)]; // Overdue, run on the next tick
+        } else {
+            int level = 0;
+            while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+                level++;
+            }
+            long placed = next + delta;
+            slot = wheel[level][(int) ((placed >> (SLOT_BITS * level)) & SLOT_MASK)];
+        }
+        task.prev = slot.prev;
+        task.next = slot;
+        slot.prev.next = task;
+        slot.prev = task;
+    }
+
+    /**
+     * Advances the scheduler by one frame, running every task that becomes due.
+     * Tasks may schedule new tasks or {@link #clear()} the scheduler while running.
+     */
+    public void tick() {
+        long frame = next;
+        int index = (int) (frame & SLOT_MASK);
+        for (int level = 1; level < LEVELS && index == 0; level++) {
+            index = cascade(level);
+        }
+
+        // Move the due slot onto the running list, then advance, so that running tasks
+        // scheduling a task for the next frame land in the next slot rather than this one
+        Task slot = wheel[0][(int) (frame & SLOT_MASK)];
+        if (slot.next != slot) {
+            running.next = slot.next;
+            running.prev = slot.prev;
+            running.next.prev = running;
+            running.prev.next = running;
+            slot.next = slot;
+            slot.prev = slot;
+        }
+        next++;
+
+        while (running.next != running) {
+            Task task = running.next;
+            task.unlink();
+            size--;
+            if (task.expires > frame) {
+                insert(task, task.expires); // Clamped far-future task that is not due yet
+                size++;
+                continue;
+            }
+            if (task.action.getAsBoolean() && task.period > 0 && !task.cancelled) {
+                insert(task, frame + task.period);
+                size++;
+            } else {
+                task.cancelled = true;
+            }
+        }
+    }
+
+    /**
+     * Moves the tasks of the current slot of a higher level down to the levels below.
+     *
+     * @param level the level to cascade
+     * @return the index of the cascaded slot; 0 means the next level must cascade too
+     */
+    private int cascade(int level) {
+        int index = (int) ((next >> (SLOT_BITS * level)) & SLOT_MASK);
+        Task slot = wheel[level][index];
+        while (slot.next != slot) {
+            Task task = slot.next;
+            task.unlink();
+            insert(task, task.expires);
+        }
+        return index;
+    }
+
+    /**
+     * Fast-forwards the scheduler by a number of frames.
+     *
+     * @param frames the number of frames to advance
+     */
+    public void advance(int frames) {
+        for (int i = 0; i < frames; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Cancels every task, including tasks due during the current tick.
+     */
+    public void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                cancelAll(wheel[level][slot]);
+            }
+        }
+        cancelAll(running);
+        size = 0;
+    }
+
+    private void cancelAll(Task sentinel) {
+        while (sentinel.next != sentinel) {
+            Task task = sentinel.next;
+            task.unlink();
+            task.cancelled = true;
+        }
+    }
+
+    /**
+     * Checks whether any task is still waiting to run.
+     *
+     * @return true if no task is scheduled
+     */
+    public boolean isIdle() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of tasks waiting to run.
+     *
+     * @return the pending task count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of frames the scheduler has advanced since it was created.
+     *
+     * @return the current frame
+     */
+    public long getFrame() {
+        return next;
+    }
+}
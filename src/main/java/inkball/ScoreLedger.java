@@ -0,0 +1,165 @@
+package inkball;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the player's score, broken down by level, by ball color and into time bonus.
+ * The ledger is an immutable {@link Snapshot} swapped in with compare-and-set, so any number
+ * of threads can record points without locks and without losing updates, and a snapshot
+ * taken at the start of a level can be restored atomically on restart.
+ *
+ * <p>The total never goes below zero. When a deduction is larger than the total, only the part
+ * that was actually taken is recorded in the breakdowns, so the level scores always add up to
+ * the total, as do the color scores plus the time bonus.
+ */
+public final class ScoreLedger {
+    /**
+     * Color index used for points that do not belong to a ball color.
+     */
+    public static final int NO_COLOR = -1;
+
+    private static final Snapshot EMPTY = new Snapshot(0, 0, new int[0], new int[GameConfig.COLOR_NAMES.length]);
+
+    private final AtomicReference<Snapshot> state = new AtomicReference<>(EMPTY);
+
+    /**
+     * An immutable view of the ledger at one point in time.
+     */
+    public static final class Snapshot {
+        private final int total;
+        private final int timeBonus;
+        private final int[] levels; // Level - 1 : points earned on that level
+        private final int[] colors; // Color index : points earned from balls of that color
+
+        private Snapshot(int total, int timeBonus, int[] levels, int[] colors) {
+            this.total = total;
+            this.timeBonus = timeBonus;
+            this.levels = levels;
+            this.colors = colors;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getTimeBonus() {
+            return timeBonus;
+        }
+
+        /**
+         * Returns the points earned on a level.
+         *
+         * @param level the level number, starting at 1
+         * @return the points earned on the level, or 0 if none were recorded
+         */
+        public int getLevelScore(int level) {
+            return level >= 1 && level <= levels.length ? levels[level - 1] : 0;
+        }
+
+        /**
+         * Returns the points earned from balls of one color.
+         *
+         * @param colorIndex the color index of the balls
+         * @return the points earned from the color, or 0 for an unknown color
+         */
+        public int getColorScore(int colorIndex) {
+            return colorIndex >= 0 && colorIndex < colors.length ? colors[colorIndex] : 0;
+        }
+
+        /**
+         * Returns a copy of this snapshot with a change applied to the total and breakdowns.
+         */
+        private Snapshot with(int level, int colorIndex, int delta, boolean isTimeBonus) {
+            int[] newLevels = levels;
+            if (level >= 1) {
+                newLevels = Arrays.copyOf(levels, Math.max(levels.length, level));
+                newLevels[level - 1] += delta;
+            }
+            int[] newColors = colors;
+            if (colorIndex >= 0 && colorIndex < colors.length) {
+                newColors = colors.clone();
+                newColors[colorIndex] += delta;
+            }
+            return new Snapshot(total + delta, isTimeBonus ? timeBonus + delta : timeBonus, newLevels, newColors);
+        }
+    }
+
+    /**
+     * Adds points for capturing a ball.
+     *
+     * @param level the level the points were earned on
+     * @param colorIndex the color index of the ball, or {@link #NO_COLOR}
+     * @param amount the number of points to add
+     * @return the new total
+     */
+    public int add(int level, int colorIndex, int amount) {
+        return apply(level, colorIndex, amount, false);
+    }
+
+    /**
+     * Deducts points for a ball captured by the wrong hole. The total is never taken below zero.
+     *
+     * @param level the level the points were lost on
+     * @param colorIndex the color index of the ball, or {@link #NO_COLOR}
+     * @param amount the number of points to deduct
+     * @return the new total
+     */
+    public int subtract(int level, int colorIndex, int amount) {
+        return apply(level, colorIndex, -amount, false);
+    }
+
+    /**
+     * Adds points for time left over at the end of a level.
+     *
+     * @param level the level that was completed
+     * @param amount the number of points to add
+     * @return the new total
+     */
+    public int addTimeBonus(int level, int amount) {
+        return apply(level, NO_COLOR, amount, true);
+    }
+
+    private int apply(int level, int colorIndex, int delta, boolean isTimeBonus) {
+        while (true) {
+            Snapshot current = state.get();
+            int applied = Math.max(delta, -current.total); // Ensure the score never goes negative
+            if (applied == 0) {
+                return current.total;
+            }
+            Snapshot next = current.with(level, colorIndex, applied, isTimeBonus);
+            if (state.compareAndSet(current, next)) {
+                return next.total;
+            }
+        }
+    }
+
+    public int getTotal() {
+        return state.get().total;
+    }
+
+    /**
+     * Returns the current state of the ledger, e.g. to restore it when a level is restarted.
+     *
+     * @return an immutable snapshot
+     */
+    public Snapshot snapshot() {
+        return state.get();
+    }
+
+    /**
+     * Replaces the whole ledger with an earlier snapshot.
+     *
+     * @param snapshot the snapshot to restore
+     */
+    public void restore(Snapshot snapshot) {
+        state.set(snapshot);
+    }
+
+    /**
+     * Clears every score, e.g. when the game is started again from the first level.
+     */
+    public void reset() {
+        state.set(EMPTY);
+    }
+}
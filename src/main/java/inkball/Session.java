@@ -0,0 +1,186 @@
+package inkball;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import processing.core.PConstants;
+
+/**
+ * One headless game hosted by a {@link SessionHost}, with its own thread running the game loop.
+ * Only that thread ever touches the {@link App}: commands from other threads are queued and run
+ * on it between frames, so the game needs no locking. A paused or ended session parks its
+ * thread until the next command arrives instead of simulating idle frames.
+ */
+public final class Session implements Runnable {
+    private static final long FRAME_NANOS = 1_000_000_000L / App.FPS;
+    private static final int MAX_CATCH_UP_FRAMES = 5; // Frames a late real-time session may run back to back
+
+    private final int id;
+    private final App app;
+    private final boolean realTime;
+    private final Queue<Consumer<App>> commands = new ConcurrentLinkedQueue<>(); // Run on the session thread
+    private volatile Thread thread;
+    private volatile boolean paused = false;
+    private volatile boolean closed = false;
+    private volatile long ticks = 0; // Written only by the session thread
+
+    /**
+     * Creates a session around a headless game. The game must not be used by any other thread
+     * once the session runs.
+     *
+     * @param id the session id
+     * @param app the headless game
+     * @param realTime true to advance at {@link App#FPS} frames per second, false to run as fast as possible
+     */
+    Session(int id, App app, boolean realTime) {
+        this.id = id;
+        this.app = app;
+        this.realTime = realTime;
+    }
+
+    /**
+     * Runs the game loop until the session is closed.
+     */
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        long next = System.nanoTime(); // When the next real-time frame is due
+        while (!closed) {
+            runCommands();
+            if (paused || app.isGameEnded()) {
+                LockSupport.park(this); // Woken by the next command
+                next = System.nanoTime();
+                continue;
+            }
+            if (realTime) {
+                long now = System.nanoTime();
+                if (next - now > 0) {
+                    LockSupport.parkNanos(this, next - now);
+                    continue; // Run any command that woke us before the frame
+                }
+                next = Math.max(next + FRAME_NANOS, now - MAX_CATCH_UP_FRAMES * FRAME_NANOS);
+            } else {
+                Thread.yield(); // Free-running sessions take turns on the available threads
+            }
+            app.update();
+            ticks++;
+        }
+    }
+
+    private void runCommands() {
+        Consumer<App> command;
+        while ((command = commands.poll()) != null) {
+            command.accept(app);
+        }
+    }
+
+    /**
+     * Queues a command to run on the session thread before its next frame.
+     *
+     * @param command the command, given the session's game
+     */
+    public void execute(Consumer<App> command) {
+        commands.add(command);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Runs a query on the session thread before its next frame.
+     *
+     * @param query the query, given the session's game
+     * @param <T> the type of the result
+     * @return the result, completed exceptionally if the query throws
+     */
+    public <T> CompletableFuture<T> call(Function<App, T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(app -> {
+            try {
+                result.complete(query.apply(app));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Draws a squiggle through a series of points, as if dragged with the left mouse button.
+     *
+     * @param points the x- and y-coordinates of each point in the window, at least two points
+     * @throws IllegalArgumentException if there are fewer than two points
+     */
+    public void draw(float[] points) {
+        if (points.length < 4 || points.length % 2 != 0) {
+            throw new IllegalArgumentException("A squiggle needs at least two points");
+        }
+        float[] stroke = points.clone();
+        execute(app -> {
+            long time = System.nanoTime();
+            int last = stroke.length - 2;
+            app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, time, stroke[0], stroke[1],
+                    PConstants.LEFT));
+            for (int i = 2; i < last; i += 2) {
+                app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, time, stroke[i], stroke[i + 1],
+                        PConstants.LEFT));
+            }
+            app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, time, stroke[last], stroke[last + 1],
+                    PConstants.LEFT));
+            app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_RELEASED, time, stroke[last], stroke[last + 1],
+                    PConstants.LEFT));
+            app.processInput(); // Apply now, so the stroke lands even while paused
+        });
+    }
+
+    /**
+     * Restarts the current level, or the whole game once it has ended, like pressing 'r'.
+     */
+    public void restart() {
+        execute(app -> {
+            app.submitInput(InputCommand.key(System.nanoTime(), 'r', 0));
+            app.processInput();
+        });
+    }
+
+    /**
+     * Stops or resumes simulating frames. A paused session uses no CPU.
+     *
+     * @param paused true to pause the session
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops the game loop. The session thread exits before its next frame.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of frames simulated so far.
+     *
+     * @return the frame count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
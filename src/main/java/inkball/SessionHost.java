@@ -0,0 +1,371 @@
+package inkball;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many independent headless games in one JVM, e.g. for bot training or automated
+ * grading. Every {@link Session} runs its game loop on its own thread: a virtual thread when the
+ * JVM has them (Java 21 and later), otherwise a daemon platform thread with a small stack.
+ * Games share their level templates but no mutable state, so sessions never contend.
+ *
+ * <p>Sessions are controlled with one-line text commands, either through {@link #handle(String)}
+ * or over a socket bound to the loopback address. Coordinates are window coordinates, as for
+ * mouse events. Each command gets a one-line reply, {@code OK ...} or {@code ERR message}:
+ *
+ * <pre>
+ * OPEN [level [seed]]          starts a session, replies with its id
+ * DRAW id x1 y1 x2 y2 ...      draws a squiggle through two or more points
+ * PAUSE id / RESUME id         stops or resumes the session's frames
+ * RESTART id                   restarts the level, like pressing 'r'
+ * STATUS id                    replies with level, score, balls, squiggles, ticks, paused and ended
+ * CLOSE id                     ends the session
+ * COUNT                        replies with the number of open sessions
+ * QUIT                         closes the connection
+ * SHUTDOWN                     closes the host and every session
+ * </pre>
+ *
+ * <pre>
+ * java -jar inkball.jar --serve [--config config.json] [--port P] [--free-running]
+ * </pre>
+ */
+public final class SessionHost implements Closeable {
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024; // Enough for a game loop, small enough for thousands
+    private static final long QUERY_TIMEOUT_MILLIS = 5000;
+    static final String USAGE = "--serve [--config config.json] [--port P] [--free-running]";
+
+    private final String configPath;
+    private final boolean realTime;
+    private final ExecutorService threads = newThreadPerTaskExecutor(); // Session loops and connections
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private volatile ServerSocket server;
+
+    /**
+     * Command-line options of {@link #run(String[])}.
+     */
+    static final class Options {
+        String config = "config.json";
+        int port = 0;
+        boolean realTime = true;
+
+        /**
+         * Parses command-line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            CommandLine line = new CommandLine("--serve", args);
+            while (line.next()) {
+                switch (line.option()) {
+                    case "--config":
+                        options.config = line.value();
+                        break;
+                    case "--port":
+                        options.port = line.intValue();
+                        if (options.port < 0 || options.port > 65535) {
+                            throw line.invalid();
+                        }
+                        break;
+                    case "--free-running":
+                        options.realTime = false; // A switch, with no value
+                        break;
+                    default:
+                        throw line.unknown();
+                }
+            }
+            return options;
+        }
+    }
+
+    /**
+     * Creates a host with no sessions.
+     *
+     * @param configPath the config file every session plays
+     * @param realTime true to pace sessions at {@link App#FPS} frames per second, false to let them free-run
+     */
+    public SessionHost(String configPath, boolean realTime) {
+        this.configPath = configPath;
+        this.realTime = realTime;
+    }
+
+    /**
+     * Creates an executor that starts a new thread per task, virtual where available.
+     *
+     * @return the executor
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Before Java 21 (or without preview features on 19 and 20)
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, "inkball-session-" + count.incrementAndGet(), PLATFORM_STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Starts a session on its own thread.
+     *
+     * @param level the level to start on, 1-based
+     * @param seed the seed for the game's random choices
+     * @return the running session
+     */
+    public Session open(int level, long seed) {
+        if (closed.getCount() == 0) {
+            throw new IllegalStateException("The host is closed");
+        }
+        App app = App.createHeadless(configPath, level, seed);
+        Session session = new Session(nextId.getAndIncrement(), app, realTime);
+        sessions.put(session.getId(), session);
+        threads.execute(() -> {
+            try {
+                session.run();
+            } catch (RuntimeException e) {
+                System.err.println("Session " + session.getId() + " failed: " + e);
+            } finally {
+                session.close();
+                sessions.remove(session.getId());
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Returns an open session.
+     *
+     * @param id the session id
+     * @return the session, or null if there is no open session with that id
+     */
+    public Session get(int id) {
+        return sessions.get(id);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Starts accepting connections on the loopback address. Each connection is served on its
+     * own thread, one command per line.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @return the port listened on
+     * @throws IOException if the port cannot be bound
+     */
+    public int listen(int port) throws IOException {
+        ServerSocket socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        server = socket;
+        threads.execute(() -> accept(socket));
+        return socket.getLocalPort();
+    }
+
+    private void accept(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try {
+                Socket connection = socket.accept();
+                threads.execute(() -> serve(connection));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("Accept failed: " + e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try (Socket socket = connection;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = handle(line);
+                if (reply == null) {
+                    break;
+                }
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; its sessions keep running until closed
+        }
+    }
+
+    /**
+     * Runs one text command.
+     *
+     * @param line the command
+     * @return the reply, or null if the connection should be closed
+     */
+    String handle(String line) {
+        String[] words = line.trim().split("\\s+");
+        String command = words[0].toUpperCase();
+        try {
+            switch (command) {
+                case "OPEN":
+                    int level = words.length > 1 ? Integer.parseInt(words[1]) : 1;
+                    long seed = words.length > 2 ? Long.parseLong(words[2]) : System.nanoTime();
+                    if (level < 1 || level > GameConfig.load(configPath).getLevelCount()) {
+                        return "ERR No level " + level;
+                    }
+                    return "OK " + open(level, seed).getId();
+                case "COUNT":
+                    return "OK " + getSessionCount();
+                case "QUIT":
+                    return null;
+                case "SHUTDOWN":
+                    close();
+                    return null;
+                case "DRAW":
+                case "PAUSE":
+                case "RESUME":
+                case "RESTART":
+                case "STATUS":
+                case "CLOSE":
+                    return handleSession(command, words);
+                default:
+                    return "ERR Unknown command " + words[0];
+            }
+        } catch (NumberFormatException e) {
+            return "ERR Invalid number: " + e.getMessage();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERR " + e.getMessage();
+        } catch (RuntimeException e) {
+            return "ERR " + (e.getMessage() != null ? e.getMessage() : e.toString()); // e.g. an unreadable config
+        }
+    }
+
+    private String handleSession(String command, String[] words) {
+        if (words.length < 2) {
+            return "ERR Missing session id";
+        }
+        Session session = get(Integer.parseInt(words[1]));
+        if (session == null) {
+            return "ERR No session " + words[1];
+        }
+        switch (command) {
+            case "DRAW":
+                float[] points = new float[words.length - 2];
+                for (int i = 0; i < points.length; i++) {
+                    points[i] = Float.parseFloat(words[i + 2]);
+                }
+                session.draw(points);
+                return "OK";
+            case "PAUSE":
+            case "RESUME":
+                session.setPaused(command.equals("PAUSE"));
+                return "OK";
+            case "RESTART":
+                session.restart();
+                return "OK";
+            case "CLOSE":
+                session.close();
+                sessions.remove(session.getId());
+                return "OK";
+            default:
+                return status(session);
+        }
+    }
+
+    private String status(Session session) {
+        try {
+            return session.call(app -> "OK level=" + app.getCurrentLevel() + " score=" + app.getScore()
+                    + " balls=" + app.balls.size() + " squiggles=" + app.getSquiggles().size()
+                    + " ticks=" + session.getTicks() + " paused=" + session.isPaused()
+                    + " ended=" + app.isGameEnded())
+                    .get(QUERY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return "ERR Session " + session.getId() + " did not answer";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERR Interrupted";
+        }
+    }
+
+    /**
+     * Stops listening and closes every session.
+     */
+    @Override
+    public void close() {
+        if (closed.getCount() == 0) {
+            return;
+        }
+        closed.countDown();
+        ServerSocket socket = server;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        for (Session session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+        threads.shutdown();
+    }
+
+    /**
+     * Blocks until the host is closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitClose() throws InterruptedException {
+        closed.await();
+    }
+
+    /**
+     * Serves sessions from command-line arguments until a {@code SHUTDOWN} command.
+     *
+     * @param args the command-line arguments
+     * @return the process exit code: 0 on shutdown, 2 for bad arguments or an unreadable config,
+     *         1 if the port cannot be bound
+     */
+    public static int run(String[] args) {
+        return CommandLine.run(args, USAGE, "Cannot listen", arguments -> {
+            Options options = Options.parse(arguments);
+            CommandLine.requireLevel(options.config, 1); // Fail now rather than on the first OPEN
+            return options;
+        }, options -> {
+            SessionHost host = new SessionHost(options.config, options.realTime);
+            try {
+                System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                        + host.listen(options.port));
+                host.awaitClose();
+                return CommandLine.OK;
+            } finally {
+                host.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,379 @@
+package inkball;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays level after level for a long time, checking invariants of the simulation after every
+ * frame, to catch tunnelling and leaks before players do. Each run plays one level from its own
+ * seed, with a scripted player drawing random lines, until the level ends. After every frame:
+ *
+ * <ul>
+ * <li>every ball is on the board and its center is not inside a wall,</li>
+ * <li>every ball's speed is between its minimum and maximum speed,</li>
+ * <li>the balls on the board and in the queue add up with the spawns, captures and requeues,</li>
+ * <li>the score is not negative.</li>
+ * </ul>
+ *
+ * A run that throws counts as a broken invariant too. The first one stops the soak and writes a
+ * reproducer (level, seed and frame, plus the balls at that frame); {@code --reproduce
+ * level:seed} replays just that run. While running, the sustained frames per second and the live
+ * heap (after a full collection) are reported, with the heap's trend: a steady climb points to a
+ * leak.
+ *
+ * <pre>
+ * java -jar inkball.jar --soak [--config config.json] [--ticks N] [--threads T] [--seed S]
+ *                       [--report-every seconds] [--out soak-failure.txt] [--reproduce level:seed]
+ * </pre>
+ */
+public final class SoakHarness {
+    static final String USAGE = "--soak [--config config.json] [--ticks N] [--threads T] [--seed S]"
+            + " [--report-every seconds] [--out soak-failure.txt] [--reproduce level:seed]";
+    private static final float SPEED_TOLERANCE = 1e-3f; // Rounding in the velocity cap
+    private static final int MIN_STROKE_GAP = 45; // Frames between the scripted player's lines
+    private static final int MAX_STROKE_GAP = 150;
+    private static final long PLAYER_SALT = 0x5DEECE66DL; // Keeps the player's choices apart from the game's
+    private static final int TICK_BATCH = 4096; // Frames counted locally before being added to the total
+
+    private SoakHarness() {
+    }
+
+    /**
+     * The options of a soak.
+     */
+    static final class Options {
+        String config = "config.json";
+        long ticks = 100_000_000L;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int reportSeconds = 10;
+        String out = "soak-failure.txt";
+        int reproduceLevel = 0; // 0 to soak, otherwise replay one run
+        long reproduceSeed;
+
+        /**
+         * Parses command-line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            CommandLine line = new CommandLine("--soak", args);
+            while (line.next()) {
+                switch (line.option()) {
+                    case "--config":
+                        options.config = line.value();
+                        break;
+                    case "--ticks":
+                        options.ticks = line.longValue();
+                        break;
+                    case "--threads":
+                        options.threads = line.intValue();
+                        break;
+                    case "--seed":
+                        options.seed = line.longValue();
+                        break;
+                    case "--report-every":
+                        options.reportSeconds = line.intValue();
+                        break;
+                    case "--out":
+                        options.out = line.value();
+                        break;
+                    case "--reproduce":
+                        String[] run = line.value().split(":");
+                        if (run.length != 2) {
+                            throw new IllegalArgumentException("--reproduce takes level:seed");
+                        }
+                        try {
+                            options.reproduceLevel = Integer.parseInt(run[0]);
+                            options.reproduceSeed = Long.parseLong(run[1]);
+                        } catch (NumberFormatException e) {
+                            throw line.invalid();
+                        }
+                        break;
+                    default:
+                        throw line.unknown();
+                }
+            }
+            if (options.ticks < 1 || options.threads < 1 || options.reportSeconds < 1 || options.reproduceLevel < 0) {
+                throw new IllegalArgumentException("--ticks, --threads and --report-every must be positive");
+            }
+            return options;
+        }
+    }
+
+    /**
+     * A broken invariant and how to get back to it.
+     */
+    static final class Failure {
+        final int level;
+        final long seed;
+        final long frame; // Frames played when the invariant broke
+        final String message;
+        final String balls; // The balls at that frame
+
+        Failure(int level, long seed, long frame, String message, String balls) {
+            this.level = level;
+            this.seed = seed;
+            this.frame = frame;
+            this.message = message;
+            this.balls = balls;
+        }
+
+        /**
+         * Describes the failure and how to replay it.
+         *
+         * @param config the config path the run played
+         * @return the reproducer, over several lines
+         */
+        String describe(String config) {
+            return "Invariant broken: " + message + "\n"
+                    + "level=" + level + " seed=" + seed + " frame=" + frame + "\n"
+                    + "Replay with: --soak --config " + config + " --reproduce " + level + ":" + seed + "\n"
+                    + balls;
+        }
+    }
+
+    /**
+     * The counts a game's balls must agree with, taken when its level starts.
+     */
+    static final class Baseline {
+        private final int balls;
+        private final int queued;
+
+        Baseline(App game) {
+            this.balls = game.balls.size();
+            this.queued = game.ballSpawnQueue.size();
+        }
+    }
+
+    /**
+     * Checks every invariant of a game.
+     *
+     * @param game the game, between frames
+     * @param baseline the counts taken when the level started
+     * @return a description of the first broken invariant, or null if they all hold
+     */
+    static String check(App game, Baseline baseline) {
+        float right = game.getBoardColumns() * App.CELLSIZE;
+        float bottom = App.TOPBAR + game.getBoardRows() * App.CELLSIZE;
+        WallField walls = game.getWalls();
+        for (int i = 0; i < game.balls.size(); i++) {
+            Ball ball = game.balls.get(i);
+            float x = ball.getX(), y = ball.getY();
+            if (!(x >= 0 && x <= right && y >= App.TOPBAR && y <= bottom)) { // Also catches NaN
+                return "ball " + i + " left the board at " + x + "," + y;
+            }
+            int col = (int) (x / App.CELLSIZE), row = (int) ((y - App.TOPBAR) / App.CELLSIZE);
+            if (walls.isWall(col, row)) {
+                return "ball " + i + " is inside the wall at column " + col + ", row " + row;
+            }
+            float speed = (float) Math.sqrt(ball.getDx() * ball.getDx() + ball.getDy() * ball.getDy());
+            if (speed < ball.getMinSpeed() - SPEED_TOLERANCE || speed > ball.getMaxSpeed() + SPEED_TOLERANCE) {
+                return "ball " + i + " moves at " + speed + ", outside " + ball.getMinSpeed() + ".." + ball.getMaxSpeed();
+            }
+        }
+
+        RunStats stats = game.getStats();
+        int captured = stats.getWrongCaptures();
+        for (int color = 0; color < GameConfig.COLOR_NAMES.length; color++) {
+            captured += stats.getCaptures(color);
+        }
+        int onBoard = baseline.balls + stats.getSpawns() - captured;
+        if (game.balls.size() != onBoard) {
+            return game.balls.size() + " balls on the board, expected " + onBoard + " from " + stats.getSpawns()
+                    + " spawns and " + captured + " captures";
+        }
+        // A spawned ball stays at the front of the queue until the queue has slid along
+        int queued = baseline.queued + stats.getRequeues() - stats.getSpawns() + (game.isQueueShifting() ? 1 : 0);
+        if (game.ballSpawnQueue.size() != queued) {
+            return game.ballSpawnQueue.size() + " balls queued, expected " + queued + " from " + stats.getSpawns()
+                    + " spawns and " + stats.getRequeues() + " requeues";
+        }
+        if (game.getScore() < 0) {
+            return "negative score " + game.getScore();
+        }
+        return null;
+    }
+
+    /**
+     * Plays one level from a seed, checking the invariants after every frame.
+     *
+     * @param config the config path
+     * @param level the level to play, 1-based
+     * @param seed the seed for the game and the scripted player
+     * @param ticks counts the frames played, may be null
+     * @return the first broken invariant or exception, or null if the level ended with all of them holding
+     */
+    static Failure soakRun(String config, int level, long seed, LongAdder ticks) {
+        App game = null;
+        long frame = 0; // Outside the try, so an exception is reported at the frame that threw it
+        int unreported = 0;
+        String broken;
+        try {
+            game = App.createHeadless(config, level, seed);
+            Baseline baseline = new Baseline(game);
+            Random player = new Random(seed ^ PLAYER_SALT);
+            long cap = BatchRunner.frameCap(GameConfig.load(config).getLevel(level));
+            int right = Math.min(App.WIDTH, game.getBoardColumns() * App.CELLSIZE);
+            int bottom = Math.min(App.HEIGHT, App.TOPBAR + game.getBoardRows() * App.CELLSIZE);
+
+            long nextStroke = MIN_STROKE_GAP;
+            broken = check(game, baseline);
+            while (broken == null && frame < cap && !game.isTimeDrained() && !game.isLevelFailed()) {
+                if (frame == nextStroke) {
+                    float x = player.nextInt(right), y = App.TOPBAR + player.nextInt(bottom - App.TOPBAR);
+                    Solver.draw(game, new float[] { x, y, x + player.nextInt(121) - 60, y + player.nextInt(121) - 60 });
+                    nextStroke += MIN_STROKE_GAP + player.nextInt(MAX_STROKE_GAP - MIN_STROKE_GAP);
+                }
+                game.update();
+                frame++;
+                broken = check(game, baseline);
+                if (ticks != null && ++unreported == TICK_BATCH) {
+                    ticks.add(unreported);
+                    unreported = 0;
+                }
+            }
+        } catch (RuntimeException e) {
+            StackTraceElement[] trace = e.getStackTrace();
+            broken = "threw " + e + (trace.length > 0 ? " at " + trace[0] : "");
+        }
+        if (ticks != null) {
+            ticks.add(unreported);
+        }
+        return broken == null ? null : new Failure(level, seed, frame, broken, game == null ? "" : describeBalls(game));
+    }
+
+    private static String describeBalls(App game) {
+        StringBuilder balls = new StringBuilder();
+        for (int i = 0; i < game.balls.size(); i++) {
+            Ball ball = game.balls.get(i);
+            balls.append("ball ").append(i).append(": color=").append(ball.getColorIndex()).append(" x=").append(ball.getX())
+                    .append(" y=").append(ball.getY()).append(" dx=").append(ball.getDx()).append(" dy=").append(ball.getDy())
+                    .append(" radius=").append(ball.getRadius()).append('\n');
+        }
+        return balls.toString();
+    }
+
+    /**
+     * Runs a soak, or replays one run, from command-line arguments.
+     *
+     * @param args the command-line arguments
+     * @return the process exit code: 0 if every invariant held, 1 if one broke, 2 for bad arguments
+     */
+    public static int run(String[] args) {
+        return CommandLine.run(args, USAGE, "Cannot write the reproducer", arguments -> {
+            Options options = Options.parse(arguments);
+            CommandLine.requireLevel(options.config, options.reproduceLevel);
+            return options;
+        }, options -> {
+            if (options.reproduceLevel > 0) {
+                Failure failure = soakRun(options.config, options.reproduceLevel, options.reproduceSeed, null);
+                System.out.print(failure == null ? "Every invariant held\n" : failure.describe(options.config));
+                return failure == null ? CommandLine.OK : CommandLine.FAILED;
+            }
+
+            Failure failure = soak(options, GameConfig.load(options.config).getLevelCount());
+            if (failure == null) {
+                return CommandLine.OK;
+            }
+            String reproducer = failure.describe(options.config);
+            System.err.print(reproducer);
+            Files.write(Paths.get(options.out), reproducer.getBytes(StandardCharsets.UTF_8));
+            System.err.println("Reproducer written to " + options.out);
+            return CommandLine.FAILED;
+        });
+    }
+
+    /**
+     * Plays runs on a pool of threads until the requested number of frames or the first broken
+     * invariant, reporting progress on standard error.
+     *
+     * @param options the soak to run
+     * @param levels the number of levels in the config; runs cycle through them
+     * @return the first broken invariant, or null
+     * @throws InterruptedException if interrupted while waiting for the runs
+     */
+    static Failure soak(Options options, int levels) throws InterruptedException {
+        LongAdder ticks = new LongAdder();
+        AtomicLong nextRun = new AtomicLong();
+        AtomicReference<Failure> failure = new AtomicReference<>();
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        for (int t = 0; t < options.threads; t++) {
+            pool.execute(() -> {
+                while (failure.get() == null && ticks.sum() < options.ticks) {
+                    long run = nextRun.getAndIncrement();
+                    int level = (int) (run % levels) + 1;
+                    Failure broken = soakRun(options.config, level, BatchRunner.seedFor(options.seed, level, (int) run),
+                            ticks);
+                    if (broken != null) {
+                        failure.compareAndSet(null, broken);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+
+        long start = System.nanoTime();
+        List<double[]> heap = new ArrayList<>(); // Minutes since the start : live megabytes
+        long lastTicks = 0, lastTime = start;
+        while (!pool.awaitTermination(options.reportSeconds, TimeUnit.SECONDS)) {
+            long now = System.nanoTime(), total = ticks.sum();
+            heap.add(new double[] { (now - start) / 60e9, liveHeap() });
+            System.err.println(String.format("%,d ticks, %,.0f ticks/s (%,.0f overall), %d runs, heap %.1f MB,"
+                            + " trend %+.2f MB/min", total, (total - lastTicks) * 1e9 / (now - lastTime),
+                    total * 1e9 / (now - start), nextRun.get(), heap.get(heap.size() - 1)[1], slope(heap)));
+            lastTicks = total;
+            lastTime = now;
+        }
+        long total = ticks.sum();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.println(String.format("Soaked %,d ticks in %.1f s: %,.0f ticks/s over %d runs, heap %.1f MB%s",
+                total, seconds, total / Math.max(seconds, 1e-9), nextRun.get(), liveHeap(),
+                heap.size() < 2 ? "" : String.format(", trend %+.2f MB/min", slope(heap))));
+        return failure.get();
+    }
+
+    /**
+     * Returns the heap still in use after a full garbage collection, which only grows over time
+     * if something leaks. Collects first, so it is only called once per report.
+     *
+     * @return the live heap in megabytes
+     */
+    static double liveHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+    }
+
+    /**
+     * Fits a line to samples by least squares.
+     *
+     * @param samples x, y pairs
+     * @return the slope, 0 for fewer than two distinct x values
+     */
+    static double slope(List<double[]> samples) {
+        int n = samples.size();
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (double[] sample : samples) {
+            sx += sample[0];
+            sy += sample[1];
+            sxx += sample[0] * sample[0];
+            sxy += sample[0] * sample[1];
+        }
+        double denominator = n * sxx - sx * sx;
+        return n < 2 || denominator == 0 ? 0 : (n * sxy - sx * sy) / denominator;
+    }
+}
@@ -0,0 +1,377 @@
+package inkball;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import processing.core.PConstants;
+
+/**
+ * Ranks squiggle placements on a level by Monte Carlo rollouts, for level QA. Random straight
+ * strokes are generated on open parts of the board, plus an empty placement as a baseline,
+ * and each is drawn at the start of the level and played out many times with different seeds
+ * for the spawners and spawn directions. Placements are ranked by their mean final score.
+ *
+ * <p>The level is loaded once: every placement starts from a {@link App#fork(long) fork} of that
+ * game, and every rollout from a fork of the placement. All placements are played against the
+ * same rollout seeds, so differences between them are not drowned out by the luck of the spawns.
+ * Placements are evaluated in parallel. When there are fewer placements than threads, each
+ * placement's rollouts are split into parts that run on their own threads, every part playing
+ * from its own fork of the placement, so a search of a handful of placements still uses every
+ * thread.
+ *
+ * <pre>
+ * java -jar inkball.jar --solve [--config config.json] [--level L] [--candidates N]
+ *                       [--rollouts R] [--threads T] [--seed S] [--top K]
+ * </pre>
+ */
+public final class Solver {
+    static final String HEADER = "rank,candidate,mean_score,std_error,completion,stroke";
+    static final String USAGE = "--solve [--config config.json] [--level L] [--candidates N] [--rollouts R]"
+            + " [--threads T] [--seed S] [--top K]";
+
+    private static final int MIN_STROKE = 48; // Pixels
+    private static final int MAX_STROKE = 160;
+    private static final int MAX_ATTEMPTS = 1000; // Per stroke, before giving up on a crowded board
+
+    private Solver() {
+    }
+
+    /**
+     * The options of a search.
+     */
+    static final class Options {
+        String config = "config.json";
+        int level = 1;
+        int candidates = 64;
+        int rollouts = 32;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int top = 10;
+
+        /**
+         * Parses command-line arguments.
+         *
+         * @param args the arguments
+         * @return the options
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            CommandLine line = new CommandLine("--solve", args);
+            while (line.next()) {
+                switch (line.option()) {
+                    case "--config":
+                        options.config = line.value();
+                        break;
+                    case "--level":
+                        options.level = line.intValue();
+                        break;
+                    case "--candidates":
+                        options.candidates = line.intValue();
+                        break;
+                    case "--rollouts":
+                        options.rollouts = line.intValue();
+                        break;
+                    case "--threads":
+                        options.threads = line.intValue();
+                        break;
+                    case "--seed":
+                        options.seed = line.longValue();
+                        break;
+                    case "--top":
+                        options.top = line.intValue();
+                        break;
+                    default:
+                        throw line.unknown();
+                }
+            }
+            if (options.level < 1 || options.candidates < 0 || options.rollouts < 1 || options.threads < 1
+                    || options.top < 1) {
+                throw new IllegalArgumentException("--level, --rollouts, --threads and --top must be positive"
+                        + " and --candidates not negative");
+            }
+            return options;
+        }
+    }
+
+    /**
+     * A squiggle placement and how it fared.
+     */
+    static final class Candidate {
+        private final int id;
+        private final float[] stroke; // Packed window coordinates, empty for no squiggle
+        private double meanScore;
+        private double stdError;
+        private double completion; // Fraction of rollouts that cleared the level
+
+        Candidate(int id, float[] stroke) {
+            this.id = id;
+            this.stroke = stroke;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        float[] getStroke() {
+            return stroke;
+        }
+
+        double getMeanScore() {
+            return meanScore;
+        }
+
+        double getStdError() {
+            return stdError;
+        }
+
+        double getCompletion() {
+            return completion;
+        }
+
+        private void record(Tally tally, int n) {
+            meanScore = tally.sum / n;
+            double variance = n > 1 ? Math.max(0, (tally.sumOfSquares - tally.sum * tally.sum / n) / (n - 1)) : 0;
+            stdError = Math.sqrt(variance / n);
+            completion = (double) tally.completed / n;
+        }
+
+        /**
+         * Describes the candidate as a CSV row.
+         *
+         * @param rank the candidate's rank, from 1
+         * @return the row
+         */
+        String toRow(int rank) {
+            StringBuilder row = new StringBuilder();
+            row.append(rank).append(',').append(id).append(',').append(String.format("%.2f", meanScore)).append(',')
+                    .append(String.format("%.2f", stdError)).append(',').append(String.format("%.3f", completion))
+                    .append(',');
+            for (int i = 0; i < stroke.length; i += 2) {
+                row.append(i == 0 ? "" : " ").append((int) stroke[i]).append(':').append((int) stroke[i + 1]);
+            }
+            return row.toString();
+        }
+    }
+
+    /**
+     * The scores of some of a candidate's rollouts. Scores are whole numbers, so the sums are
+     * exact and do not depend on how the rollouts were split.
+     */
+    private static final class Tally {
+        double sum;
+        double sumOfSquares;
+        int completed; // Rollouts that cleared the level
+
+        void add(Tally other) {
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+            completed += other.completed;
+        }
+    }
+
+    /**
+     * The outcome of a search.
+     */
+    static final class Result {
+        final List<Candidate> ranked; // Best first
+        final long rollouts;
+        final long nanos;
+
+        Result(List<Candidate> ranked, long rollouts, long nanos) {
+            this.ranked = ranked;
+            this.rollouts = rollouts;
+            this.nanos = nanos;
+        }
+
+        double getRolloutsPerSecond() {
+            return rollouts * 1e9 / Math.max(1, nanos);
+        }
+    }
+
+    /**
+     * Runs a search from command-line arguments, writing the best placements as CSV to standard
+     * output and the throughput to standard error.
+     *
+     * @param args the command-line arguments
+     * @return the process exit code: 0 on success, 2 for bad arguments, 1 if the search failed
+     */
+    public static int run(String[] args) {
+        return CommandLine.run(args, USAGE, "Search failed", arguments -> {
+            Options options = Options.parse(arguments);
+            CommandLine.requireLevel(options.config, options.level);
+            return options;
+        }, options -> {
+            Result result = solve(options);
+            System.out.println(HEADER);
+            for (int i = 0; i < Math.min(options.top, result.ranked.size()); i++) {
+                System.out.println(result.ranked.get(i).toRow(i + 1));
+            }
+            System.err.println(String.format("%d rollouts in %.2f s: %.0f rollouts/s on %d threads",
+                    result.rollouts, result.nanos / 1e9, result.getRolloutsPerSecond(), options.threads));
+            return CommandLine.OK;
+        });
+    }
+
+    /**
+     * Generates the candidates of a search and plays out every one of them.
+     *
+     * @param options the search to run
+     * @return every candidate, ranked by mean score and then completion rate
+     * @throws ExecutionException if a rollout fails
+     * @throws InterruptedException if interrupted while waiting for rollouts
+     */
+    static Result solve(Options options) throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        App base = App.createHeadless(options.config, options.level, options.seed);
+        long cap = BatchRunner.frameCap(GameConfig.load(options.config).getLevel(options.level));
+        List<Candidate> candidates = generate(base, options.candidates, new Random(options.seed));
+
+        // Fork on this thread: a game must not be forked while another thread is using it
+        int parts = parts(candidates.size(), options.rollouts, options.threads);
+        List<App> starts = new ArrayList<>(candidates.size() * parts);
+        for (Candidate candidate : candidates) {
+            for (int part = 0; part < parts; part++) {
+                App startOfLevel = base.fork(options.seed);
+                draw(startOfLevel, candidate.getStroke());
+                starts.add(startOfLevel);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<Tally>> tallies = new ArrayList<>(starts.size());
+            for (int i = 0; i < starts.size(); i++) {
+                App startOfLevel = starts.get(i);
+                int part = i % parts;
+                int from = part * options.rollouts / parts, to = (part + 1) * options.rollouts / parts;
+                tallies.add(pool.submit(() -> evaluate(startOfLevel, options, cap, from, to)));
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                Tally total = new Tally();
+                for (int part = 0; part < parts; part++) {
+                    total.add(tallies.get(i * parts + part).get());
+                }
+                candidates.get(i).record(total, options.rollouts);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Candidate> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble(Candidate::getMeanScore)
+                .thenComparingDouble(Candidate::getCompletion).reversed()
+                .thenComparingInt(Candidate::getId));
+        return new Result(Collections.unmodifiableList(ranked), (long) candidates.size() * options.rollouts,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Generates random straight strokes whose points all lie on open tiles in the window,
+     * after an empty placement.
+     *
+     * @param game the game at the start of the level
+     * @param count the number of strokes
+     * @param random the source of the strokes
+     * @return the candidates, numbered from 0 for the empty placement
+     */
+    static List<Candidate> generate(App game, int count, Random random) {
+        List<Candidate> candidates = new ArrayList<>(count + 1);
+        candidates.add(new Candidate(0, new float[0]));
+        float right = Math.min(App.WIDTH, game.getBoardColumns() * App.CELLSIZE) - 1;
+        float bottom = Math.min(App.HEIGHT, App.TOPBAR + game.getBoardRows() * App.CELLSIZE) - 1;
+        for (int i = 1; i <= count; i++) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                float x1 = random.nextFloat() * right;
+                float y1 = App.TOPBAR + random.nextFloat() * (bottom - App.TOPBAR);
+                double angle = random.nextDouble() * Math.PI * 2;
+                float length = MIN_STROKE + random.nextFloat() * (MAX_STROKE - MIN_STROKE);
+                float x2 = x1 + (float) Math.cos(angle) * length;
+                float y2 = y1 + (float) Math.sin(angle) * length;
+                if (x2 >= 0 && x2 <= right && y2 >= App.TOPBAR && y2 <= bottom
+                        && isOpen(game, x1, y1) && isOpen(game, x2, y2) && isOpen(game, (x1 + x2) / 2, (y1 + y2) / 2)) {
+                    candidates.add(new Candidate(i, new float[] { x1, y1, x2, y2 }));
+                    break;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean isOpen(App game, float x, float y) {
+        return !game.getWalls().isWall((int) (x / App.CELLSIZE), (int) ((y - App.TOPBAR) / App.CELLSIZE));
+    }
+
+    /**
+     * Draws a stroke into a game as the player would, with the left mouse button.
+     *
+     * @param game the game
+     * @param stroke packed window coordinates of the points, empty for none
+     */
+    static void draw(App game, float[] stroke) {
+        if (stroke.length < 4) {
+            return;
+        }
+        int last = stroke.length - 2;
+        game.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, 0, stroke[0], stroke[1], PConstants.LEFT));
+        for (int i = 2; i <= last; i += 2) {
+            game.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, 0, stroke[i], stroke[i + 1],
+                    PConstants.LEFT));
+        }
+        game.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_RELEASED, 0, stroke[last], stroke[last + 1],
+                PConstants.LEFT));
+        game.processInput();
+    }
+
+    /**
+     * Returns how many parts to split each candidate's rollouts into, so that there are at
+     * least as many tasks as threads.
+     *
+     * @param candidates the number of candidates
+     * @param rollouts the rollouts per candidate
+     * @param threads the number of threads
+     * @return the parts per candidate, between 1 and the number of rollouts
+     */
+    static int parts(int candidates, int rollouts, int threads) {
+        int parts = (threads + candidates - 1) / Math.max(1, candidates);
+        return Math.max(1, Math.min(rollouts, parts));
+    }
+
+    /**
+     * Plays out part of a candidate's rollouts from its own start of the level, once per
+     * rollout seed.
+     */
+    private static Tally evaluate(App startOfLevel, Options options, long cap, int from, int to) {
+        Tally tally = new Tally();
+        for (int r = from; r < to; r++) {
+            App game = startOfLevel.fork(BatchRunner.seedFor(options.seed, options.level, r));
+            int score = rollout(game, cap);
+            tally.sum += score;
+            tally.sumOfSquares += (double) score * score;
+            if (game.isTimeDrained()) {
+                tally.completed++;
+            }
+        }
+        return tally;
+    }
+
+    /**
+     * Plays a game until its level is won and the time bonus counted, the time runs out, or the
+     * frame cap is reached.
+     *
+     * @param game the game
+     * @param cap the most frames to play
+     * @return the final score
+     */
+    static int rollout(App game, long cap) {
+        BatchRunner.playOut(game, cap);
+        return game.getScoreLedger().getTotal();
+    }
+}
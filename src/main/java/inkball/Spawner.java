@@ -30,6 +30,16 @@ public class Spawner extends Tile {
      * @return the index corresponding to the color, or 0 if unknown
      */
     public int getColorIndex(String color) {
+        return colorIndexOf(color);
+    }
+
+    /**
+     * Static form of {@link #getColorIndex(String)}, usable without a spawner instance.
+     *
+     * @param color the name of the color (case-insensitive)
+     * @return the index corresponding to the color, or 0 if unknown
+     */
+    public static int colorIndexOf(String color) {
         switch (color.toLowerCase()) {
             case "grey": return 0;
             case "orange": return 1;
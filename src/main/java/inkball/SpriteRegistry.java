@@ -0,0 +1,103 @@
+package inkball;
+
+import processing.core.PApplet;
+import processing.core.PImage;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Process-wide, immutable collection of the game's sprites.
+ * The sprites are decoded once, in parallel on a background executor, the first time
+ * they are requested. Every later call (restarts, level changes, other {@link App} instances)
+ * reuses the same registry instead of decoding the images again.
+ */
+public final class SpriteRegistry {
+    private static final String SPRITE_DIR = "src/main/resources/inkball/";
+    static final String[] SPRITE_NAMES = {
+            "wall0", "wall1", "wall2", "wall3", "wall4",
+            "ball0", "ball1", "ball2", "ball3", "ball4",
+            "hole0", "hole1", "hole2", "hole3", "hole4",
+            "entrypoint", "tile"
+    };
+
+    private static Future<SpriteRegistry> pending; // Shared by every App in the process
+
+    private final Map<String, PImage> sprites; // Name : PImage
+
+    private SpriteRegistry(Map<String, PImage> sprites) {
+        this.sprites = Collections.unmodifiableMap(sprites);
+    }
+
+    /**
+     * Starts decoding the sprites in the background if that has not happened yet.
+     * Safe to call repeatedly; only the first call does any work.
+     *
+     * @param app the sketch used to resolve and decode the image files
+     * @return a future completing with the shared registry
+     */
+    public static synchronized Future<SpriteRegistry> preload(PApplet app) {
+        if (pending == null) {
+            pending = decodeAll(app);
+        }
+        return pending;
+    }
+
+    /**
+     * Returns the shared registry, waiting for the background decoding to finish if needed.
+     *
+     * @param app the sketch used to decode the images if loading has not started yet
+     * @return the shared sprite registry
+     */
+    public static SpriteRegistry get(PApplet app) {
+        Future<SpriteRegistry> future = preload(app);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading sprites", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load sprites", e.getCause());
+        }
+    }
+
+    /**
+     * Decodes every sprite on its own worker thread and assembles the results into a registry.
+     *
+     * @param app the sketch used to decode the image files
+     * @return a future completing once every sprite has been decoded
+     */
+    private static Future<SpriteRegistry> decodeAll(PApplet app) {
+        int threads = Math.min(SPRITE_NAMES.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sprite-loader");
+            thread.setDaemon(true); // Never keep the JVM alive just for sprite loading
+            return thread;
+        });
+
+        Map<String, CompletableFuture<PImage>> decoding = new LinkedHashMap<>();
+        for (String name : SPRITE_NAMES) {
+            decoding.put(name, CompletableFuture.supplyAsync(
+                    () -> app.loadImage(SPRITE_DIR + name + ".png"), executor));
+        }
+
+        CompletableFuture<SpriteRegistry> registry = CompletableFuture
+                .allOf(decoding.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    Map<String, PImage> sprites = new HashMap<>();
+                    decoding.forEach((name, image) -> sprites.put(name, image.join()));
+                    return new SpriteRegistry(sprites);
+                });
+        registry.whenComplete((result, error) -> executor.shutdown());
+        return registry;
+    }
+
+    /**
+     * Retrieves a sprite by name.
+     *
+     * @param name the sprite name, e.g. "wall0" or "ball3"
+     * @return the sprite, or null if there is no sprite with that name
+     */
+    public PImage get(String name) {
+        return sprites.get(name);
+    }
+}
@@ -2,28 +2,115 @@ package inkball;
 
 import processing.core.PApplet;
 import processing.core.PVector;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 /**
  * Represents a 'squiggle' or player-drawn line.
  * A squiggle consists of multiple points connected as a line, which can interact with balls
  * by detecting collisions and reflecting their movement.
+ *
+ * <p>Squiggles with a positive tolerance are simplified as they are drawn: while the points
+ * since the last kept vertex all lie within the tolerance of a single segment, and that
+ * segment's direction (and so its reflection normal) is within {@link #MAX_NORMAL_ERROR} of the
+ * segment it replaces, the end of the line is moved instead of a new segment being added.
+ *
+ * <p>Points are stored packed as {@code x0, y0, x1, y1, ...} in a single array. A squiggle that
+ * is drawing with an {@link InkBudget} can only grow while the budget has ink left, and once
+ * drawing is finished {@link #compact()} trims the storage of an unusually long line, keeping
+ * {@link #POOLED_CAPACITY} points so squiggles redrawn from a {@link Pool} do not grow again.
  */
 public class Squiggle {
-    private LinkedList<PVector> points;
+    private float[] coords; // Packed point coordinates
+    private int count = 0; // Number of points
+    private float length = 0; // Total length of the segments, in pixels
     private float lineWidth;
     private boolean removed;
     private boolean collisionHandled = false;
     public static final int MAX_NUM_POINTS = 600; // Why would you need a line this long??!?!?
+    public static final float DEFAULT_TOLERANCE = 2; // Pixels a drawn point may be moved by simplification
+    public static final float MAX_NORMAL_ERROR = (float) Math.toRadians(10); // Largest change to a segment's normal
+    private static final float MAX_NORMAL_SLOPE = (float) Math.tan(MAX_NORMAL_ERROR);
+    private static final int MAX_RUN = 64; // Most drawn points merged into one segment
+    private static final int INITIAL_CAPACITY = 16; // Points
+    static final int POOLED_CAPACITY = 64; // Points a compacted squiggle keeps room for
+    private float tolerance;
+    private InkBudget ink; // Null for unlimited ink
+    private float[] run; // Packed points drawn since the last kept vertex, allocated when first simplifying
+    private int runCount = 0;
+    private boolean drawing = true; // Whether new points are still merged into the line
 
     /**
      * Constructs a new {@code Squiggle} with default settings.
      * Initializes an empty list of points and sets the default line width.
+     * Every point added is kept, and there is no limit on ink.
      */
     public Squiggle() {
-        points = new LinkedList<>();
+        this(0);
+    }
+
+    /**
+     * Constructs a new {@code Squiggle} that simplifies its line as points are added.
+     *
+     * @param tolerance how far, in pixels, a drawn point may lie from the simplified line;
+     *                  0 or less keeps every point
+     */
+    public Squiggle(float tolerance) {
+        this(tolerance, null);
+    }
+
+    /**
+     * Constructs a new {@code Squiggle} that simplifies its line and draws from an ink budget.
+     *
+     * @param tolerance how far, in pixels, a drawn point may lie from the simplified line;
+     *                  0 or less keeps every point
+     * @param ink the budget new segments take their length from, or null for unlimited ink
+     */
+    public Squiggle(float tolerance, InkBudget ink) {
+        coords = new float[INITIAL_CAPACITY * 2];
         lineWidth = 10;
+        reset(tolerance, ink);
+    }
+
+    /**
+     * Empties a pooled squiggle so it can be drawn again, keeping its point storage.
+     *
+     * @param tolerance how far, in pixels, a drawn point may lie from the simplified line;
+     *                  0 or less keeps every point
+     * @param ink the budget new segments take their length from, or null for unlimited ink
+     * @return this squiggle
+     */
+    Squiggle reset(float tolerance, InkBudget ink) {
+        this.tolerance = tolerance;
+        this.ink = ink;
+        count = 0;
+        length = 0;
         removed = false;
+        collisionHandled = false;
+        runCount = 0;
+        drawing = true;
+        return this;
+    }
+
+    /**
+     * Makes a reset squiggle a copy of the line of another, e.g. when forking a game. The copy
+     * has finished drawing, and takes no ink: its owner copies the budget along with it.
+     *
+     * @param other the squiggle to copy
+     * @return this squiggle
+     */
+    Squiggle copyFrom(Squiggle other) {
+        if (coords.length < other.count * 2) {
+            coords = new float[other.count * 2];
+        }
+        System.arraycopy(other.coords, 0, coords, 0, other.count * 2);
+        count = other.count;
+        length = other.length;
+        lineWidth = other.lineWidth;
+        removed = other.removed;
+        collisionHandled = other.collisionHandled;
+        finishDrawing();
+        return this;
     }
 
     /**
@@ -33,15 +120,7 @@ public class Squiggle {
      * @return {@code true} if the ball is colliding with the squiggle, {@code false} otherwise
      */
     public boolean isCollidingWithBall(Ball ball) {
-        PVector ballCenter = new PVector(ball.getX(), ball.getY());
-        for (int i = 1; i < points.size(); i++) {
-            PVector p1 = points.get(i - 1);
-            PVector p2 = points.get(i);
-            if (distToLineSegment(ballCenter, p1, p2) <= ball.getRadius()) {
-                return true;
-            }
-        }
-        return false;
+        return findSegment(ball.getX(), ball.getY(), ball.getRadius()) >= 0;
     }
 
     /**
@@ -54,17 +133,99 @@ public class Squiggle {
         if (collisionHandled)
             return;
 
-        PVector ballCenter = getBallCenter(ball);
+        Contact contact = new Contact();
+        if (findContact(ball, contact)) {
+            resolve(ball, contact);
+        }
+    }
 
-        for (int i = 1; i < points.size(); i++) {
-            PVector p1 = points.get(i - 1);
-            PVector p2 = points.get(i);
+    /**
+     * Finds where a ball touches the squiggle, in a single pass over the segments.
+     * When the ball overlaps several segments, the one closest to its center is reported.
+     *
+     * @param ball the ball to test
+     * @param contact filled in with the segment, closest point, normal and penetration on a hit
+     * @return true if the ball touches the squiggle
+     */
+    public boolean findContact(Ball ball, Contact contact) {
+        float px = ball.getX();
+        float py = ball.getY();
+        float radius = ball.getRadius();
+        int best = -1;
+        float bestDistSq = radius * radius;
+        float bestX = 0, bestY = 0;
 
-            if (distToLineSegment(ballCenter, p1, p2) <= ball.getRadius()) {
-                reflectBall(ball, p1, p2);
-                return;
+        for (int i = 1; i < count; i++) {
+            int j = (i - 1) * 2;
+            float x1 = coords[j], y1 = coords[j + 1];
+            float dx = coords[j + 2] - x1, dy = coords[j + 3] - y1;
+            float lengthSquared = dx * dx + dy * dy;
+            float t = lengthSquared == 0 ? 0 : PApplet.constrain(((px - x1) * dx + (py - y1) * dy) / lengthSquared, 0, 1);
+            float cx = x1 + dx * t, cy = y1 + dy * t; // Closest point on the segment
+            float distSq = (px - cx) * (px - cx) + (py - cy) * (py - cy);
+            if (distSq <= bestDistSq) {
+                best = i - 1;
+                bestDistSq = distSq;
+                bestX = cx;
+                bestY = cy;
+            }
+        }
+        if (best < 0) {
+            return false;
+        }
+
+        // The reflection normal is perpendicular to the segment, facing the ball
+        int j = best * 2;
+        float segX = coords[j + 2] - coords[j], segY = coords[j + 3] - coords[j + 1];
+        float normalX = -segY, normalY = segX;
+        float normalLength = PApplet.sqrt(normalX * normalX + normalY * normalY);
+        if (normalLength == 0) { // Zero-length segment: push straight away from the point
+            normalX = px - bestX;
+            normalY = py - bestY;
+            normalLength = PApplet.sqrt(normalX * normalX + normalY * normalY);
+        }
+        if (normalLength > 0) {
+            normalX /= normalLength;
+            normalY /= normalLength;
+        }
+        if (normalX * (px - bestX) + normalY * (py - bestY) < 0) {
+            normalX = -normalX;
+            normalY = -normalY;
+        }
+        contact.setSegment(best, bestX, bestY, normalX, normalY, radius - PApplet.sqrt(bestDistSq));
+        return true;
+    }
+
+    /**
+     * Reflects a ball off the segment of a contact found by {@link #findContact(Ball, Contact)},
+     * at most once until the collision flag is reset.
+     *
+     * @param ball the ball involved in the collision
+     * @param contact the contact between the ball and this squiggle
+     */
+    public void resolve(Ball ball, Contact contact) {
+        if (collisionHandled)
+            return;
+        contact.reflect(ball);
+        collisionHandled = true;
+    }
+
+    /**
+     * Finds the first segment within a given distance of a point.
+     *
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param distance the largest distance that counts as touching
+     * @return the index of the segment's first point, or -1 if no segment is close enough
+     */
+    private int findSegment(float x, float y, float distance) {
+        for (int i = 1; i < count; i++) {
+            int j = (i - 1) * 2;
+            if (distToSegment(x, y, coords[j], coords[j + 1], coords[j + 2], coords[j + 3]) <= distance) {
+                return i - 1;
             }
         }
+        return -1;
     }
 
     /**
@@ -83,23 +244,26 @@ public class Squiggle {
      * @return the shortest distance from the point to the line segment
      */
     float distToLineSegment(PVector point, PVector start, PVector end) {
-        float lengthSquared = PVector.dist(start, end) * PVector.dist(start, end);
+        return distToSegment(point.x, point.y, start.x, start.y, end.x, end.y);
+    }
+
+    /**
+     * Calculates the shortest distance from a point to a line segment given by its end points.
+     */
+    static float distToSegment(float px, float py, float x1, float y1, float x2, float y2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float lengthSquared = dx * dx + dy * dy;
 
         if (lengthSquared == 0.0) { // If the segment length is 0, treat it as a point
-            return PVector.dist(point, start);
+            return PApplet.dist(px, py, x1, y1);
         }
 
-        // Calculate the projection factor 't' of 'point' onto the segment's line
-        PVector startToPoint = PVector.sub(point, start);
-        PVector startToEnd = PVector.sub(end, start);
-        float t = PVector.dot(startToPoint, startToEnd) / lengthSquared;
-
+        // Calculate the projection factor 't' of the point onto the segment's line
+        float t = ((px - x1) * dx + (py - y1) * dy) / lengthSquared;
         t = PApplet.constrain(t, 0, 1); // normalize to [0,1]
-        PVector proj = PVector.add(start, PVector.mult(startToEnd, t));
-        // Return the distance from the original point to the projected point on the
-        // segment
-        return PVector.dist(point, proj);
-
+        // Return the distance from the original point to the projected point on the segment
+        return PApplet.dist(px, py, x1 + dx * t, y1 + dy * t);
     }
 
     /**
@@ -110,102 +274,223 @@ public class Squiggle {
      * @return {@code true} if the point lies on the squiggle, {@code false} otherwise
      */
     public boolean containsPoint(float x, float y) {
-        PVector point = new PVector(x, y);
-        for (int i = 1; i < points.size(); i++) {
-            PVector p1 = points.get(i - 1);
-            PVector p2 = points.get(i);
-            if (distToLineSegment(point, p1, p2) <= lineWidth / 2) {
-                return true;
-            }
-        }
-        return false;
+        return findSegment(x, y, lineWidth / 2) >= 0;
+    }
+
+    // Getters and setters:
+
+    public void pendingRemoval() {
+        removed = true;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    public boolean collisionHandled() {
+        return collisionHandled;
     }
 
     /**
-     * Reflects the ball's velocity based on the line segment it collides with.
+     * Returns a copy of the squiggle's points.
      *
-     * @param ball the ball to reflect
-     * @param p1 the starting point of the line segment
-     * @param p2 the ending point of the line segment
+     * @return the points, in drawing order
      */
-    private void reflectBall(Ball ball, PVector p1, PVector p2) {
-        PVector lineVector = PVector.sub(p2, p1); // Line segment vector
-        PVector normal = getNormalVector(lineVector); // Normal vector to the line segment
+    public LinkedList<PVector> getPoints() {
+        LinkedList<PVector> points = new LinkedList<>();
+        for (int i = 0; i < count; i++) {
+            points.add(new PVector(coords[i * 2], coords[i * 2 + 1]));
+        }
+        return points;
+    }
+
+    public int getPointCount() {
+        return count;
+    }
 
-        PVector ballVelocity = new PVector(ball.getDx(), ball.getDy());
-        PVector newTrajectory = computeNewTraj(ballVelocity, normal);
+    public float getX(int i) {
+        return coords[i * 2];
+    }
 
-        // Update the ball's velocity with the reflected values
-        ball.setDx(newTrajectory.x);
-        ball.setDy(newTrajectory.y);
+    public float getY(int i) {
+        return coords[i * 2 + 1];
     }
 
     /**
-     * Calculates the unit normal vector to a given line segment.
+     * Returns the total length of the squiggle, which is the ink it holds.
      *
-     * @param lineVector the vector representing the line segment
-     * @return the normalized normal vector to the line segment
+     * @return the length in pixels
      */
-    private PVector getNormalVector(PVector lineVector) { // returns unit normal
-        PVector normal = new PVector(-lineVector.y, lineVector.x);
-        return normal.normalize(); // Ensure the vector has unit length
+    public float getLength() {
+        return length;
     }
 
     /**
-     * Computes the new trajectory of the ball after reflecting off a normal vector.
+     * Adds a new point to the squiggle, or extends the last segment to it if the line can be
+     * simplified. New line is only drawn while the ink budget allows it; a point beyond the
+     * remaining ink is pulled back to where the ink runs out. If the maximum number of points
+     * is exceeded, the oldest point is removed to maintain the size limit.
      *
-     * @param velocity the current velocity of the ball
-     * @param normal the normal vector of the line segment
-     * @return the new trajectory vector after reflection
+     * @param x the x-coordinate of the new point
+     * @param y the y-coordinate of the new point
      */
-    private PVector computeNewTraj(PVector velocity, PVector normal) {
-        return PVector.sub(velocity, PVector.mult(normal, 2 * velocity.dot(normal)));
-    }
+    public void addPoint(float x, float y) {
+        if (count == 0) {
+            append(x, y); // A single point has no length, so it is always free
+            return;
+        }
+        int last = (count - 1) * 2;
 
-    // Getters and setters:
+        if (tolerance > 0 && drawing && canExtendTo(x, y)) {
+            int anchor = last - 2;
+            float oldLength = PApplet.dist(coords[anchor], coords[anchor + 1], coords[last], coords[last + 1]);
+            float newLength = PApplet.dist(coords[anchor], coords[anchor + 1], x, y);
+            float extra = newLength - oldLength;
+            if (ink == null || extra <= ink.getRemaining()) {
+                if (ink != null) {
+                    if (extra > 0) {
+                        ink.take(extra);
+                    } else {
+                        ink.release(-extra);
+                    }
+                }
+                length += extra;
+                coords[last] = x; // Move the end of the line instead of adding a segment
+                coords[last + 1] = y;
+                addToRun(x, y);
+                return;
+            }
+        }
 
-    public void pendingRemoval() {
-        removed = true;
+        float segment = PApplet.dist(coords[last], coords[last + 1], x, y);
+        if (ink != null && segment > 0) {
+            float granted = ink.take(segment);
+            if (granted <= 0) {
+                return; // Out of ink
+            }
+            if (granted < segment) { // Stop the line where the ink runs out
+                x = coords[last] + (x - coords[last]) * granted / segment;
+                y = coords[last + 1] + (y - coords[last + 1]) * granted / segment;
+                segment = granted;
+            }
+        }
+        length += segment;
+        append(x, y);
+        if (drawing && tolerance > 0) {
+            runCount = 0; // The previous end of the line is now a kept vertex
+            addToRun(x, y);
+        }
     }
 
-    public boolean isRemoved() {
-        return removed;
+    private void addToRun(float x, float y) {
+        if (run == null) {
+            run = new float[MAX_RUN * 2];
+        }
+        run[runCount * 2] = x;
+        run[runCount * 2 + 1] = y;
+        runCount++;
     }
 
-    public boolean collisionHandled() {
-        return collisionHandled;
+    private void append(float x, float y) {
+        if (count * 2 == coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+        }
+        coords[count * 2] = x;
+        coords[count * 2 + 1] = y;
+        count++;
+        if (count > MAX_NUM_POINTS) {
+            float removedLength = PApplet.dist(coords[0], coords[1], coords[2], coords[3]);
+            length -= removedLength;
+            if (ink != null) {
+                ink.release(removedLength);
+            }
+            System.arraycopy(coords, 2, coords, 0, (count - 1) * 2);
+            count--;
+        }
     }
 
     /**
-     * Retrieves the center of the specified ball as a {@link PVector}.
+     * Checks whether the last segment can be stretched to end at the given point: every
+     * point drawn since the segment started must stay within the tolerance of the stretched
+     * segment, and the segment's direction must not turn by more than {@link #MAX_NORMAL_ERROR}.
      *
-     * @param ball the ball to get the center of
-     * @return the center of the ball as a {@link PVector}
+     * @param x the x-coordinate of the newly drawn point
+     * @param y the y-coordinate of the newly drawn point
+     * @return true if the point can replace the end of the line
      */
-    private PVector getBallCenter(Ball ball) {
-        return new PVector(ball.getX(), ball.getY());
+    private boolean canExtendTo(float x, float y) {
+        if (count < 2 || runCount >= MAX_RUN) {
+            return false;
+        }
+        int end = (count - 1) * 2;
+        float anchorX = coords[end - 2], anchorY = coords[end - 1];
+
+        float currentX = coords[end] - anchorX, currentY = coords[end + 1] - anchorY;
+        float stretchedX = x - anchorX, stretchedY = y - anchorY;
+        float dot = currentX * stretchedX + currentY * stretchedY;
+        float cross = currentX * stretchedY - currentY * stretchedX;
+        if (dot <= 0) {
+            return false; // Turns back on itself
+        }
+        // The direction of a segment shorter than tolerance / tan(MAX_NORMAL_ERROR) is mostly
+        // hand jitter, which the tolerance already bounds, so only longer segments are held to it
+        float minLength = tolerance / MAX_NORMAL_SLOPE;
+        if (currentX * currentX + currentY * currentY >= minLength * minLength
+                && Math.abs(cross) > dot * MAX_NORMAL_SLOPE) {
+            return false; // Would change the reflection normal too much
+        }
+
+        for (int i = 0; i < runCount; i++) {
+            if (distToSegment(run[i * 2], run[i * 2 + 1], anchorX, anchorY, x, y) > tolerance) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public LinkedList<PVector> getPoints() {
-        return points;
+    /**
+     * Stops simplifying the squiggle once the player has finished drawing it. Points can still
+     * be added afterwards, they are just no longer merged. The storage is kept, for squiggles
+     * that go back to a {@link Pool}.
+     */
+    public void finishDrawing() {
+        drawing = false;
+        runCount = 0;
     }
 
     /**
-     * Adds a new point to the squiggle. If the maximum number of points is exceeded,
-     * the oldest point is removed to maintain the size limit.
-     *
-     * @param x the x-coordinate of the new point
-     * @param y the y-coordinate of the new point
+     * Finishes drawing and releases the memory of an unusually long line: storage for more than
+     * {@link #POOLED_CAPACITY} points is trimmed to fit the line. Smaller buffers, and the
+     * simplification state, are kept for when the squiggle is redrawn from the pool.
      */
-    public void addPoint(float x, float y) {
-        points.add(new PVector(x, y));
-        if (points.size() > MAX_NUM_POINTS) {
-            points.removeFirst();
+    public void compact() {
+        finishDrawing();
+        if (coords.length > POOLED_CAPACITY * 2 && coords.length > count * 2) {
+            coords = Arrays.copyOf(coords, Math.max(POOLED_CAPACITY, count) * 2);
         }
     }
 
+    /**
+     * Returns how many points the squiggle has room for before its storage grows.
+     *
+     * @return the capacity, in points
+     */
+    int getCapacity() {
+        return coords.length / 2;
+    }
+
+    /**
+     * Returns the number of segments balls must be tested against.
+     *
+     * @return the segment count
+     */
+    public int getSegmentCount() {
+        return Math.max(0, count - 1);
+    }
+
     /**
      * Draws the squiggle on the game board using the provided {@link App} context.
+     * Segments outside the camera's view are skipped.
      *
      * @param app the {@link App} instance used for rendering
      */
@@ -215,10 +500,13 @@ public class Squiggle {
         app.stroke(0);
         app.strokeWeight(lineWidth);
 
-        for (int i = 0; i < points.size() - 1; i++) {
-            PVector p1 = points.get(i);
-            PVector p2 = points.get(i + 1);
-            app.line(p1.x, p1.y, p2.x, p2.y);
+        Camera camera = app.getCamera();
+        for (int i = 1; i < count; i++) {
+            int j = (i - 1) * 2;
+            float x1 = coords[j], y1 = coords[j + 1], x2 = coords[j + 2], y2 = coords[j + 3];
+            if (camera.isSegmentVisible(x1, y1, x2, y2, lineWidth)) {
+                app.line(x1, y1, x2, y2);
+            }
         }
         app.popStyle(); // Restore previous settings
     }
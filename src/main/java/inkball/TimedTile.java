@@ -7,11 +7,19 @@ import processing.core.PImage;
  * Represents a tile that fades over time and becomes inactive.
  * A {@code TimedTile} starts fully opaque and gradually becomes transparent.
  * Once fully transparent, it no longer interacts with balls.
+ *
+ * <p>In a game the fade is driven by a {@link Scheduler}: the tile schedules a single expiry
+ * task and works out its transparency from the scheduler's frame count when asked, instead
+ * of being updated every frame.
  */
 public class TimedTile extends Tile {
-    private float alpha; // Transparency value (0 - 255)
+    private float alpha; // Transparency value (0 - 255) when not fading, or when the fade started
     private boolean active; // Whether the tile can still collide with balls
     private static final float ALPHA_DECREMENT = 0.5f; // Rate of transparency reduction
+    private Scheduler scheduler; // Drives the fade, null while the tile is not fading
+    private Scheduler.Task expiry; // Deactivates the tile once it is fully transparent
+    private long fadeStart; // Scheduler frame the fade started on
+    private Runnable onExpire; // Told when the tile stops colliding, may be null
 
     /**
      * Constructs a {@code TimedTile} at the specified position with the given sprite.
@@ -36,6 +44,7 @@ public class TimedTile extends Tile {
      * @param topBar the height of the top bar in the game window
      */
     public void draw(PApplet app, int cellSize, int topBar) {
+        float alpha = getAlpha();
         if (alpha > 0) {
             app.tint(255, 255, 255, alpha); // Apply the transparency
             app.image(sprite, x * cellSize, y * cellSize + topBar, cellSize, cellSize);
@@ -44,15 +53,84 @@ public class TimedTile extends Tile {
     }
 
     /**
-     * Updates the transparency (alpha) of the tile.
-     * Once the tile becomes fully transparent, it becomes inactive.
+     * Starts fading the tile by one step per scheduler frame, from its current transparency.
+     * The tile becomes inactive on the frame it turns fully transparent.
+     *
+     * @param scheduler the scheduler whose frames drive the fade
+     */
+    public void startFading(Scheduler scheduler) {
+        stopFading();
+        if (alpha <= 0) {
+            return;
+        }
+        this.scheduler = scheduler;
+        this.fadeStart = scheduler.getFrame();
+        this.expiry = scheduler.schedule((int) Math.ceil(alpha / ALPHA_DECREMENT), this::expire);
+    }
+
+    /**
+     * Creates a copy of the tile with the same transparency, e.g. when forking a game. If this
+     * tile is fading, the copy carries on fading from the same point on another scheduler.
+     *
+     * @param scheduler the scheduler to drive the copy's fade
+     * @return the copy, without an expiry callback
+     */
+    TimedTile fork(Scheduler scheduler) {
+        TimedTile copy = new TimedTile(x, y, sprite);
+        copy.alpha = getAlpha();
+        copy.active = active;
+        if (this.scheduler != null) {
+            copy.startFading(scheduler);
+        }
+        return copy;
+    }
+
+    /**
+     * Stops fading the tile, keeping its current transparency.
+     */
+    public void stopFading() {
+        if (scheduler != null) {
+            alpha = getAlpha();
+            expiry.cancel();
+            scheduler = null;
+            expiry = null;
+        }
+    }
+
+    private void expire() {
+        alpha = 0;
+        scheduler = null;
+        expiry = null;
+        deactivate();
+    }
+
+    private void deactivate() {
+        active = false; // Disable collisions when fully transparent
+        if (onExpire != null) {
+            onExpire.run();
+        }
+    }
+
+    /**
+     * Sets a callback to run once the tile turns fully transparent and stops colliding,
+     * e.g. to open up the cell in the level's {@link WallField}.
+     *
+     * @param onExpire the callback, or null for none
+     */
+    public void setOnExpire(Runnable onExpire) {
+        this.onExpire = onExpire;
+    }
+
+    /**
+     * Updates the transparency (alpha) of the tile by one step, for tiles that are not
+     * driven by a scheduler. Once the tile becomes fully transparent, it becomes inactive.
      */
     public void updateAlpha() {
-        if (alpha > 0) {
+        if (scheduler == null && alpha > 0) {
             alpha -= ALPHA_DECREMENT; // Decrease alpha value
             if (alpha <= 0) {
                 alpha = 0;
-                active = false; // Disable collisions when fully transparent
+                deactivate();
             }
         }
     }
@@ -72,6 +150,9 @@ public class TimedTile extends Tile {
      * @return the alpha value, ranging from 0 (fully transparent) to 255 (fully opaque)
      */
     public float getAlpha() {
+        if (scheduler != null) {
+            return Math.max(0, alpha - (scheduler.getFrame() - fadeStart) * ALPHA_DECREMENT);
+        }
         return alpha;
     }
 }
\ No newline at end of file
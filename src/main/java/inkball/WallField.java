@@ -0,0 +1,271 @@
+package inkball;
+
+import java.util.Arrays;
+
+/**
+ * A coarse signed distance field of the walls on the board, used for ball-wall collisions.
+ *
+ * <p>Distances are sampled on a grid {@link #RESOLUTION} times finer than the tiles, positive
+ * outside walls and negative inside them, and clamped to {@link #MAX_DISTANCE}. A ball queries
+ * a single bilinear sample per frame, whose gradient is the wall's normal, so corner hits
+ * bounce at the right angle instead of flipping each axis separately. Because distances are
+ * clamped, removing a wall (e.g. when a {@link TimedTile} expires) only updates the samples
+ * near it.
+ *
+ * <p>Samples are stored row by row, and a {@link #fork()} shares every row with the field it
+ * was forked from until it removes a wall, when just the rows it rewrites are copied. Games
+ * playing the same level fork the field baked once in its {@link LevelTemplate}.
+ */
+public final class WallField {
+    public static final int RESOLUTION = 4; // Samples per tile edge
+    public static final float MAX_DISTANCE = App.CELLSIZE; // Larger distances are not needed for collisions
+    private static final float STEP = (float) App.CELLSIZE / RESOLUTION;
+    private static final int REACH = (int) Math.ceil(MAX_DISTANCE / App.CELLSIZE) + 1; // Tiles searched around a sample
+
+    private final int columns, rows;
+    private final char[] walls; // Wall tile per cell, 0 for open cells
+    private final int samplesX, samplesY;
+    private final float[][] distance; // Sample row : distances
+    private final int[][] nearest; // Sample row : closest wall cell to each sample, -1 if none within MAX_DISTANCE
+    private final boolean[] ownedRows; // Rows this field may write to, the others are shared
+
+    /**
+     * Bakes the distance field of a board. Walls, colored walls and timed tiles are solid.
+     *
+     * @param board the tile characters, indexed by row then column
+     */
+    public WallField(char[][] board) {
+        this.rows = board.length;
+        this.columns = rows == 0 ? 0 : board[0].length;
+        this.walls = new char[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                if (isWallTile(board[row][col])) {
+                    walls[row * columns + col] = board[row][col];
+                }
+            }
+        }
+
+        this.samplesX = columns * RESOLUTION + 1;
+        this.samplesY = rows * RESOLUTION + 1;
+        this.distance = new float[samplesY][samplesX];
+        this.nearest = new int[samplesY][samplesX];
+        this.ownedRows = new boolean[samplesY];
+        Arrays.fill(ownedRows, true);
+        bake(0, 0, samplesX - 1, samplesY - 1);
+    }
+
+    private WallField(WallField source) {
+        this.columns = source.columns;
+        this.rows = source.rows;
+        this.walls = source.walls.clone();
+        this.samplesX = source.samplesX;
+        this.samplesY = source.samplesY;
+        this.distance = source.distance.clone(); // Shares the row arrays
+        this.nearest = source.nearest.clone();
+        this.ownedRows = new boolean[samplesY];
+    }
+
+    /**
+     * Creates a copy-on-write copy of this field. Removing walls from the copy does not affect
+     * this field, which is left untouched, so a field that is never modified (such as a
+     * template's) can be forked from any number of threads at once. Removing walls from this
+     * field afterwards must not happen while copies are in use; see {@link #forkBoth()}.
+     *
+     * @return a field that shares this field's samples until it changes
+     */
+    public WallField fork() {
+        return new WallField(this);
+    }
+
+    /**
+     * Creates a copy-on-write copy of a field that keeps changing after it is forked, e.g. the
+     * walls of a game forked mid-level. Every row this field owns becomes shared, so removing
+     * walls from either field afterwards does not affect the other. Must not be called while
+     * this field is being used on another thread.
+     *
+     * @return a field that shares this field's samples until one of them changes
+     */
+    public WallField forkBoth() {
+        Arrays.fill(ownedRows, false); // Now shared, so this field copies them before writing too
+        return new WallField(this);
+    }
+
+    /**
+     * Returns how many rows of samples this field has its own copy of, rather than sharing
+     * them with the field it was forked from.
+     *
+     * @return the number of owned sample rows
+     */
+    int getOwnedRowCount() {
+        int owned = 0;
+        for (boolean row : ownedRows) {
+            if (row) {
+                owned++;
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Checks whether a tile character blocks balls while the level is running.
+     *
+     * @param tile the tile character
+     * @return true for walls, colored walls and timed tiles
+     */
+    static boolean isWallTile(char tile) {
+        return tile == 'X' || (tile >= '1' && tile <= '4') || tile == 'T';
+    }
+
+    /**
+     * Opens up a wall cell and updates the samples within reach of it.
+     *
+     * @param col the column of the cell
+     * @param row the row of the cell
+     */
+    public void removeWall(int col, int row) {
+        if (!isWall(col, row)) {
+            return;
+        }
+        walls[row * columns + col] = 0;
+
+        int margin = (int) Math.ceil(MAX_DISTANCE / STEP) + 1;
+        bake(Math.max(0, col * RESOLUTION - margin), Math.max(0, row * RESOLUTION - margin),
+                Math.min(samplesX - 1, (col + 1) * RESOLUTION + margin),
+                Math.min(samplesY - 1, (row + 1) * RESOLUTION + margin));
+    }
+
+    /**
+     * Checks whether a cell is currently solid.
+     *
+     * @param col the column of the cell
+     * @param row the row of the cell
+     * @return true if the cell is in the board and holds a wall
+     */
+    public boolean isWall(int col, int row) {
+        return col >= 0 && col < columns && row >= 0 && row < rows && walls[row * columns + col] != 0;
+    }
+
+    /**
+     * Samples the signed distance to the nearest wall.
+     *
+     * @param x the x-coordinate in screen space
+     * @param y the y-coordinate in screen space
+     * @return the distance in pixels, negative inside a wall, clamped to {@link #MAX_DISTANCE}
+     */
+    public float distance(float x, float y) {
+        float u = clampSample(x / STEP, samplesX);
+        float v = clampSample((y - App.TOPBAR) / STEP, samplesY);
+        int i = Math.min((int) u, samplesX - 2);
+        int j = Math.min((int) v, samplesY - 2);
+        float fx = u - i, fy = v - j;
+        float[] upper = distance[j], lower = distance[j + 1];
+        float top = upper[i] + (upper[i + 1] - upper[i]) * fx;
+        float bottom = lower[i] + (lower[i + 1] - lower[i]) * fx;
+        return top + (bottom - top) * fy;
+    }
+
+    /**
+     * Finds where a circle touches the walls, from a single sample of the field.
+     *
+     * @param x the x-coordinate of the circle's center in screen space
+     * @param y the y-coordinate of the circle's center in screen space
+     * @param radius the radius of the circle
+     * @param contact filled in with the wall tile, surface point, normal and penetration on a hit
+     * @return true if the circle overlaps a wall
+     */
+    public boolean findContact(float x, float y, float radius, Contact contact) {
+        if (samplesX < 2 || samplesY < 2) {
+            return false;
+        }
+        float u = clampSample(x / STEP, samplesX);
+        float v = clampSample((y - App.TOPBAR) / STEP, samplesY);
+        int i = Math.min((int) u, samplesX - 2);
+        int j = Math.min((int) v, samplesY - 2);
+        float fx = u - i, fy = v - j;
+        float d00 = distance[j][i], d10 = distance[j][i + 1];
+        float d01 = distance[j + 1][i], d11 = distance[j + 1][i + 1];
+
+        float top = d00 + (d10 - d00) * fx;
+        float bottom = d01 + (d11 - d01) * fx;
+        float d = top + (bottom - top) * fy;
+        if (d >= radius) {
+            return false;
+        }
+
+        // The gradient of the bilinear patch points away from the walls
+        float gx = (d10 - d00) * (1 - fy) + (d11 - d01) * fy;
+        float gy = bottom - top;
+        float length = (float) Math.sqrt(gx * gx + gy * gy);
+        if (length == 0) {
+            return false; // Flat, clamped region: no direction to push towards
+        }
+        gx /= length;
+        gy /= length;
+
+        int cell = nearest[Math.round(v)][Math.round(u)];
+        int col = cell < 0 ? -1 : cell % columns;
+        int row = cell < 0 ? -1 : cell / columns;
+        contact.setWall(col, row, cell < 0 ? 0 : walls[cell], x - gx * d, y - gy * d, gx, gy, radius - d);
+        return true;
+    }
+
+    private static float clampSample(float s, int samples) {
+        return Math.max(0, Math.min(s, samples - 1));
+    }
+
+    /**
+     * Recomputes the samples in a rectangle of the sample grid, inclusive.
+     */
+    private void bake(int fromI, int fromJ, int toI, int toJ) {
+        for (int j = fromJ; j <= toJ; j++) {
+            if (!ownedRows[j]) { // Copy a shared row before writing to it
+                distance[j] = distance[j].clone();
+                nearest[j] = nearest[j].clone();
+                ownedRows[j] = true;
+            }
+            for (int i = fromI; i <= toI; i++) {
+                bakeSample(i, j);
+            }
+        }
+    }
+
+    private void bakeSample(int i, int j) {
+        float px = i * STEP, py = j * STEP; // Board space, without the top bar
+        int sampleCol = i / RESOLUTION, sampleRow = j / RESOLUTION;
+        float toWall = Float.MAX_VALUE, toOpen = MAX_DISTANCE;
+        int closest = -1;
+
+        for (int row = sampleRow - REACH; row <= sampleRow + REACH; row++) {
+            for (int col = sampleCol - REACH; col <= sampleCol + REACH; col++) {
+                if (col < 0 || col >= columns || row < 0 || row >= rows) {
+                    continue;
+                }
+                float d = distToCell(px, py, col, row);
+                if (walls[row * columns + col] != 0) {
+                    if (d < toWall) {
+                        toWall = d;
+                        closest = row * columns + col;
+                    }
+                } else if (d < toOpen) {
+                    toOpen = d;
+                }
+            }
+        }
+
+        if (toWall > MAX_DISTANCE) {
+            distance[j][i] = MAX_DISTANCE;
+            nearest[j][i] = -1;
+        } else {
+            distance[j][i] = toWall > 0 ? toWall : -toOpen; // Inside a wall, measure the way out
+            nearest[j][i] = closest;
+        }
+    }
+
+    private static float distToCell(float px, float py, int col, int row) {
+        float left = col * App.CELLSIZE, top = row * App.CELLSIZE;
+        float dx = Math.max(0, Math.max(left - px, px - (left + App.CELLSIZE)));
+        float dy = Math.max(0, Math.max(top - py, py - (top + App.CELLSIZE)));
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,146 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import processing.core.PConstants;
+
+/**
+ * Guards the simulation against allocating on every frame. Each level is played headlessly
+ * from a fixed seed, with a scripted player drawing squiggles and erasing the previous one
+ * (so lines come from the pool), and the bytes allocated by the simulating thread
+ * are measured over windows of frames. The level is given a time limit and a queue of balls
+ * longer than the run, so every window measures that level still in play. The median window must stay under the threshold, so
+ * one-off allocations (a spawn, a capture, a pool warming up, the level ending) are tolerated
+ * but anything that allocates every frame is not.
+ */
+public class AllocationTest {
+    private static final int WARMUP_FRAMES = 3000; // Lets the JIT and the pools settle
+    private static final int WINDOWS = 20;
+    private static final int WINDOW_FRAMES = 300;
+    private static final long MAX_BYTES_PER_FRAME = 8;
+    private static final int STROKE_PERIOD = 90; // Frames between the starts of two squiggles
+    private static final int STROKE_FRAMES = 20;
+    private static final long SEED = 2024;
+
+    @Test
+    public void testLevel1AllocationPerFrameHeadless() {
+        // Test to ensure a steady frame of level 1 allocates next to nothing.
+        assertSteadyAllocation(1);
+    }
+
+    @Test
+    public void testLevel2AllocationPerFrameHeadless() {
+        // Test to ensure a steady frame of level 2 allocates next to nothing.
+        assertSteadyAllocation(2);
+    }
+
+    @Test
+    public void testLevel3AllocationPerFrameHeadless() {
+        // Test to ensure a steady frame of level 3 allocates next to nothing.
+        assertSteadyAllocation(3);
+    }
+
+    /**
+     * Plays a level with scripted squiggles and checks the median allocation per frame.
+     *
+     * @param level the level to play, 1-based
+     */
+    private static void assertSteadyAllocation(int level) {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters are not available");
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocation.isThreadAllocatedMemorySupported(), "Allocation counters are not supported");
+        allocation.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        int frames = WARMUP_FRAMES + WINDOWS * WINDOW_FRAMES;
+        App app = App.createHeadless("config.json", level, sustained(level, frames), SEED);
+        assertEquals(level, app.getCurrentLevel());
+
+        // Build the whole script up front, so the commands are not counted as the game's allocations
+        InputCommand[] script = script(frames);
+        int frame = 0;
+        for (; frame < WARMUP_FRAMES; frame++) {
+            step(app, script[frame]);
+        }
+
+        long[] perFrame = new long[WINDOWS];
+        for (int w = 0; w < WINDOWS; w++) {
+            long before = allocation.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < WINDOW_FRAMES; i++, frame++) {
+                step(app, script[frame]);
+            }
+            perFrame[w] = (allocation.getThreadAllocatedBytes(thread) - before) / WINDOW_FRAMES;
+            assertEquals(level, app.getCurrentLevel(), "Window " + w + " left the level");
+            assertFalse(app.isGameEnded(), "Window " + w + " ended the game");
+        }
+
+        Arrays.sort(perFrame);
+        long median = perFrame[WINDOWS / 2];
+        assertTrue(median <= MAX_BYTES_PER_FRAME, "Level " + level + " allocates " + median
+                + " bytes per frame, windows: " + Arrays.toString(perFrame));
+    }
+
+    /**
+     * Returns the config's settings for a level, with a time limit and a queue of balls that
+     * outlast the given number of frames, so the level can be neither won nor lost in them.
+     *
+     * @param level the level, 1-based
+     * @param frames the number of frames the level must last
+     * @return the settings
+     */
+    private static LevelConfig sustained(int level, int frames) {
+        LevelConfig settings = GameConfig.load("config.json").getLevel(level);
+        int seconds = frames / App.FPS + 1;
+        List<String> balls = new ArrayList<>();
+        while (balls.size() <= seconds / settings.getSpawnInterval()) {
+            balls.addAll(settings.getBalls());
+        }
+        return settings.withLayout(settings.getLayout(), balls).withTuning(seconds * 2, settings.getSpawnInterval(),
+                settings.getScoreIncreaseModifier(), settings.getScoreDecreaseModifier());
+    }
+
+    private static void step(App app, InputCommand command) {
+        if (command != null) {
+            app.submitInput(command);
+        }
+        app.update();
+    }
+
+    /**
+     * Scripts a player who draws a short zigzag squiggle somewhere new every few seconds, and
+     * erases the previous one just before.
+     *
+     * @param frames the number of frames to script
+     * @return the command to submit on each frame, or null for none
+     */
+    private static InputCommand[] script(int frames) {
+        InputCommand[] script = new InputCommand[frames];
+        for (int f = 0; f < frames; f++) {
+            int phase = f % STROKE_PERIOD;
+            int stroke = f / STROKE_PERIOD;
+            float x = 96 + (stroke * 53) % 320;
+            float y = App.TOPBAR + 96 + (stroke * 97) % 352;
+            if (phase == STROKE_PERIOD - 2 || phase == STROKE_PERIOD - 1) { // Right-click the start of this stroke
+                InputCommand.Type type = phase == STROKE_PERIOD - 2 ? InputCommand.Type.MOUSE_PRESSED
+                        : InputCommand.Type.MOUSE_RELEASED;
+                script[f] = InputCommand.mouse(type, f, x, y, PConstants.RIGHT);
+            } else if (phase == 0) {
+                script[f] = InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, f, x, y, PConstants.LEFT);
+            } else if (phase < STROKE_FRAMES) {
+                script[f] = InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, f, x + phase * 6, y + (phase % 2) * 8,
+                        PConstants.LEFT);
+            } else if (phase == STROKE_FRAMES) {
+                script[f] = InputCommand.mouse(InputCommand.Type.MOUSE_RELEASED, f, x + phase * 6, y, PConstants.LEFT);
+            }
+        }
+        return script;
+    }
+}
@@ -94,6 +94,7 @@ public class AppTest {
     public void testPauseFunctionality() {
         // Test if the game pauses correctly
         app.keyPressed(new processing.event.KeyEvent(null, 0, 0, 0, ' ', ' '));
+        app.processInput(); // Apply the queued input
         assertTrue(app.isPaused());
     }
 
@@ -102,6 +103,7 @@ public class AppTest {
         // Test if squiggle removal works
         app.mousePressed(null);
         app.mouseReleased(null);
+        app.processInput(); // Apply the queued input
         int initialSize = app.getSquiggles().size();
         app.removeSquiggleAt(0, 0);
         assertTrue(app.getSquiggles().size() <= initialSize);
@@ -150,7 +152,8 @@ public class AppTest {
     public void testUpdateTimerPaused() {
         // Set the game to paused state
         app.keyPressed(new KeyEvent(null, 0, 0, 0, ' ', ' '));
-        app.updateTimer();  // Call the timer update
+        app.processInput(); // Apply the queued input
+        app.update();  // Advance one frame
 
         // Ensure the remaining time is not decremented when paused
         int remainingTimeBefore = app.getConfig().getInt("time") * App.FPS;
@@ -179,6 +182,7 @@ public class AppTest {
         // Simulate starting and restarting the level
         app.addScore(10);  // Add score
         app.keyPressed(new KeyEvent(null, 0, 0, 0, 'r', 'r'));  // Press 'r' to restart
+        app.processInput(); // Apply the queued input
 
         // Ensure the score is reset to the initial state
         assertEquals(0, app.getScore());
@@ -198,12 +202,15 @@ public class AppTest {
     public void testDrawAndRemoveSquiggle() {
         // Simulate pressing the left mouse button
         app.mousePressed(new MouseEvent(null, 0, 0, 0, 50, 50, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
         
         // Simulate dragging the mouse
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
         
         // Simulate releasing the left mouse button
         app.mouseReleased(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
     
         // Ensure a squiggle was added
         assertEquals(1, app.getSquiggles().size());
@@ -217,8 +224,9 @@ public class AppTest {
     public void testNoSpawnWhenPaused() {
         // Test to ensure that no ball spawns when the game is paused.
         app.ballSpawnQueue.add("grey");  // Add a ball to the spawn queue
-        app.SPAWNTIMER = 0;              // Force spawn
+        app.setSpawnTimer(0);            // Force spawn
         app.keyPressed(new KeyEvent(null, 0, 0, 0, ' ', ' '));  // Pause the game
+        app.processInput(); // Apply the queued input
 
         app.handleSpawning();
 
@@ -228,7 +236,7 @@ public class AppTest {
     @Test
     public void testNoSpawnWhenQueueEmpty() {
         // Test to verify that no ball spawns if the spawn queue is empty.
-        app.SPAWNTIMER = 0;  // Force spawn
+        app.setSpawnTimer(0);  // Force spawn
 
         app.handleSpawning();
 
@@ -249,6 +257,7 @@ public class AppTest {
     public void testDrawWhenPaused() {
         // Test to verify that the game shows the paused state when paused.
         app.keyPressed(new KeyEvent(null, 0, 0, 0, ' ', ' '));  // Pause the game
+        app.processInput(); // Apply the queued input
         app.draw();  // Call the draw method
 
         // Verify that paused message is shown
@@ -283,10 +292,12 @@ public class AppTest {
         // Test to ensure that the game pauses and resumes correctly.
         // Pause the game:
         app.keyPressed(new KeyEvent(null, 0, 0, 0, ' ', ' '));
+        app.processInput(); // Apply the queued input
         assertTrue(app.isPaused());
 
         // Resume the game
         app.keyPressed(new KeyEvent(null, 0, 0, 0, ' ', ' '));
+        app.processInput(); // Apply the queued input
         assertFalse(app.isPaused());
     }
 
@@ -297,7 +308,7 @@ public class AppTest {
 
         // Simulate timer updates
         for (int i = 0; i < 5; i++) {
-            app.updateTimer();
+            app.update();
         }
 
         // Verify the time is decreasing
@@ -326,6 +337,7 @@ public class AppTest {
 
         // Restart the game
         app.keyPressed(new KeyEvent(null, 0, 0, 0, 'r', 'r'));
+        app.processInput(); // Apply the queued input
 
         // Verify the game restarted from level 1
         assertEquals(1, app.getCurrentLevel());
@@ -340,6 +352,7 @@ public class AppTest {
 
         // Trigger mouseDragged event
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
 
         assertNull(app.getCurrentSqiggle(), "No squiggle should be created during victory.");
         
@@ -347,6 +360,7 @@ public class AppTest {
         app.victoryInProgress = false;
         app.isLevelFailed = true;
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
 
         assertNull(app.getCurrentSqiggle(), "No squiggle should be created if the level has failed.");
     }
@@ -361,6 +375,7 @@ public class AppTest {
 
         // Simulate dragging the mouse beyond the threshold distance
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
 
         assertEquals(1, app.currentSquiggle.getPoints().size(), 
                     "One point should be added if the mouse moves significantly.");
@@ -376,29 +391,29 @@ public class AppTest {
 
         // Simulate dragging the mouse with small movement
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 52, 52, PConstants.LEFT, 1));
+        app.processInput(); // Apply the queued input
 
         assertEquals(0, app.currentSquiggle.getPoints().size(), 
                     "No point should be added if the mouse moves less than the threshold.");
     }
 
     @Test
-    public void testMouseDraggedRespectsDrawLimit() {
-        // Test to ensure that the draw limit is respected, and no more than the allowed number of points are added.
+    public void testMouseDraggedAppliesEveryQueuedPoint() {
+        // Test to ensure every drag queued since the last step is applied, with no per-frame cap.
         app.currentSquiggle = new Squiggle();
         app.drawEventOngoing = true;
         app.oldX = 0;
         app.oldY = 0;
 
-        // Set the draw limit to 2 for this test
-        app.squigglesPerFrameCap = 2;
-
-        // Add points until the limit is reached
+        // Queue several drags before the next simulation step
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.LEFT, 1));
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 200, 200, PConstants.LEFT, 1));
-        app.mouseDragged(new MouseEvent(null, 0, 0, 0, 300, 300, PConstants.LEFT, 1));  // Exceeding limit
+        app.mouseDragged(new MouseEvent(null, 0, 0, 0, 300, 300, PConstants.LEFT, 1));
+        assertEquals(0, app.currentSquiggle.getPoints().size(), "Input is only applied by the simulation step.");
+        app.processInput(); // Apply the queued input
 
-        assertEquals(2, app.currentSquiggle.getPoints().size(), 
-                    "Number of points should not exceed the draw limit.");
+        assertEquals(3, app.currentSquiggle.getPoints().size(), 
+                    "Every queued point should be added.");
     }
 
     @Test
@@ -411,6 +426,7 @@ public class AppTest {
 
         // Simulate dragging the mouse with a right click
         app.mouseDragged(new MouseEvent(null, 0, 0, 0, 100, 100, PConstants.RIGHT, 1));
+        app.processInput(); // Apply the queued input
 
         assertEquals(0, app.currentSquiggle.getPoints().size(), 
                     "No point should be added if the event is not a left click.");
@@ -0,0 +1,65 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringWriter;
+
+public class BatchRunnerTest {
+
+    @Test
+    public void testParseOptions() {
+        // Test to ensure the command-line options are read, ignoring --headless.
+        BatchRunner.Options options = BatchRunner.Options.parse(new String[] { "--headless", "--config", "config.json",
+                "--runs", "10000", "--threads", "4", "--seed", "42", "--level", "2", "--out", "runs.csv" });
+        assertEquals("config.json", options.config);
+        assertEquals(10000, options.runs);
+        assertEquals(4, options.threads);
+        assertEquals(42, options.seed);
+        assertEquals(2, options.level);
+        assertEquals("runs.csv", options.out);
+    }
+
+    @Test
+    public void testBadOptions() {
+        // Test to verify unknown options, missing values and bad numbers are rejected.
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.Options.parse(new String[] { "--fast" }));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.Options.parse(new String[] { "--runs" }));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.Options.parse(new String[] { "--runs", "x" }));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.Options.parse(new String[] { "--threads", "0" }));
+        assertEquals(2, BatchRunner.run(new String[] { "--headless", "--fast" }));
+        assertEquals(2, BatchRunner.run(new String[] { "--headless", "--level", "9" }));
+    }
+
+    @Test
+    public void testSameSeedPlaysTheSameRun() {
+        // Test to ensure a run is fully determined by its seed.
+        String row = BatchRunner.play("config.json", 0, 1, 7);
+        assertEquals(row, BatchRunner.play("config.json", 0, 1, 7));
+
+        String[] columns = row.split(",");
+        assertEquals(BatchRunner.HEADER.split(",").length, columns.length);
+        assertTrue(columns[3].equals(BatchRunner.COMPLETE) || columns[3].equals(BatchRunner.TIME_UP));
+    }
+
+    @Test
+    public void testBatchIsIndependentOfThreads() throws Exception {
+        // Test to verify the CSV has one row per run, in order, whatever the number of threads.
+        BatchRunner.Options options = BatchRunner.Options.parse(new String[] { "--level", "1", "--runs", "3",
+                "--seed", "5", "--threads", "1" });
+        StringWriter single = new StringWriter();
+        BatchRunner.runBatch(options, single);
+
+        options.threads = 3;
+        StringWriter parallel = new StringWriter();
+        BatchRunner.runBatch(options, parallel);
+
+        assertEquals(single.toString(), parallel.toString());
+        String[] lines = single.toString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(BatchRunner.HEADER, lines[0]);
+        for (int run = 0; run < 3; run++) {
+            assertTrue(lines[run + 1].startsWith(run + ",1," + BatchRunner.seedFor(5, 1, run) + ","));
+        }
+    }
+}
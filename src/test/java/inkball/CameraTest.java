@@ -0,0 +1,66 @@
+package inkball;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraTest {
+    private Camera camera;
+
+    @BeforeEach
+    public void setup() {
+        // A 576x576 viewport (18x18 tiles) over a 200x200 board
+        camera = new Camera(576, 576);
+        camera.setBoardSize(200, 200);
+    }
+
+    @Test
+    public void testVisibleRangeAtOrigin() {
+        // Test to verify only the tiles inside the viewport are reported as visible.
+        assertEquals(0, camera.getFirstVisibleColumn());
+        assertEquals(17, camera.getLastVisibleColumn());
+        assertEquals(0, camera.getFirstVisibleRow());
+        assertEquals(17, camera.getLastVisibleRow());
+    }
+
+    @Test
+    public void testScrollIsClampedToBoard() {
+        // Test to ensure the camera cannot scroll past the edges of the board.
+        camera.scrollBy(-100, -100);
+        assertEquals(0, camera.getX());
+        assertEquals(0, camera.getY());
+
+        camera.scrollBy(100000, 100000);
+        assertEquals(200 * App.CELLSIZE - 576, camera.getX());
+        assertEquals(199, camera.getLastVisibleColumn());
+        assertEquals(199, camera.getLastVisibleRow());
+    }
+
+    @Test
+    public void testSmallBoardDoesNotScroll() {
+        // Test to ensure boards smaller than the window stay in place.
+        camera.setBoardSize(10, 10);
+        camera.scrollBy(App.CELLSIZE, App.CELLSIZE);
+        assertEquals(0, camera.getX());
+        assertEquals(9, camera.getLastVisibleColumn());
+    }
+
+    @Test
+    public void testVisibilityUsesBoardCoordinates() {
+        // Test to verify visibility accounts for the top bar offset and the scroll position.
+        assertTrue(camera.isVisible(0, App.TOPBAR, 32, 32));
+        assertFalse(camera.isVisible(600, App.TOPBAR, 32, 32));
+
+        camera.scrollBy(App.CELLSIZE * 2, 0);
+        assertFalse(camera.isVisible(0, App.TOPBAR, 32, 32));
+        assertTrue(camera.isVisible(600, App.TOPBAR, 32, 32));
+        assertEquals(64 + 10, camera.toWorldX(10), 0.0001);
+    }
+
+    @Test
+    public void testSegmentVisibility() {
+        // Test to verify segments are culled by their bounding box.
+        assertTrue(camera.isSegmentVisible(-50, 100, 50, 100, 10));
+        assertFalse(camera.isSegmentVisible(1000, 100, 1100, 200, 10));
+    }
+}
@@ -0,0 +1,120 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+
+public class CommandLineTest {
+
+    @Test
+    public void testReadsOptionsAndValues() {
+        // Test to ensure options are read in order with their values, skipping the tool's own flag.
+        CommandLine line = new CommandLine("--solve", new String[] { "--solve", "--level", "2", "--seed", "-7" });
+        assertTrue(line.next());
+        assertEquals("--level", line.option());
+        assertEquals(2, line.intValue());
+        assertTrue(line.next());
+        assertEquals(-7, line.longValue());
+        assertFalse(line.next());
+    }
+
+    @Test
+    public void testBadArguments() {
+        // Test to verify missing, unknown and invalid values are described as bad arguments.
+        CommandLine missing = new CommandLine("--solve", new String[] { "--level" });
+        assertTrue(missing.next());
+        assertEquals("Missing value for --level",
+                assertThrows(IllegalArgumentException.class, missing::intValue).getMessage());
+
+        // A trailing unknown option is reported as unknown, not as missing its value
+        assertEquals(2, BatchRunner.run(new String[] { "--headless", "--bogus" }));
+        CommandLine bogus = new CommandLine("--headless", new String[] { "--headless", "--bogus" });
+        assertTrue(bogus.next());
+        assertEquals("Unknown option --bogus", bogus.unknown().getMessage());
+        assertFalse(bogus.next());
+
+        CommandLine invalid = new CommandLine("--solve", new String[] { "--level", "two" });
+        invalid.next();
+        assertEquals("Invalid value for --level: two",
+                assertThrows(IllegalArgumentException.class, invalid::intValue).getMessage());
+        assertEquals("Unknown option --level", invalid.unknown().getMessage());
+
+        CommandLine range = new CommandLine("--analyze", new String[] { "--time", "fast" });
+        range.next();
+        assertThrows(IllegalArgumentException.class, () -> range.values(1));
+    }
+
+    @Test
+    public void testParseValues() {
+        // Test to ensure parameters can be a value, a list or an inclusive range.
+        assertArrayEquals(new double[] { 60, 90, 120, 150, 180 }, CommandLine.parseValues("60:180:30", 1));
+        assertArrayEquals(new double[] { 0.5, 0.75, 1.0 }, CommandLine.parseValues("0.5:1:0.25", 0));
+        assertArrayEquals(new double[] { 3, 5, 8 }, CommandLine.parseValues("3, 5,8", 1));
+        assertArrayEquals(new double[] { 1.2 }, CommandLine.parseValues("1.2", 0));
+        assertThrows(IllegalArgumentException.class, () -> CommandLine.parseValues("10:5:1", 1));
+        assertThrows(IllegalArgumentException.class, () -> CommandLine.parseValues("0,5", 1));
+        assertThrows(NumberFormatException.class, () -> CommandLine.parseValues("fast", 1));
+        assertArrayEquals(new int[] { 60, 90, 120 }, CommandLine.parseIntegers("60:120:30", 1));
+        assertThrows(IllegalArgumentException.class, () -> CommandLine.parseIntegers("2:4:0.5", 1));
+    }
+
+    @Test
+    public void testExitCodes() {
+        // Test to verify a tool's exit code, 2 for bad arguments and 1 when it fails.
+        assertEquals(0, CommandLine.run(new String[0], "", "Failed", args -> args, args -> CommandLine.OK));
+        assertEquals(2, CommandLine.run(new String[0], "", "Failed", args -> {
+            throw new IllegalArgumentException("Bad");
+        }, args -> CommandLine.OK));
+        assertEquals(1, CommandLine.run(new String[0], "", "Failed", args -> args, args -> {
+            throw new java.io.IOException("Disk full");
+        }));
+        assertEquals(1, CommandLine.run(new String[0], "", "Failed", args -> args, args -> {
+            throw new java.io.UncheckedIOException(new java.io.IOException("Disk full"));
+        }));
+    }
+
+    @Test
+    public void testUnreadableConfig() {
+        // Test to verify a config that cannot be read is a bad argument of every tool that plays one.
+        assertEquals("Could not read config nope.json: java.nio.file.NoSuchFileException: nope.json",
+                assertThrows(IllegalArgumentException.class,
+                        () -> CommandLine.requireLevel("nope.json", 1)).getMessage());
+        String[] args = { "--config", "nope.json" };
+        assertEquals(2, BatchRunner.run(args));
+        assertEquals(2, Solver.run(args));
+        assertEquals(2, DifficultyAnalyzer.run(args));
+        assertEquals(2, SoakHarness.run(args));
+    }
+
+    @Test
+    public void testStandardOutputStaysOpen() throws Exception {
+        // Test to ensure closing the CSV writer of standard output flushes it without closing it.
+        PrintStream original = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean[] closed = { false };
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        }, true));
+        try {
+            try (Writer out = CommandLine.openOutput(null)) {
+                out.write("a,b\n");
+            }
+            assertEquals("a,b\n", bytes.toString("UTF-8"));
+            assertFalse(closed[0]);
+        } finally {
+            System.setOut(original);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContactTest {
+
+    @Test
+    public void testSquiggleContact() {
+        // Test to ensure one query reports the segment, closest point, normal and penetration.
+        Squiggle squiggle = new Squiggle(0, new InkBudget(1000));
+        squiggle.addPoint(0, 0);
+        squiggle.addPoint(100, 0);
+        squiggle.addPoint(100, 100);
+
+        Ball ball = new Ball(105, 50, 1, 1, null, 0, null);
+        ball.setRadius(8);
+        Contact contact = new Contact();
+        assertTrue(squiggle.findContact(ball, contact));
+
+        assertEquals(1, contact.getSegment());
+        assertEquals(100, contact.getPointX(), 0.001);
+        assertEquals(50, contact.getPointY(), 0.001);
+        assertEquals(1, contact.getNormalX(), 0.001); // Facing the ball
+        assertEquals(0, contact.getNormalY(), 0.001);
+        assertEquals(3, contact.getPenetration(), 0.001);
+    }
+
+    @Test
+    public void testNoSquiggleContact() {
+        // Test to verify a ball out of reach of every segment reports no contact.
+        Squiggle squiggle = new Squiggle(0, new InkBudget(1000));
+        squiggle.addPoint(0, 0);
+        squiggle.addPoint(100, 0);
+
+        Ball ball = new Ball(50, 20, 1, 1, null, 0, null);
+        ball.setRadius(8);
+        assertFalse(squiggle.findContact(ball, new Contact()));
+        assertFalse(squiggle.isCollidingWithBall(ball));
+    }
+
+    @Test
+    public void testResolveReflectsOnce() {
+        // Test to ensure resolving a contact bounces the ball once and sets the collision flag.
+        Squiggle squiggle = new Squiggle(0, new InkBudget(1000));
+        squiggle.addPoint(0, 0);
+        squiggle.addPoint(100, 0);
+
+        Ball ball = new Ball(50, -4, 2, 3, null, 0, null);
+        ball.setRadius(8);
+        Contact contact = new Contact();
+        assertTrue(squiggle.findContact(ball, contact));
+        squiggle.resolve(ball, contact);
+
+        assertEquals(2, ball.getDx(), 0.001);
+        assertEquals(-3, ball.getDy(), 0.001);
+        assertTrue(squiggle.collisionHandled());
+
+        squiggle.resolve(ball, contact); // Already handled this frame
+        assertEquals(-3, ball.getDy(), 0.001);
+    }
+
+    @Test
+    public void testWallContactHeadless() {
+        // Test to verify wall tiles fill in the same contact record as squiggles.
+        App app = App.createHeadless("config.json");
+        Contact contact = new Contact();
+
+        // Moving left into the border wall of level 1
+        Ball ball = new Ball(41, App.TOPBAR + 3 * App.CELLSIZE + 16, -2, 0, null, 0, app);
+        assertTrue(ball.findWallContact(contact));
+        assertEquals(0, contact.getColumn());
+        assertEquals(3, contact.getRow());
+        assertEquals('X', contact.getTile());
+        assertEquals(App.CELLSIZE, contact.getPointX(), 0.001);
+        assertEquals(1, contact.getNormalX(), 0.001);
+        assertEquals(3, contact.getPenetration(), 0.001);
+        assertEquals(-1, contact.getSegment());
+
+        // Moving up into the colored wall at the top of level 1
+        ball = new Ball(8 * App.CELLSIZE + 16, App.TOPBAR + App.CELLSIZE + 8, 0, -2, null, 0, app);
+        assertTrue(ball.findWallContact(contact));
+        assertEquals('2', contact.getTile());
+        assertEquals(App.TOPBAR + App.CELLSIZE, contact.getPointY(), 0.001);
+        assertEquals(1, contact.getNormalY(), 0.001);
+        assertEquals(4, contact.getPenetration(), 0.001);
+
+        // Open floor around the ball
+        ball = new Ball(5 * App.CELLSIZE, App.TOPBAR + 3 * App.CELLSIZE + 16, 2, 0, null, 0, app);
+        assertFalse(ball.findWallContact(contact));
+    }
+}
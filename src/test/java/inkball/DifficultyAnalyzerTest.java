@@ -0,0 +1,58 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class DifficultyAnalyzerTest {
+
+    @Test
+    public void testParseOptions() {
+        // Test to ensure the sweep's timings are whole seconds and bad parameters are rejected.
+        DifficultyAnalyzer.Options options = DifficultyAnalyzer.Options.parse(new String[] { "--analyze", "--time",
+                "60:120:30", "--increase-modifier", "0.5,1" });
+        assertArrayEquals(new int[] { 60, 90, 120 }, options.times);
+        assertArrayEquals(new double[] { 0.5, 1 }, options.increaseModifiers);
+        assertThrows(IllegalArgumentException.class,
+                () -> DifficultyAnalyzer.Options.parse(new String[] { "--analyze", "--spawn-interval", "2.5" }));
+        assertEquals(2, DifficultyAnalyzer.run(new String[] { "--analyze", "--time", "1:2" }));
+    }
+
+    @Test
+    public void testTunedSettingsAreUsed() {
+        // Test to verify a headless game plays a level with the settings it was given.
+        LevelConfig tuned = GameConfig.load("config.json").getLevel(1).withTuning(20, 3, 2.0, 0.5);
+        App app = App.createHeadless("config.json", 1, tuned, 1);
+        assertEquals(20 * App.FPS, app.getRemainingTime());
+        assertEquals(3 * App.FPS, app.getSpawnTimer());
+        assertEquals(tuned.getScoreIncrease(0), app.getScoreIncrease(0));
+        assertEquals(120 * App.FPS, App.createHeadless("config.json", 1, 1).getRemainingTime()); // Config untouched
+    }
+
+    @Test
+    public void testSweep() throws Exception {
+        // Test to ensure every point is played and a tighter time limit makes the level harder.
+        DifficultyAnalyzer.Options options = DifficultyAnalyzer.Options.parse(new String[] { "--level", "1",
+                "--time", "15,120", "--decrease-modifier", "0.5,1", "--runs", "6", "--seed", "9", "--threads", "2" });
+        List<DifficultyAnalyzer.Point> points = DifficultyAnalyzer.analyze(options);
+        assertEquals(4, points.size());
+        assertEquals(15, points.get(0).getSettings().getTime());
+        assertEquals(0.5, points.get(0).getSettings().getScoreDecreaseModifier());
+        assertEquals(120, points.get(3).getSettings().getTime());
+
+        DifficultyAnalyzer.Point rushed = points.get(0), relaxed = points.get(2);
+        assertEquals(1.0, rushed.getFailRate());
+        assertTrue(relaxed.getFailRate() < rushed.getFailRate());
+        assertTrue(relaxed.getMeanCaptureRate() > rushed.getMeanCaptureRate());
+        assertTrue(relaxed.getCaptureRate(10) <= relaxed.getCaptureRate(50));
+        assertTrue(relaxed.getCaptureRate(50) <= relaxed.getCaptureRate(90));
+        assertEquals(DifficultyAnalyzer.HEADER.split(",").length, relaxed.toRow().split(",").length);
+
+        options.threads = 1;
+        List<DifficultyAnalyzer.Point> again = DifficultyAnalyzer.analyze(options);
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(points.get(i).toRow(), again.get(i).toRow());
+        }
+    }
+}
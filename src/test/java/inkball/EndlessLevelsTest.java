@@ -0,0 +1,87 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EndlessLevelsTest {
+
+    private static String endlessConfig(Path directory) throws Exception {
+        Path config = directory.resolve("config.json");
+        Files.write(config, ("{\"endless\": true, \"levels\": [{\"layout\": \"level1.txt\", \"time\": 120,"
+                + " \"spawn_interval\": 10, \"score_increase_from_hole_capture_modifier\": 1.0,"
+                + " \"score_decrease_from_wrong_hole_modifier\": 1.0, \"balls\": [\"blue\", \"orange\"]}],"
+                + " \"score_increase_from_hole_capture\": {\"grey\": 70}, \"score_decrease_from_wrong_hole\": {}}")
+                .getBytes(StandardCharsets.UTF_8));
+        return config.toString();
+    }
+
+    private static List<String> lines(char[][] board) {
+        List<String> lines = new ArrayList<>();
+        for (char[] row : board) {
+            lines.add(new String(row));
+        }
+        return lines;
+    }
+
+    @Test
+    public void testGeneratedLevelsFollowTheLast(@TempDir Path directory) throws Exception {
+        // Test to ensure an endless game carries on with valid generated levels, and restarts replay the same one.
+        App game = App.createHeadless(endlessConfig(directory), 1, 3);
+        game.loadNextLevel(); // A headless game waits for the generated level, so it is in place at once
+        assertEquals(2, game.getCurrentLevel());
+        assertFalse(game.isGameEnded());
+        char[][] board = game.getBoard();
+        assertEquals(LevelGenerator.ROWS, board.length);
+        assertEquals(LevelGenerator.COLUMNS, board[0].length);
+        assertFalse(game.holes.isEmpty());
+        assertEquals(2, game.ballSpawnQueue.size()); // As many as the last level of the config, to start with
+
+        game.submitInput(InputCommand.key(0, 'r', 0));
+        game.processInput();
+        assertEquals(2, game.getCurrentLevel());
+        assertSame(board, game.getBoard());
+
+        game.loadNextLevel();
+        assertEquals(3, game.getCurrentLevel());
+        assertNotSame(board, game.getBoard());
+        assertEquals(3, game.ballSpawnQueue.size());
+    }
+
+    @Test
+    public void testSeededGamesGenerateTheSameLevels(@TempDir Path directory) throws Exception {
+        // Test to verify seeded games are still repeatable in endless mode.
+        String config = endlessConfig(directory);
+        App first = App.createHeadless(config, 1, 8);
+        App second = App.createHeadless(config, 1, 8);
+        first.loadNextLevel();
+        second.loadNextLevel();
+        assertEquals(2, first.getCurrentLevel());
+        assertEquals(2, second.getCurrentLevel());
+        assertEquals(lines(first.getBoard()), lines(second.getBoard()));
+        assertEquals(first.ballSpawnQueue, second.ballSpawnQueue);
+        assertFalse(GameConfig.load("config.json").isEndless());
+    }
+
+    @Test
+    public void testLevelsAreHandedOverInOrder() throws Exception {
+        // Test to ensure the queue never waits, and hands over levels in order as they are replaced.
+        EndlessLevels levels = new EndlessLevels(5, GameConfig.load("config.json").getLevel(3), null);
+        for (int i = 0; i < EndlessLevels.AHEAD * 3; i++) {
+            long deadline = System.currentTimeMillis() + 10000;
+            EndlessLevels.Level level;
+            while ((level = levels.poll()) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertNotNull(level);
+            assertEquals(i, level.getIndex());
+            assertEquals(lines(LevelGenerator.generate(5, i).getData().copyTiles()), lines(level.getTemplate().getTiles()));
+        }
+    }
+}
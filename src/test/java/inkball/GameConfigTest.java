@@ -0,0 +1,77 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameConfigTest {
+
+    @Test
+    public void testLoadIsCached() {
+        // Test to ensure the same config path is only parsed once.
+        assertSame(GameConfig.load("config.json"), GameConfig.load("config.json"));
+    }
+
+    @Test
+    public void testLevelSettings() {
+        // Test to verify a level's settings are read from config.json.
+        GameConfig config = GameConfig.load("config.json");
+        assertEquals(3, config.getLevelCount());
+
+        LevelConfig level = config.getLevel(2);
+        assertEquals("level2.txt", level.getLayout());
+        assertEquals(180, level.getTime());
+        assertEquals(6, level.getSpawnInterval());
+        assertEquals(8, level.getBalls().size());
+        assertEquals("green", level.getBalls().get(0));
+        assertSame(level, config.getLevel(2)); // Materialised only once
+        assertEquals(Squiggle.DEFAULT_TOLERANCE, level.getStrokeTolerance()); // Not set, so the default is used
+    }
+
+    @Test
+    public void testScoreTablesApplyModifiers() {
+        // Test to verify score changes are scaled by the level's modifiers.
+        LevelConfig level = GameConfig.load("config.json").getLevel(2);
+        assertEquals((int) (70 * 1.2), level.getScoreIncrease(0));
+        assertEquals((int) (100 * 1.2), level.getScoreIncrease(4));
+        assertEquals(0, level.getScoreDecrease(0));
+        assertEquals((int) (25 * 1.1), level.getScoreDecrease(2));
+    }
+
+    @Test
+    public void testTuningKeepsTheLayout() {
+        // Test to verify tuned settings rescale the score tables and keep everything else.
+        LevelConfig level = GameConfig.load("config.json").getLevel(2);
+        LevelConfig tuned = level.withTuning(60, 3, 2.0, 0.5);
+        assertEquals(60, tuned.getTime());
+        assertEquals(3, tuned.getSpawnInterval());
+        assertEquals(140, tuned.getScoreIncrease(0));
+        assertEquals((int) (25 * 0.5), tuned.getScoreDecrease(2));
+        assertEquals(level.getLayout(), tuned.getLayout());
+        assertEquals(level.getBalls(), tuned.getBalls());
+        assertEquals(180, level.getTime()); // The original is unchanged
+    }
+
+    @Test
+    public void testInvalidLevel() {
+        // Test to ensure levels outside the config return null.
+        GameConfig config = GameConfig.load("config.json");
+        assertNull(config.getLevel(0));
+        assertNull(config.getLevel(999));
+    }
+
+    @Test
+    public void testIndexingHandlesNestedValues() {
+        // Test to verify that strings containing brackets do not confuse the level index.
+        String json = "{ \"levels\": [ { \"layout\": \"a]}{.txt\", \"time\": 5, \"spawn_interval\": 1,"
+                + " \"score_increase_from_hole_capture_modifier\": 1, \"score_decrease_from_wrong_hole_modifier\": 1,"
+                + " \"balls\": [\"grey\"] } ],"
+                + " \"score_increase_from_hole_capture\": { \"grey\": 10 },"
+                + " \"score_decrease_from_wrong_hole\": { \"grey\": 5 } }";
+        GameConfig config = GameConfig.parse(json);
+
+        assertEquals(1, config.getLevelCount());
+        assertEquals("a]}{.txt", config.getLevel(1).getLayout());
+        assertEquals(10, config.getLevel(1).getScoreIncrease(0));
+        assertEquals(0, config.getLevel(1).getScoreIncrease(1)); // Missing colors score nothing
+    }
+}
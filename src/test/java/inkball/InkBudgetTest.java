@@ -0,0 +1,95 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InkBudgetTest {
+
+    @Test
+    public void testTakeAndRelease() {
+        // Test to ensure ink is granted up to the capacity and comes back when released.
+        InkBudget ink = new InkBudget(100);
+        assertEquals(60, ink.take(60));
+        assertEquals(40, ink.take(60)); // Only what is left
+        assertTrue(ink.isExhausted());
+
+        ink.release(30);
+        assertEquals(30, ink.getRemaining());
+        assertFalse(ink.isExhausted());
+    }
+
+    @Test
+    public void testSquiggleStopsWhereInkRunsOut() {
+        // Test to verify a squiggle is cut off at the end of the budget.
+        InkBudget ink = new InkBudget(50);
+        Squiggle squiggle = new Squiggle(0, ink);
+        squiggle.addPoint(0, 0);
+        squiggle.addPoint(30, 0);
+        squiggle.addPoint(30, 40); // Only 20 of the 40 pixels can be drawn
+        squiggle.addPoint(60, 40); // Nothing left
+
+        assertEquals(3, squiggle.getPointCount());
+        assertEquals(20, squiggle.getY(2), 0.001);
+        assertEquals(50, squiggle.getLength(), 0.001);
+        assertTrue(ink.isExhausted());
+    }
+
+    @Test
+    public void testSimplifiedSquiggleOnlyUsesItsLength() {
+        // Test to ensure merging points into one segment charges the merged length, not the drawn path.
+        InkBudget ink = new InkBudget(1000);
+        Squiggle squiggle = new Squiggle(Squiggle.DEFAULT_TOLERANCE, ink);
+        for (int i = 0; i <= 20; i++) {
+            squiggle.addPoint(i * 6, (i % 2) * 1.5f);
+        }
+
+        assertEquals(1, squiggle.getSegmentCount());
+        assertEquals(squiggle.getLength(), ink.getCapacity() - ink.getRemaining(), 0.01);
+        assertEquals(120, squiggle.getLength(), 0.01);
+    }
+
+    @Test
+    public void testCompactKeepsPoints() {
+        // Test to verify compacting a finished squiggle keeps its shape and still allows new points.
+        Squiggle squiggle = new Squiggle(Squiggle.DEFAULT_TOLERANCE, new InkBudget(1000));
+        squiggle.addPoint(0, 0);
+        squiggle.addPoint(50, 0);
+        squiggle.addPoint(50, 50);
+        squiggle.compact();
+
+        assertEquals(3, squiggle.getPointCount());
+        assertEquals(50, squiggle.getX(2));
+        assertTrue(squiggle.containsPoint(50, 25));
+
+        squiggle.addPoint(50, 100);
+        assertEquals(4, squiggle.getPointCount());
+    }
+
+    @Test
+    public void testCompactTrimsOnlyLongLines() {
+        // Test to ensure compacting keeps a short line's buffer for reuse and trims a long line's.
+        Squiggle shortLine = new Squiggle(0);
+        shortLine.addPoint(0, 0);
+        shortLine.addPoint(10, 0);
+        int capacity = shortLine.getCapacity();
+        shortLine.compact();
+        assertEquals(capacity, shortLine.getCapacity());
+
+        Squiggle longLine = new Squiggle(0);
+        for (int i = 0; i < Squiggle.POOLED_CAPACITY * 3; i++) {
+            longLine.addPoint(i * 6, (i % 2) * 6);
+        }
+        assertTrue(longLine.getCapacity() > Squiggle.POOLED_CAPACITY * 3);
+        longLine.compact();
+        assertEquals(Squiggle.POOLED_CAPACITY * 3, longLine.getCapacity());
+        assertEquals(Squiggle.POOLED_CAPACITY * 3, longLine.getPointCount());
+    }
+
+    @Test
+    public void testLevelInkBudgetHeadless() {
+        // Test to ensure each level starts with a full budget from its settings.
+        App app = App.createHeadless("config.json");
+        assertEquals(InkBudget.DEFAULT_CAPACITY, app.getInk().getCapacity());
+        assertEquals(InkBudget.DEFAULT_CAPACITY, app.getInk().getRemaining());
+    }
+}
@@ -0,0 +1,68 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InputQueueTest {
+
+    @Test
+    public void testCommandsDrainInOrder() {
+        // Test to ensure commands come out in the order they were offered.
+        InputQueue queue = new InputQueue(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue.offer(InputCommand.key(i, (char) ('a' + i), 0)));
+        }
+
+        List<InputCommand> drained = new ArrayList<>();
+        assertEquals(5, queue.drain(drained::add));
+        for (int i = 0; i < 5; i++) {
+            assertEquals('a' + i, drained.get(i).getKey());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testFullQueueDropsCommands() {
+        // Test to verify a full queue rejects commands and counts them, then accepts more once drained.
+        InputQueue queue = new InputQueue(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(InputCommand.key(i, ' ', 0)));
+        }
+        assertFalse(queue.offer(InputCommand.key(4, ' ', 0)));
+        assertEquals(1, queue.getDroppedCount());
+
+        assertNotNull(queue.poll());
+        assertTrue(queue.offer(InputCommand.key(5, ' ', 0)));
+    }
+
+    @Test
+    public void testProducerAndConsumerThreads() throws InterruptedException {
+        // Test to ensure every command from a producer thread reaches the consumer exactly once, in order.
+        InputQueue queue = new InputQueue(64);
+        int total = 100000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                InputCommand command = InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, i, i, 0, 0);
+                while (!queue.offer(command)) {
+                    Thread.onSpinWait(); // Wait for the consumer to free a slot
+                }
+            }
+        });
+        producer.start();
+
+        long expected = 0;
+        while (expected < total) {
+            InputCommand command = queue.poll();
+            if (command != null) {
+                assertEquals(expected, command.getTime());
+                expected++;
+            }
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
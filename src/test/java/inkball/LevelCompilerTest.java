@@ -0,0 +1,106 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class LevelCompilerTest {
+
+    @Test
+    public void testParseLevel1() throws Exception {
+        // Test to verify the entities of level1.txt are found by the compiler.
+        LevelData level = LevelCompiler.parse(Files.readAllLines(Paths.get("level1.txt")));
+
+        assertEquals(18, level.getWidth());
+        assertEquals(18, level.getHeight());
+        assertEquals(4, level.getHoleCount());
+        assertEquals(1, level.getBallCount());
+        assertEquals(1, level.getSpawnerCount());
+        assertEquals(15, level.getTimedTileCount());
+
+        // B2 at row 13, column 6
+        assertEquals(6, level.getBallX(0));
+        assertEquals(13, level.getBallY(0));
+        assertEquals(2, level.getBallColor(0));
+        assertEquals(' ', level.getTile(13, 7)); // The color digit is not kept as a wall
+    }
+
+    @Test
+    public void testArbitraryDimensions() {
+        // Test to ensure boards of any size are supported, padding short lines.
+        LevelData level = LevelCompiler.parse(Arrays.asList("XXXXXXXXXXXXXXXXXXXXXXXX", "X S", "XH3"));
+
+        assertEquals(24, level.getWidth());
+        assertEquals(3, level.getHeight());
+        assertEquals(' ', level.getTile(1, 20));
+        assertEquals(3, level.getHoleColor(0));
+    }
+
+    @Test
+    public void testHoleWithoutColorIsRejected() {
+        // Test to ensure a hole at the end of a line is reported instead of overflowing.
+        assertThrows(IllegalArgumentException.class, () -> LevelCompiler.parse(Arrays.asList("XXH")));
+    }
+
+    @Test
+    public void testCompiledRoundTrip() throws Exception {
+        // Test to verify a compiled level reads back the same as the text layout.
+        Path compiled = Files.createTempFile("level3", LevelCompiler.EXTENSION);
+        try {
+            LevelCompiler.compile(Paths.get("level3.txt"), compiled);
+            LevelData text = LevelCompiler.parse(Files.readAllLines(Paths.get("level3.txt")));
+            LevelData binary = LevelLoader.readCompiled(compiled);
+
+            assertEquals(text.getWidth(), binary.getWidth());
+            assertEquals(text.getHeight(), binary.getHeight());
+            assertArrayEquals(text.copyTiles(), binary.copyTiles());
+            assertEquals(text.getHoleCount(), binary.getHoleCount());
+            for (int i = 0; i < text.getHoleCount(); i++) {
+                assertEquals(text.getHoleX(i), binary.getHoleX(i));
+                assertEquals(text.getHoleY(i), binary.getHoleY(i));
+                assertEquals(text.getHoleColor(i), binary.getHoleColor(i));
+            }
+            assertEquals(text.getBallCount(), binary.getBallCount());
+            assertEquals(text.getSpawnerCount(), binary.getSpawnerCount());
+            assertEquals(text.getTimedTileCount(), binary.getTimedTileCount());
+        } finally {
+            Files.delete(compiled);
+        }
+    }
+
+    @Test
+    public void testCorruptCompiledLevelIsRejected() throws Exception {
+        // Test to ensure truncated or corrupt compiled files fail with an error naming the file.
+        byte[] good = LevelCompiler.encode(LevelCompiler.parse(Files.readAllLines(Paths.get("level1.txt")))).array();
+        Path compiled = Files.createTempFile("level1", LevelCompiler.EXTENSION);
+        try {
+            Files.write(compiled, Arrays.copyOf(good, good.length - 3)); // Cut short in the timed tiles
+            IllegalArgumentException truncated = assertThrows(IllegalArgumentException.class,
+                    () -> LevelLoader.readCompiled(compiled));
+            assertTrue(truncated.getMessage().contains(compiled.toString()), truncated.getMessage());
+
+            byte[] negative = good.clone();
+            int holeCount = 10 + 18 * 18; // After the header and tiles
+            negative[holeCount] = (byte) 0xFF;
+            negative[holeCount + 1] = (byte) 0xFF;
+            Files.write(compiled, negative);
+            assertThrows(IllegalArgumentException.class, () -> LevelLoader.readCompiled(compiled));
+        } finally {
+            Files.delete(compiled);
+        }
+        char[][] tooWide = new char[1][Short.MAX_VALUE + 1];
+        assertThrows(IllegalArgumentException.class, () -> LevelCompiler.encode(
+                new LevelData(tooWide[0].length, 1, tooWide, new int[0], new int[0], new int[0], new int[0])));
+    }
+
+    @Test
+    public void testCompiledPathFor() {
+        // Test to verify the compiled file sits next to the text layout.
+        assertEquals("level1.inkl", LevelLoader.compiledPathFor("level1.txt"));
+        assertEquals("levels/a.b/level.inkl", LevelLoader.compiledPathFor("levels/a.b/level"));
+    }
+}
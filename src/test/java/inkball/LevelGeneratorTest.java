@@ -0,0 +1,91 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+public class LevelGeneratorTest {
+
+    @Test
+    public void testShippedLevelsAreValid() throws Exception {
+        // Test to ensure the shipped layouts pass validation.
+        for (int level = 1; level <= 3; level++) {
+            List<String> lines = Files.readAllLines(Paths.get("level" + level + ".txt"), StandardCharsets.UTF_8);
+            assertNull(LevelGenerator.validate(lines), "level" + level + ".txt");
+        }
+    }
+
+    @Test
+    public void testBrokenLayoutsAreRejected() {
+        // Test to verify unplayable layouts are rejected with a reason.
+        List<String> playable = Arrays.asList(
+                "XXXXXX",
+                "XS   X",
+                "X H1 X",
+                "X    X",
+                "XXXXXX");
+        assertNull(LevelGenerator.validate(playable));
+        assertNotNull(LevelGenerator.validate(Arrays.asList( // Sealed region
+                "XXXXXX",
+                "XS X X",
+                "X H1XX",
+                "X  XBX",
+                "XXXXXX")));
+        assertNotNull(LevelGenerator.validate(Arrays.asList( // Spawner walled off from the hole
+                "XXXXXX",
+                "XSX  X",
+                "XXXH1X",
+                "X    X",
+                "XXXXXX")));
+        assertNotNull(LevelGenerator.validate(Arrays.asList( // Hole missing its color at the end of a line
+                "XXXXXX",
+                "XS   H",
+                "X    X",
+                "XXXXXX")));
+        assertNotNull(LevelGenerator.validate(Arrays.asList( // Hole wedged against the bottom edge
+                "XXXXXX",
+                "XS   X",
+                "X H1 X")));
+        assertNotNull(LevelGenerator.validate(Arrays.asList( // Open border
+                "XXXXXX",
+                "XS    ",
+                "X H1 X",
+                "X    X",
+                "XXXXXX")));
+        assertNotNull(LevelGenerator.validate(Arrays.asList( // No spawner
+                "XXXXXX",
+                "X    X",
+                "X H1 X",
+                "X    X",
+                "XXXXXX")));
+        assertNull(LevelGenerator.validate(Arrays.asList( // Timed tiles expire, so do not seal anything off
+                "XXXXXX",
+                "XS T X",
+                "X TH1X",
+                "X T  X",
+                "XXXXXX")));
+    }
+
+    @Test
+    public void testGeneratedLevelsAreValidAndRepeatable() throws Exception {
+        // Test to ensure generated levels are valid, and the same whatever the number of threads.
+        List<LevelGenerator.Level> single = LevelGenerator.generate(8, 0, 40, 1);
+        List<LevelGenerator.Level> parallel = LevelGenerator.generate(8, 0, 40, 4);
+        assertEquals(40, single.size());
+        for (int i = 0; i < single.size(); i++) {
+            LevelGenerator.Level level = single.get(i);
+            assertEquals(i, level.getIndex());
+            assertNull(LevelGenerator.validate(level.getLines()));
+            assertEquals(LevelGenerator.COLUMNS, level.getData().getWidth());
+            assertTrue(level.getData().getHoleCount() >= 2);
+            assertEquals(level.getLines(), parallel.get(i).getLines());
+        }
+        assertEquals(single.get(7).getLines(), LevelGenerator.generate(8, 7).getLines());
+        assertNotEquals(single.get(7).getLines(), LevelGenerator.generate(9, 7).getLines());
+    }
+}
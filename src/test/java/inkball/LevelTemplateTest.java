@@ -0,0 +1,115 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+public class LevelTemplateTest {
+
+    @Test
+    public void testTemplateIsBuiltOnce() {
+        // Test to ensure a layout's template is built once and reused.
+        LevelTemplate template = LevelTemplate.get("level1.txt", null);
+        assertSame(template, LevelTemplate.get("level1.txt", null));
+        assertNotSame(template, LevelTemplate.get("level2.txt", null));
+        assertSame(LevelLoader.load("level1.txt"), template.getLevel());
+    }
+
+    @Test
+    public void testGamesShareLevelDataHeadless() {
+        // Test to verify two games of the same level share the template's board, holes and spawners.
+        App first = App.createHeadless("config.json");
+        App second = App.createHeadless("config.json");
+        LevelTemplate template = LevelTemplate.get("level1.txt", null);
+
+        assertSame(template.getTiles(), first.board);
+        assertSame(first.board, second.board);
+        assertSame(first.holes.get(0), second.holes.get(0));
+        assertSame(first.spawners.get(0), second.spawners.get(0));
+        assertNotSame(first.getWalls(), second.getWalls());
+        assertEquals(0, first.getWalls().getOwnedRowCount()); // Every sample still shared
+    }
+
+    @Test
+    public void testForkCopiesOnlyRewrittenRows() {
+        // Test to ensure removing a wall from a fork copies only nearby rows and leaves the original alone.
+        char[][] board = new char[6][6];
+        for (char[] row : board) {
+            java.util.Arrays.fill(row, 'X');
+        }
+        WallField original = new WallField(board);
+        WallField fork = original.fork();
+        fork.removeWall(0, 0);
+
+        assertFalse(fork.isWall(0, 0));
+        assertTrue(original.isWall(0, 0));
+        assertTrue(fork.distance(16, App.TOPBAR + 16) > 0);
+        assertTrue(original.distance(16, App.TOPBAR + 16) < 0);
+
+        int rows = 6 * WallField.RESOLUTION + 1;
+        assertTrue(fork.getOwnedRowCount() > 0);
+        assertTrue(fork.getOwnedRowCount() < rows);
+        assertEquals(rows, original.getOwnedRowCount()); // Forking never writes to the original
+    }
+
+    @Test
+    public void testForkBothCopiesOnWriteEitherWay() {
+        // Test to verify removing a wall from a field forked with forkBoth leaves its fork alone too.
+        char[][] board = new char[6][6];
+        for (char[] row : board) {
+            java.util.Arrays.fill(row, 'X');
+        }
+        WallField original = new WallField(board);
+        WallField fork = original.forkBoth();
+        assertEquals(0, original.getOwnedRowCount()); // Shared with the fork since forking
+
+        original.removeWall(5, 5);
+        assertFalse(original.isWall(5, 5));
+        assertTrue(fork.isWall(5, 5));
+        assertTrue(fork.distance(5 * 32 + 16, App.TOPBAR + 5 * 32 + 16) < 0);
+        assertEquals(0, fork.getOwnedRowCount());
+    }
+
+    @Test
+    public void testPrefetchBuildsInTheBackground(@TempDir Path directory) throws Exception {
+        // Test to verify a prefetched template is the one the game later gets, and cached ones are not rebuilt.
+        Path layout = Files.copy(Paths.get("level2.txt"), directory.resolve("level2.txt"));
+        LevelTemplate template = LevelTemplate.prefetch(layout.toString(), null).get(10, TimeUnit.SECONDS);
+        assertSame(template, LevelTemplate.get(layout.toString(), null));
+        assertTrue(LevelTemplate.prefetch(layout.toString(), null).isDone());
+    }
+
+    @Test
+    public void testNextLevelIsPrefetchedDuringVictory(@TempDir Path directory) throws Exception {
+        // Test to ensure the next level is built while the time drains, and swapped in once the victory ends.
+        Path next = Files.copy(Paths.get("level2.txt"), directory.resolve("level2.txt"));
+        String json = new String(Files.readAllBytes(Paths.get("config.json")), StandardCharsets.UTF_8)
+                .replace("\"level2.txt\"", "\"" + next.toString().replace("\\", "/") + "\"");
+        Path config = Files.write(directory.resolve("config.json"), json.getBytes(StandardCharsets.UTF_8));
+
+        App game = App.createHeadless(config.toString(), 1, 4);
+        game.balls.clear();
+        game.ballSpawnQueue.clear();
+        String path = next.toString().replace("\\", "/");
+        assertFalse(LevelTemplate.isCached(path, null));
+        game.update(); // Starts the victory sequence, and with it the prefetch
+        assertTrue(game.getVictoryInProgress());
+        for (int wait = 0; wait < 1000 && !LevelTemplate.isCached(path, null); wait++) {
+            Thread.sleep(10); // The game is not updated, so only the prefetch can build it
+        }
+        assertTrue(LevelTemplate.isCached(path, null));
+        assertEquals(1, game.getCurrentLevel());
+
+        for (int frame = 0; frame < 10000 && game.getCurrentLevel() == 1; frame++) {
+            game.update();
+        }
+        assertEquals(2, game.getCurrentLevel());
+        assertSame(LevelTemplate.get(path, null).getTiles(), game.board);
+    }
+}
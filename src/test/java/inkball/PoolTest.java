@@ -0,0 +1,115 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import processing.core.PConstants;
+
+public class PoolTest {
+
+    @Test
+    public void testReleasedObjectsAreReused() {
+        // Test to ensure released objects are handed out again instead of creating new ones.
+        Pool<StringBuilder> pool = new Pool<>(StringBuilder::new, false);
+        StringBuilder first = pool.acquire();
+        pool.release(first);
+
+        assertSame(first, pool.acquire());
+        assertEquals(1, pool.getCreated());
+        assertEquals(1, pool.getLive());
+        assertEquals(0, pool.getFree());
+    }
+
+    @Test
+    public void testForeignObjectsAreIgnored() {
+        // Test to verify objects the pool did not create are never handed out.
+        Pool<StringBuilder> pool = new Pool<>(StringBuilder::new, true);
+        StringBuilder foreign = new StringBuilder();
+        pool.release(foreign);
+
+        assertEquals(0, pool.getFree());
+        assertNotSame(foreign, pool.acquire());
+    }
+
+    @Test
+    public void testDebugRejectsDoubleRelease() {
+        // Test to ensure debug mode catches an object being released twice.
+        Pool<StringBuilder> pool = new Pool<>(StringBuilder::new, true);
+        StringBuilder object = pool.acquire();
+        pool.release(object);
+
+        assertThrows(IllegalStateException.class, () -> pool.release(object));
+    }
+
+    @Test
+    public void testDebugReportsLeaks() {
+        // Test to verify debug mode reports objects dropped without release, with where they were acquired.
+        Pool<StringBuilder> pool = new Pool<>(StringBuilder::new, true);
+        StringBuilder kept = pool.acquire();
+        pool.acquire(); // Dropped
+
+        IllegalStateException leak = assertThrows(IllegalStateException.class,
+                () -> pool.checkLeaks(List.of(kept)));
+        assertTrue(leak.getMessage().startsWith("1 "));
+        assertNotNull(leak.getCause());
+
+        Pool<StringBuilder> quiet = new Pool<>(StringBuilder::new, false);
+        quiet.acquire();
+        quiet.checkLeaks(Collections.emptyList()); // Not tracked outside debug mode
+    }
+
+    @Test
+    public void testRestartReusesBallsHeadless() {
+        // Test to ensure restarting a level puts the same ball objects back into play.
+        App app = App.createHeadless("config.json");
+        Ball ball = app.balls.get(0);
+        app.setup();
+
+        assertSame(ball, app.balls.get(0));
+    }
+
+    @Test
+    public void testRedrawReusesSquiggleHeadless() {
+        // Test to verify a removed squiggle is reused for the next line drawn.
+        App app = App.createHeadless("config.json");
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, 0, 200, 300, PConstants.LEFT));
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, 1, 260, 300, PConstants.LEFT));
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_RELEASED, 2, 260, 300, PConstants.LEFT));
+        app.processInput();
+        Squiggle squiggle = app.getSquiggles().get(0);
+
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, 3, 230, 300, PConstants.RIGHT));
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_RELEASED, 4, 230, 300, PConstants.RIGHT));
+        app.processInput();
+        assertTrue(app.getSquiggles().isEmpty());
+
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, 5, 100, 400, PConstants.LEFT));
+        app.processInput();
+        assertSame(squiggle, app.getSquiggles().get(0));
+        assertEquals(1, squiggle.getPointCount());
+        assertEquals(0, squiggle.getLength());
+    }
+
+    @Test
+    public void testRightClickDuringDragEndsItHeadless() {
+        // Test to ensure removing the line being drawn stops the drag from adding to the pooled squiggle.
+        App app = App.createHeadless("config.json");
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, 0, 200, 300, PConstants.LEFT));
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, 1, 260, 300, PConstants.LEFT));
+        app.processInput();
+        Squiggle squiggle = app.getSquiggles().get(0);
+        float length = squiggle.getLength();
+
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_PRESSED, 2, 230, 300, PConstants.RIGHT));
+        app.submitInput(InputCommand.mouse(InputCommand.Type.MOUSE_DRAGGED, 3, 300, 360, PConstants.LEFT));
+        app.processInput();
+
+        assertTrue(app.getSquiggles().isEmpty());
+        assertNull(app.getCurrentSqiggle());
+        assertFalse(app.drawEventOngoing);
+        assertEquals(length, squiggle.getLength());
+    }
+}
@@ -0,0 +1,53 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class ScalingBenchmarkTest {
+
+    @Test
+    public void testParseOptions() {
+        // Test to ensure every combination of the settings becomes a point of the grid, and bad options are rejected.
+        ScalingBenchmark.Options options = ScalingBenchmark.Options.parse(new String[] { "--scale", "--size", "18,36",
+                "--balls", "0:20:10", "--squiggles", "5", "--frames", "100", "--seed", "4" });
+        List<ScenarioGenerator.Scale> grid = options.grid();
+        assertEquals(6, grid.size());
+        assertEquals(36, grid.get(5).size);
+        assertEquals(20, grid.get(5).balls);
+        assertEquals(5, grid.get(5).squiggles);
+        assertEquals(4, grid.get(5).seed);
+        assertEquals(100, options.frames);
+        assertThrows(IllegalArgumentException.class, () -> ScalingBenchmark.Options.parse(new String[] { "--size", "3" }));
+        assertThrows(IllegalArgumentException.class, () -> ScalingBenchmark.Options.parse(new String[] { "--fast" }));
+        assertThrows(IllegalArgumentException.class,
+                () -> ScalingBenchmark.Options.parse(new String[] { "--size", "10.5,10.9" }));
+        assertThrows(IllegalArgumentException.class,
+                () -> ScalingBenchmark.Options.parse(new String[] { "--balls", "0:10:2.5" }));
+        assertEquals(0.25, ScalingBenchmark.Options.parse(new String[] { "--wall-density", "0.25" }).grid().get(0)
+                .wallDensity, 1e-9);
+        assertEquals(2, ScalingBenchmark.run(new String[] { "--scale", "--size", "6", "--holes", "9" }));
+    }
+
+    @Test
+    public void testBenchmarkTimesEveryPoint(@TempDir Path directory) throws Exception {
+        // Test to verify every point is timed and its live entities counted.
+        ScalingBenchmark.Options options = ScalingBenchmark.Options.parse(new String[] { "--balls", "0,30",
+                "--squiggles", "10", "--frames", "200", "--warmup", "10", "--runs", "2", "--seed", "9" });
+        List<ScenarioGenerator.Scale> grid = options.grid();
+        List<ScalingBenchmark.Point> points = ScalingBenchmark.benchmark(ScenarioGenerator.write(directory, grid), grid,
+                options);
+
+        assertEquals(2, points.size());
+        for (ScalingBenchmark.Point point : points) {
+            assertTrue(point.getTicksPerSecond() > 0);
+            assertTrue(point.getWalls() >= 4 * 17); // At least the border
+            assertEquals(ScalingBenchmark.HEADER.split(",").length, point.toRow().split(",").length);
+        }
+        assertTrue(points.get(1).getLiveBalls() > points.get(0).getLiveBalls());
+        assertEquals(2, ScalingBenchmark.chart(points, options).split("\n").length);
+    }
+}
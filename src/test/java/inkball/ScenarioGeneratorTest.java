@@ -0,0 +1,79 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class ScenarioGeneratorTest {
+
+    @Test
+    public void testLayoutHasTheRequestedEntities() {
+        // Test to ensure a generated layout parses with exactly the requested entities inside a wall border.
+        ScenarioGenerator.Scale scale = new ScenarioGenerator.Scale();
+        scale.size = 30;
+        scale.holes = 6;
+        scale.timedTiles = 9;
+        scale.spawners = 3;
+        scale.balls = 40;
+        scale.wallDensity = 0.2;
+        scale.seed = 5;
+        List<String> lines = ScenarioGenerator.layout(scale);
+        LevelData level = LevelCompiler.parse(lines);
+
+        assertEquals(30, level.getWidth());
+        assertEquals(30, level.getHeight());
+        assertEquals(6, level.getHoleCount());
+        assertEquals(9, level.getTimedTileCount());
+        assertEquals(3, level.getSpawnerCount());
+        assertEquals(40, level.getBallCount());
+        for (int i = 0; i < 30; i++) {
+            assertEquals('X', level.getTile(0, i));
+            assertEquals('X', level.getTile(i, 29));
+        }
+        assertEquals(lines, ScenarioGenerator.layout(scale)); // Repeatable from the seed
+    }
+
+    @Test
+    public void testBadScalesAreRejected() {
+        // Test to verify scales that cannot be played or do not fit on their board are rejected.
+        ScenarioGenerator.Scale crowded = new ScenarioGenerator.Scale();
+        crowded.size = 6;
+        crowded.holes = 5; // Only four 2x2 blocks fit inside a 6x6 border
+        assertThrows(IllegalArgumentException.class, () -> ScenarioGenerator.layout(crowded));
+
+        ScenarioGenerator.Scale stuck = new ScenarioGenerator.Scale();
+        stuck.spawners = 0; // The default queue has nowhere to spawn
+        assertThrows(IllegalArgumentException.class, () -> ScenarioGenerator.layout(stuck));
+    }
+
+    @Test
+    public void testWrittenScenariosLoad(@TempDir Path directory) throws Exception {
+        // Test to ensure written scenarios load as levels, in order, and take their synthetic squiggles.
+        ScenarioGenerator.Scale small = new ScenarioGenerator.Scale();
+        ScenarioGenerator.Scale large = small.copy();
+        large.size = 60;
+        large.balls = 25;
+        large.queue = 12;
+        large.squiggles = 20;
+        large.squigglePoints = 30;
+        Path config = ScenarioGenerator.write(directory, Arrays.asList(small, large));
+
+        assertEquals(2, GameConfig.load(config.toString()).getLevelCount());
+        App game = App.createHeadless(config.toString(), 2, 1);
+        assertEquals(60, game.getBoardColumns());
+        assertEquals(25, game.balls.size());
+        assertEquals(12, game.getGameConfig().getLevel(2).getBalls().size());
+
+        ScenarioGenerator.drawSquiggles(game, large);
+        assertEquals(20, game.getSquiggles().size());
+        int segments = 0;
+        for (Squiggle squiggle : game.getSquiggles()) {
+            segments += squiggle.getSegmentCount();
+        }
+        assertTrue(segments > 20 * 20, "Only " + segments + " segments"); // Few points are dropped at the edges
+    }
+}
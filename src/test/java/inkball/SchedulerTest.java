@@ -0,0 +1,142 @@
+package inkball;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SchedulerTest {
+    private Scheduler scheduler;
+
+    @BeforeEach
+    public void setup() {
+        scheduler = new Scheduler();
+    }
+
+    @Test
+    public void testOneShotTaskRunsAfterDelay() {
+        // Test to ensure a one-shot task runs exactly once, after its delay.
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule(3, runs::incrementAndGet);
+
+        scheduler.advance(2);
+        assertEquals(0, runs.get());
+        scheduler.tick();
+        assertEquals(1, runs.get());
+        scheduler.advance(10);
+        assertEquals(1, runs.get());
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    public void testRepeatingTaskStopsWhenItReturnsFalse() {
+        // Test to verify a repeating task runs every period until it asks to stop.
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.scheduleRepeating(2, () -> runs.incrementAndGet() < 3);
+
+        scheduler.advance(5);
+        assertEquals(2, runs.get());
+        scheduler.advance(20);
+        assertEquals(3, runs.get());
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    public void testClearDuringTickCancelsRemainingTasks() {
+        // Test to ensure a task clearing the scheduler stops every other task.
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule(1, scheduler::clear);
+        scheduler.schedule(1, runs::incrementAndGet);
+
+        scheduler.tick();
+        assertEquals(0, runs.get());
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    public void testTaskScheduledDuringTickRunsLater() {
+        // Test to verify tasks added while ticking wait for a later tick.
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule(1, () -> scheduler.schedule(1, runs::incrementAndGet));
+
+        scheduler.tick();
+        assertEquals(0, runs.get());
+        scheduler.tick();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testFarFutureTaskRunsOnTime() {
+        // Test to ensure tasks beyond the innermost wheel level cascade down and run on their frame.
+        AtomicInteger runs = new AtomicInteger();
+        Scheduler.Task task = scheduler.schedule(5000, runs::incrementAndGet);
+
+        scheduler.advance(4999);
+        assertEquals(0, runs.get());
+        assertEquals(1, task.getRemainingFrames());
+        scheduler.tick();
+        assertEquals(1, runs.get());
+        assertTrue(scheduler.isIdle());
+    }
+
+    @Test
+    public void testCancelledTaskNeverRuns() {
+        // Test to verify cancelling removes a task without disturbing the others.
+        AtomicInteger runs = new AtomicInteger();
+        Scheduler.Task cancelled = scheduler.schedule(100, runs::incrementAndGet);
+        scheduler.schedule(100, runs::incrementAndGet);
+        assertEquals(2, scheduler.size());
+
+        cancelled.cancel();
+        assertEquals(1, scheduler.size());
+        scheduler.advance(100);
+        assertEquals(1, runs.get());
+        assertEquals(0, cancelled.getRemainingFrames());
+    }
+
+    @Test
+    public void testLevelClockFailsLevelHeadless() {
+        // Test to ensure the level clock is driven by the scheduler and fails the level on time.
+        App app = App.createHeadless("config.json");
+        int timeLimit = app.getRemainingTime();
+        app.balls.clear();
+        app.ballSpawnQueue.clear();
+        app.ballSpawnQueue.add("grey"); // Keep the level from completing
+        app.setSpawnTimer(timeLimit * 2); // ...without ever spawning the ball
+
+        app.fastForward(10);
+        assertEquals(timeLimit - 10, app.getRemainingTime());
+        app.setPaused(true);
+        app.fastForward(10);
+        assertEquals(timeLimit - 10, app.getRemainingTime());
+        app.setPaused(false);
+
+        app.fastForward(timeLimit - App.FPS - 10);
+        assertFalse(app.isLevelFailed);
+        app.update();
+        assertTrue(app.isLevelFailed);
+        assertEquals(App.FPS - 1, app.getRemainingTime());
+    }
+
+    @Test
+    public void testVictorySequenceFastForwardsHeadless() {
+        // Test to verify the victory sequence drains time and loads the next level on the game thread.
+        App app = App.createHeadless("config.json");
+        app.ballSpawnQueue.clear();
+        app.balls.clear();
+        int remainingSeconds = app.getRemainingTime() / App.FPS;
+
+        app.update(); // Level is complete, so the victory sequence starts
+        assertTrue(app.getVictoryInProgress());
+
+        app.setPaused(true);
+        app.fastForward(100);
+        assertEquals(remainingSeconds, app.getRemainingTime() / App.FPS); // Nothing drains while paused
+        app.setPaused(false);
+
+        app.fastForward(remainingSeconds * 4 + 10);
+        assertEquals(2, app.getCurrentLevel());
+        assertEquals(remainingSeconds, app.getScore());
+    }
+}
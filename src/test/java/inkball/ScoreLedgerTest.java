@@ -0,0 +1,94 @@
+package inkball;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScoreLedgerTest {
+    private ScoreLedger ledger;
+
+    @BeforeEach
+    public void setup() {
+        ledger = new ScoreLedger();
+    }
+
+    @Test
+    public void testBreakdownsAddUpToTotal() {
+        // Test to ensure points are recorded against their level, color and time bonus.
+        ledger.add(1, 2, 50);
+        ledger.add(2, 4, 30);
+        ledger.subtract(2, 2, 10);
+        ledger.addTimeBonus(2, 5);
+
+        ScoreLedger.Snapshot snapshot = ledger.snapshot();
+        assertEquals(75, snapshot.getTotal());
+        assertEquals(50, snapshot.getLevelScore(1));
+        assertEquals(25, snapshot.getLevelScore(2));
+        assertEquals(40, snapshot.getColorScore(2));
+        assertEquals(30, snapshot.getColorScore(4));
+        assertEquals(5, snapshot.getTimeBonus());
+        assertEquals(0, snapshot.getLevelScore(3));
+    }
+
+    @Test
+    public void testDeductionStopsAtZero() {
+        // Test to verify the total never goes negative and breakdowns only record what was taken.
+        ledger.add(1, 1, 10);
+        assertEquals(0, ledger.subtract(1, 3, 25));
+
+        ScoreLedger.Snapshot snapshot = ledger.snapshot();
+        assertEquals(0, snapshot.getLevelScore(1));
+        assertEquals(-10, snapshot.getColorScore(3));
+        assertEquals(0, ledger.subtract(1, 3, 5)); // Nothing left to take
+        assertEquals(-10, ledger.snapshot().getColorScore(3));
+    }
+
+    @Test
+    public void testRestoreSnapshot() {
+        // Test to ensure restoring a snapshot puts back the total and every breakdown.
+        ledger.add(1, 0, 20);
+        ScoreLedger.Snapshot levelStart = ledger.snapshot();
+        ledger.add(2, 1, 15);
+        ledger.addTimeBonus(2, 3);
+
+        ledger.restore(levelStart);
+        assertEquals(20, ledger.getTotal());
+        assertEquals(0, ledger.snapshot().getLevelScore(2));
+        assertEquals(0, ledger.snapshot().getTimeBonus());
+
+        ledger.reset();
+        assertEquals(0, ledger.getTotal());
+    }
+
+    @Test
+    public void testConcurrentWritersNeverLosePoints() throws InterruptedException {
+        // Test to verify points added from several threads at once are all counted.
+        int threads = 4;
+        int additions = 10000;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int color = t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < additions; i++) {
+                    ledger.add(1 + i % 3, color, 1);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        ScoreLedger.Snapshot snapshot = ledger.snapshot();
+        assertEquals(threads * additions, snapshot.getTotal());
+        for (int t = 0; t < threads; t++) {
+            assertEquals(additions, snapshot.getColorScore(t));
+        }
+        assertEquals(threads * additions,
+                snapshot.getLevelScore(1) + snapshot.getLevelScore(2) + snapshot.getLevelScore(3));
+    }
+}
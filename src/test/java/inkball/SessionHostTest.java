@@ -0,0 +1,126 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+public class SessionHostTest {
+
+    @Test
+    public void testCommands() throws Exception {
+        // Test to ensure sessions can be opened, drawn on, paused and closed with text commands.
+        try (SessionHost host = new SessionHost("config.json", false)) {
+            String opened = host.handle("OPEN 1 7");
+            assertTrue(opened.startsWith("OK "), opened);
+            String id = opened.substring(3);
+            assertEquals("OK 1", host.handle("COUNT"));
+
+            assertEquals("OK", host.handle("PAUSE " + id));
+            assertEquals("OK", host.handle("DRAW " + id + " 100 200 150 220 200 200"));
+            String status = host.handle("STATUS " + id);
+            assertTrue(status.contains("level=1") && status.contains("squiggles=1") && status.contains("paused=true"),
+                    status);
+
+            assertEquals("OK", host.handle("CLOSE " + id));
+            assertEquals("OK 0", host.handle("COUNT"));
+            assertTrue(host.handle("STATUS " + id).startsWith("ERR "));
+        }
+    }
+
+    @Test
+    public void testBadCommands() {
+        // Test to verify bad commands get an error reply instead of failing the connection.
+        try (SessionHost host = new SessionHost("config.json", false)) {
+            assertTrue(host.handle("JUMP").startsWith("ERR "));
+            assertTrue(host.handle("OPEN 99").startsWith("ERR "));
+            assertTrue(host.handle("OPEN one").startsWith("ERR "));
+            assertTrue(host.handle("STATUS").startsWith("ERR "));
+            assertTrue(host.handle("STATUS 12345").startsWith("ERR "));
+            String id = host.handle("OPEN").substring(3);
+            assertTrue(host.handle("DRAW " + id + " 100 200").startsWith("ERR "));
+            assertNull(host.handle("QUIT"));
+        }
+        try (SessionHost host = new SessionHost("nope.json", false)) {
+            assertTrue(host.handle("OPEN").startsWith("ERR Could not read config nope.json"));
+        }
+    }
+
+    @Test
+    public void testBadArguments() {
+        // Test to verify bad options and an unreadable config are rejected before listening.
+        assertEquals(2, SessionHost.run(new String[] { "--serve", "--config", "nope.json" }));
+        assertEquals(2, SessionHost.run(new String[] { "--serve", "--port", "70000" }));
+        assertEquals(2, SessionHost.run(new String[] { "--serve", "--free-running", "--bogus" }));
+        SessionHost.Options options = SessionHost.Options.parse(
+                new String[] { "--serve", "--free-running", "--port", "8080" });
+        assertFalse(options.realTime);
+        assertEquals(8080, options.port);
+    }
+
+    @Test
+    public void testPacing() throws Exception {
+        // Test to ensure real-time sessions run near the frame rate, free-running ones faster, and paused ones not at all.
+        try (SessionHost realTime = new SessionHost("config.json", true);
+             SessionHost freeRunning = new SessionHost("config.json", false)) {
+            Session paced = realTime.open(1, 1);
+            Session fast = freeRunning.open(1, 1);
+            Thread.sleep(1000);
+            long pacedTicks = paced.getTicks();
+            assertTrue(pacedTicks > App.FPS / 3 && pacedTicks <= App.FPS + 6, "Paced session ran " + pacedTicks);
+            assertTrue(fast.getTicks() > pacedTicks * 2, "Free-running session ran " + fast.getTicks());
+
+            fast.setPaused(true);
+            fast.call(app -> null).get(5, TimeUnit.SECONDS); // Wait for the pause to take effect
+            long ticks = fast.getTicks();
+            Thread.sleep(100);
+            assertEquals(ticks, fast.getTicks());
+        }
+    }
+
+    @Test
+    public void testManySessions() throws Exception {
+        // Test to verify hundreds of sessions all advance independently and close with the host.
+        SessionHost host = new SessionHost("config.json", true);
+        Session[] sessions = new Session[300];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = host.open(1 + i % 3, i);
+        }
+        assertEquals(sessions.length, host.getSessionCount());
+        Thread.sleep(1000);
+        for (Session session : sessions) {
+            assertTrue(session.getTicks() > 0, "Session " + session.getId() + " never ran");
+        }
+        host.close();
+        assertEquals(0, host.getSessionCount());
+        assertThrows(IllegalStateException.class, () -> host.open(1, 1));
+    }
+
+    @Test
+    public void testLoopbackSocket() throws Exception {
+        // Test to ensure commands and replies travel over the loopback socket, one per line.
+        try (SessionHost host = new SessionHost("config.json", true)) {
+            int port = host.listen(0);
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+                out.write("OPEN 2 3\n");
+                out.flush();
+                String id = in.readLine().substring(3);
+                out.write("RESTART " + id + "\nSTATUS " + id + "\nQUIT\n");
+                out.flush();
+                assertEquals("OK", in.readLine());
+                assertTrue(in.readLine().startsWith("OK level=2 "));
+                assertNull(in.readLine()); // Closed after QUIT
+            }
+            assertEquals(1, host.getSessionCount()); // Sessions outlive their connection
+        }
+    }
+}
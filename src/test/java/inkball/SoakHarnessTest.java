@@ -0,0 +1,85 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SoakHarnessTest {
+
+    @Test
+    public void testInvariantsHoldOverEveryLevel() {
+        // Test to ensure whole runs of every level keep every invariant, with the scripted player drawing lines.
+        LongAdder ticks = new LongAdder();
+        for (int level = 1; level <= 3; level++) {
+            for (long seed = 0; seed < 4; seed++) {
+                SoakHarness.Failure failure = SoakHarness.soakRun("config.json", level, seed, ticks);
+                assertNull(failure, () -> failure.describe("config.json"));
+            }
+        }
+        assertTrue(ticks.sum() > 12 * 1000);
+    }
+
+    @Test
+    public void testBrokenInvariantsAreCaught() {
+        // Test to verify tunnelling, bad speeds, lost balls and a lost queue are all reported.
+        App game = App.createHeadless("config.json", 1, 3);
+        SoakHarness.Baseline baseline = new SoakHarness.Baseline(game);
+        assertNull(SoakHarness.check(game, baseline));
+        Ball ball = game.balls.get(0);
+
+        ball.reset(16, App.TOPBAR + 16, 2, 2, null, 0); // The corner of level 1 is a wall
+        assertTrue(SoakHarness.check(game, baseline).contains("inside the wall"));
+        ball.reset(-5, App.TOPBAR + 100, 2, 2, null, 0);
+        assertTrue(SoakHarness.check(game, baseline).contains("left the board"));
+        ball.reset(100, App.TOPBAR + 100, 20, 0, null, 0);
+        assertTrue(SoakHarness.check(game, baseline).contains("moves at"));
+        ball.reset(100, App.TOPBAR + 100, 2, 2, null, 0);
+        assertNull(SoakHarness.check(game, baseline));
+
+        game.balls.remove(0);
+        assertTrue(SoakHarness.check(game, baseline).contains("balls on the board"));
+        game.balls.add(ball);
+        game.ballSpawnQueue.add("blue");
+        assertTrue(SoakHarness.check(game, baseline).contains("balls queued"));
+    }
+
+    @Test
+    public void testSoakAndReproducer() throws Exception {
+        // Test to ensure a short soak passes, options are checked and a reproducer names the run.
+        Path out = Files.createTempFile("soak", ".txt");
+        Files.delete(out);
+        assertEquals(0, SoakHarness.run(new String[] { "--soak", "--ticks", "20000", "--threads", "2", "--seed", "1",
+                "--out", out.toString() }));
+        assertFalse(Files.exists(out)); // Only written when an invariant breaks
+        assertEquals(0, SoakHarness.run(new String[] { "--soak", "--reproduce", "2:5" }));
+        assertEquals(2, SoakHarness.run(new String[] { "--soak", "--reproduce", "2" }));
+        assertEquals(2, SoakHarness.run(new String[] { "--soak", "--ticks", "0" }));
+
+        SoakHarness.Failure failure = new SoakHarness.Failure(2, 77, 1234, "ball 0 left the board", "ball 0: x=-1\n");
+        String reproducer = failure.describe("config.json");
+        assertTrue(reproducer.contains("level=2 seed=77 frame=1234"));
+        assertTrue(reproducer.contains("--reproduce 2:77"));
+
+        assertEquals(0, SoakHarness.slope(Arrays.asList(new double[] { 0, 5 })));
+        assertEquals(2, SoakHarness.slope(Arrays.asList(new double[] { 0, 1 }, new double[] { 1, 3 },
+                new double[] { 2, 5 })), 1e-9);
+    }
+
+    @Test
+    public void testExceptionIsAFailure() throws Exception {
+        // Test to verify a run that throws stops the soak with a failure naming its level, seed and frame.
+        SoakHarness.Options options = SoakHarness.Options.parse(new String[] { "--soak", "--ticks", "1000",
+                "--threads", "2", "--seed", "3", "--report-every", "1" });
+        options.config = "nope.json"; // Every run throws while starting its level
+        SoakHarness.Failure failure = SoakHarness.soak(options, 1);
+        assertNotNull(failure);
+        assertEquals(1, failure.level);
+        assertEquals(0, failure.frame);
+        assertTrue(failure.message.contains("Could not read config nope.json"), failure.message);
+        assertTrue(failure.describe("nope.json").contains("--reproduce 1:" + failure.seed));
+    }
+}
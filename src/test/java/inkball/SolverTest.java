@@ -0,0 +1,117 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class SolverTest {
+
+    @Test
+    public void testForkPlaysOnLikeTheOriginal() {
+        // Test to ensure a fork carries on exactly like the original while no random choice is made.
+        App original = App.createHeadless("config.json", 1, 7);
+        original.fastForward(310); // Just after the first spawn, with the timed tiles fading
+        Solver.draw(original, new float[] { 200, 300, 260, 320 });
+        App fork = original.fork(99);
+
+        int frames = original.getSpawnTimer() - 1; // Until the next spawn picks a spawner
+        assertTrue(frames > 200);
+        assertEquals(original.getSquiggles().size(), fork.getSquiggles().size());
+        for (int f = 0; f < frames; f++) {
+            original.update();
+            fork.update();
+            assertEquals(original.balls.size(), fork.balls.size());
+            for (int i = 0; i < original.balls.size(); i++) {
+                assertEquals(original.balls.get(i).getX(), fork.balls.get(i).getX(), "Frame " + f);
+                assertEquals(original.balls.get(i).getY(), fork.balls.get(i).getY(), "Frame " + f);
+            }
+            for (int i = 0; i < original.timedTiles.size(); i++) {
+                TimedTile tile = original.timedTiles.get(i);
+                assertEquals(tile.getAlpha(), fork.timedTiles.get(i).getAlpha());
+                assertEquals(original.getWalls().isWall((int) tile.getX(), (int) tile.getY()),
+                        fork.getWalls().isWall((int) tile.getX(), (int) tile.getY()));
+            }
+            assertEquals(original.getRemainingTime(), fork.getRemainingTime());
+            assertEquals(original.getScore(), fork.getScore());
+            assertEquals(original.getInk().getRemaining(), fork.getInk().getRemaining());
+        }
+        assertFalse(original.timedTiles.get(0).isActive()); // The window covered the tiles expiring
+    }
+
+    @Test
+    public void testForkIsIndependent() {
+        // Test to verify playing a fork leaves the original untouched.
+        App original = App.createHeadless("config.json", 1, 7);
+        float x = original.balls.get(0).getX();
+        int remaining = original.getRemainingTime();
+
+        App fork = original.fork(1);
+        Solver.draw(fork, new float[] { 200, 300, 260, 320 });
+        fork.fastForward(900);
+
+        assertEquals(x, original.balls.get(0).getX());
+        assertEquals(remaining, original.getRemainingTime());
+        assertTrue(original.getSquiggles().isEmpty());
+        for (TimedTile tile : original.timedTiles) {
+            assertTrue(original.getWalls().isWall((int) tile.getX(), (int) tile.getY()));
+        }
+        assertThrows(IllegalStateException.class, () -> new App().fork(1)); // Not headless
+    }
+
+    @Test
+    public void testParseOptions() {
+        // Test to ensure the command-line options are read, ignoring --solve, and bad ones rejected.
+        Solver.Options options = Solver.Options.parse(new String[] { "--solve", "--level", "2", "--candidates", "100",
+                "--rollouts", "50", "--threads", "8", "--seed", "3", "--top", "5" });
+        assertEquals(2, options.level);
+        assertEquals(100, options.candidates);
+        assertEquals(50, options.rollouts);
+        assertEquals(8, options.threads);
+        assertEquals(3, options.seed);
+        assertEquals(5, options.top);
+        assertThrows(IllegalArgumentException.class, () -> Solver.Options.parse(new String[] { "--rollouts", "0" }));
+        assertThrows(IllegalArgumentException.class, () -> Solver.Options.parse(new String[] { "--wide" }));
+        assertEquals(2, Solver.run(new String[] { "--solve", "--level", "99" }));
+    }
+
+    @Test
+    public void testSearchIsRankedAndRepeatable() throws Exception {
+        // Test to verify every candidate is ranked best first, the same way whatever the number of threads.
+        Solver.Options options = Solver.Options.parse(new String[] { "--candidates", "5", "--rollouts", "3",
+                "--seed", "11", "--threads", "1" });
+        Solver.Result single = Solver.solve(options);
+        options.threads = 3;
+        Solver.Result parallel = Solver.solve(options);
+
+        List<Solver.Candidate> ranked = single.ranked;
+        assertEquals(6, ranked.size()); // Including the empty placement
+        assertEquals(18, single.rollouts);
+        assertTrue(single.getRolloutsPerSecond() > 0);
+        for (int i = 0; i < ranked.size(); i++) {
+            assertEquals(ranked.get(i).toRow(i + 1), parallel.ranked.get(i).toRow(i + 1));
+            if (i > 0) {
+                assertTrue(ranked.get(i - 1).getMeanScore() >= ranked.get(i).getMeanScore());
+            }
+        }
+    }
+
+    @Test
+    public void testRolloutsAreSplitBetweenThreads() throws Exception {
+        // Test to ensure a search of fewer candidates than threads splits their rollouts without changing the result.
+        assertEquals(1, Solver.parts(65, 32, 8));
+        assertEquals(4, Solver.parts(2, 32, 8));
+        assertEquals(3, Solver.parts(1, 3, 8));
+        assertEquals(1, Solver.parts(1, 5, 1));
+
+        Solver.Options options = Solver.Options.parse(new String[] { "--candidates", "1", "--rollouts", "5",
+                "--seed", "7", "--threads", "1" });
+        Solver.Result single = Solver.solve(options);
+        options.threads = 4;
+        Solver.Result split = Solver.solve(options);
+        assertEquals(10, split.rollouts);
+        for (int i = 0; i < single.ranked.size(); i++) {
+            assertEquals(single.ranked.get(i).toRow(i + 1), split.ranked.get(i).toRow(i + 1));
+        }
+    }
+}
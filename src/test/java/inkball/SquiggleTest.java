@@ -209,4 +209,74 @@ public class SquiggleTest {
         assertEquals(PVector.dist(testPoint, startAndEnd), distance);
     }
 
+    @Test
+    public void testStraightStrokeIsSimplified() {
+        // Test to ensure a nearly straight stroke collapses into a single segment.
+        Squiggle simplified = new Squiggle(Squiggle.DEFAULT_TOLERANCE);
+        for (int i = 0; i <= 40; i++) {
+            simplified.addPoint(i * 6, (i % 2) * 1.5f); // 1.5px of wobble
+        }
+
+        assertEquals(1, simplified.getSegmentCount());
+        assertEquals(new PVector(240, 0), simplified.getPoints().getLast());
+    }
+
+    @Test
+    public void testCornersAreKeptWhenSimplifying() {
+        // Test to verify turns beyond the tolerance keep their vertices.
+        Squiggle simplified = new Squiggle(Squiggle.DEFAULT_TOLERANCE);
+        for (int i = 0; i <= 10; i++) {
+            simplified.addPoint(i * 6, 0);
+        }
+        for (int i = 1; i <= 10; i++) {
+            simplified.addPoint(60, i * 6);
+        }
+
+        assertEquals(2, simplified.getSegmentCount());
+        assertEquals(new PVector(60, 0), simplified.getPoints().get(1));
+    }
+
+    @Test
+    public void testSimplifiedNormalsStayWithinError() {
+        // Test to ensure a gentle curve is split before any segment's normal drifts too far from the drawn ones.
+        Squiggle simplified = new Squiggle(Squiggle.DEFAULT_TOLERANCE);
+        float radius = 200;
+        PVector[] drawn = new PVector[61];
+        for (int i = 0; i < drawn.length; i++) {
+            double angle = Math.toRadians(i * 1.5);
+            drawn[i] = new PVector((float) (radius * Math.sin(angle)), (float) (radius - radius * Math.cos(angle)));
+            simplified.addPoint(drawn[i].x, drawn[i].y);
+        }
+
+        assertTrue(simplified.getSegmentCount() < 60 / 3); // Several-fold fewer segments
+        PVector previous = null;
+        for (PVector point : simplified.getPoints()) {
+            if (previous != null) {
+                PVector segment = PVector.sub(point, previous);
+                for (int i = 1; i < drawn.length; i++) {
+                    PVector from = drawn[i - 1], to = drawn[i];
+                    if (from.x < previous.x || to.x > point.x) {
+                        continue; // Not replaced by this segment
+                    }
+                    // The normals turn by the same angle as the segments
+                    PVector original = PVector.sub(to, from);
+                    float turn = (float) Math.atan2(Math.abs(segment.x * original.y - segment.y * original.x),
+                            segment.dot(original));
+                    assertTrue(turn <= Squiggle.MAX_NORMAL_ERROR, "Normal turned by " + Math.toDegrees(turn));
+                    assertTrue(simplified.distToLineSegment(to, previous, point) <= Squiggle.DEFAULT_TOLERANCE);
+                }
+            }
+            previous = point;
+        }
+    }
+
+    @Test
+    public void testZeroToleranceKeepsEveryPoint() {
+        // Test to verify simplification can be turned off.
+        Squiggle unsimplified = new Squiggle(0);
+        for (int i = 0; i < 10; i++) {
+            unsimplified.addPoint(i * 6, 0);
+        }
+        assertEquals(9, unsimplified.getSegmentCount());
+    }
 }
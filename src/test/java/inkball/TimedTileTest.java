@@ -69,6 +69,35 @@ public class TimedTileTest {
         }
     }
 
+    @Test
+    public void testScheduledFadeExpiresTile() {
+        // Test to ensure a tile faded by a scheduler deactivates on the frame it becomes transparent.
+        Scheduler scheduler = new Scheduler();
+        timedTile.startFading(scheduler);
+
+        scheduler.advance(10);
+        assertEquals(250, timedTile.getAlpha());
+        scheduler.advance(499);
+        assertTrue(timedTile.isActive());
+        scheduler.tick();
+        assertFalse(timedTile.isActive());
+        assertEquals(0, timedTile.getAlpha());
+    }
+
+    @Test
+    public void testStopFadingKeepsAlpha() {
+        // Test to verify a stopped fade keeps its transparency however long the scheduler runs.
+        Scheduler scheduler = new Scheduler();
+        timedTile.startFading(scheduler);
+        scheduler.advance(10);
+
+        timedTile.stopFading();
+        scheduler.advance(1000);
+        assertEquals(250, timedTile.getAlpha());
+        assertTrue(timedTile.isActive());
+        assertTrue(scheduler.isIdle());
+    }
+
     @Test
     public void testDrawWithAlphaZero() {
         // Test to verify that the draw method does not throw any exceptions 
@@ -0,0 +1,81 @@
+package inkball;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WallFieldTest {
+
+    /**
+     * Builds a board of open tiles with walls at the given cells.
+     */
+    private static char[][] board(int columns, int rows, char wall, int... cells) {
+        char[][] board = new char[rows][columns];
+        for (char[] row : board) {
+            java.util.Arrays.fill(row, ' ');
+        }
+        for (int i = 0; i < cells.length; i += 2) {
+            board[cells[i + 1]][cells[i]] = wall;
+        }
+        return board;
+    }
+
+    @Test
+    public void testSignedDistance() {
+        // Test to ensure distances are positive outside a wall, negative inside and clamped far away.
+        WallField walls = new WallField(board(6, 6, 'X', 2, 2));
+        float top = App.TOPBAR;
+
+        assertEquals(8, walls.distance(56, top + 80), 0.001); // Left of the wall
+        assertEquals(0, walls.distance(64, top + 80), 0.001); // On its edge
+        assertEquals(-8, walls.distance(72, top + 80), 0.001); // Inside
+        assertEquals(WallField.MAX_DISTANCE, walls.distance(180, top + 180), 0.001);
+    }
+
+    @Test
+    public void testCornerNormalIsDiagonal() {
+        // Test to verify a ball hitting a corner is pushed away diagonally, not along one axis.
+        WallField walls = new WallField(board(6, 6, 'X', 2, 2));
+        Contact contact = new Contact();
+        assertTrue(walls.findContact(58, App.TOPBAR + 58, 12, contact));
+
+        assertEquals(-Math.sqrt(0.5), contact.getNormalX(), 0.001);
+        assertEquals(-Math.sqrt(0.5), contact.getNormalY(), 0.001);
+        assertEquals(2, contact.getColumn());
+        assertEquals(2, contact.getRow());
+        assertEquals('X', contact.getTile());
+    }
+
+    @Test
+    public void testCornerBounce() {
+        // Test to ensure reflecting off a corner contact sends a diagonal ball back the way it came.
+        WallField walls = new WallField(board(6, 6, 'X', 2, 2));
+        Contact contact = new Contact();
+        assertTrue(walls.findContact(58, App.TOPBAR + 58, 12, contact));
+
+        Ball ball = new Ball(58, App.TOPBAR + 58, 2, 2, null, 0, null);
+        contact.reflect(ball);
+        assertEquals(-2, ball.getDx(), 0.001);
+        assertEquals(-2, ball.getDy(), 0.001);
+    }
+
+    @Test
+    public void testExpiredTimedTileOpensUp() {
+        // Test to ensure a timed tile stops being a wall in the field on the frame it expires.
+        WallField walls = new WallField(board(6, 6, 'T', 2, 2, 3, 2));
+        Scheduler scheduler = new Scheduler();
+        TimedTile tile = new TimedTile(2, 2, null);
+        tile.setOnExpire(() -> walls.removeWall((int) tile.getX(), (int) tile.getY()));
+        tile.startFading(scheduler);
+
+        assertEquals(-8, walls.distance(72, App.TOPBAR + 80), 0.001);
+        for (int i = 0; i < 510; i++) {
+            scheduler.tick();
+        }
+
+        assertFalse(tile.isActive());
+        assertFalse(walls.isWall(2, 2));
+        assertTrue(walls.isWall(3, 2)); // Its neighbour is still there
+        assertEquals(24, walls.distance(72, App.TOPBAR + 80), 0.001);
+        assertFalse(walls.findContact(40, App.TOPBAR + 80, 12, new Contact()));
+    }
+}